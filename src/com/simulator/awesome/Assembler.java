@@ -134,6 +134,54 @@ public class Assembler {
         return output_arr;
     }
 
+    // Turns a machine word back into assembly, in the form processInstruction reads
+    public String disassemble(short word) {
+        String opcode = Utils.wordToString(word).substring(0, 6);
+        String instruction = null;
+        for (Map.Entry<String, String> entry : this.opcodeMap.entrySet()) {
+            if (entry.getValue().equals(opcode)) instruction = entry.getKey();
+        }
+        if (instruction == null) return "DATA " + Utils.wordToString(word);
+
+        int r = (word >> 8) & 0b11;
+        int ix = (word >> 6) & 0b11;
+        int address = word & 0b11111;
+        String indirect = ((word >> 5) & 1) == 1 ? ",1" : "";
+        switch (instruction) {
+            case "JMA":
+            case "JSR":
+                return instruction + " " + ix + "," + address + indirect;
+            case "RFS":
+                return instruction + " " + address;
+            case "AIR":
+            case "SIR":
+                return instruction + " " + r + "," + address;
+            case "MLT":
+            case "DVD":
+            case "TRR":
+            case "AND":
+            case "ORR":
+                return instruction + " " + r + "," + ix;
+            case "NOT":
+                return instruction + " " + r;
+            case "SRC":
+            case "RRC":
+                // Count, L/R, A/L
+                return instruction + " " + r + "," + (word & 0b1111) + "," + ((word >> 6) & 1) + "," + ((word >> 7) & 1);
+            case "IN":
+            case "OUT":
+            case "CHK":
+                return instruction + " " + r + "," + address;
+            case "TRAP":
+                return instruction + " " + (word & 0b1111);
+            case "HLT":
+                return instruction;
+            default:
+                // Loads, stores, LDX and STX, arithmetic with memory and conditional jumps
+                return instruction + " " + r + "," + ix + "," + address + indirect;
+        }
+    }
+
     private String processInstruction(String instruction, String[] instructionParams) {
         int instructionParamsLength = instructionParams.length;
         String mc_opcode = opcodeMap.get(instruction);
@@ -0,0 +1,121 @@
+package com.simulator.awesome;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Block storage backed by a memory-mapped disk image, made of sectors of Config.SECTOR_WORDS words. Each word is
+ * stored in the image as a big-endian 16-bit value. The image is set by disk.image in the machine profile and can be
+ * built with DiskImage. Writes go straight to the mapping, so they are in the image once the host flushes it.
+ *
+ * Programs read and write the word at a cursor through the data port, device 8, and move the cursor through the
+ * control port, device 9:
+ *   IN r,8  reads the word at the cursor and moves to the next word
+ *   OUT r,8 writes c(r) at the cursor and moves to the next word
+ *   CHK r,8 reads the number of words left in the cursor's sector
+ *   OUT r,9 seeks to the first word of sector c(r)
+ *   IN r,9  reads the cursor's sector
+ *   CHK r,9 reads the number of sectors
+ * The DMA controller can also move runs of words between memory and the cursor. Reads past the end of the disk read 0
+ * and writes past the end are dropped. Without an image, the disk has no sectors.
+ */
+public class BlockDevice {
+    private final Simulator context;
+
+    // Null without an image. The mapping is released by the garbage collector.
+    private final MappedByteBuffer image;
+    private final int sectors;
+
+    // The word the next read or write uses
+    private int cursor;
+
+    // Statistics
+    private long wordsRead;
+    private long wordsWritten;
+    private long seeks;
+
+    BlockDevice(Simulator context) {
+        this.context = context;
+        MappedByteBuffer image = null;
+        String path = context.profile.diskImage;
+        if (path != null) {
+            try {
+                image = map(new File(path));
+            } catch (IOException e) {
+                System.err.println("Cannot open disk image " + path + ": " + e.getMessage());
+            }
+        }
+        this.image = image;
+        this.sectors = image == null ? 0 : image.capacity() / (2 * Config.SECTOR_WORDS);
+    }
+
+    // Maps a whole image for reading and writing
+    static MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = input.getChannel();
+            if (channel.size() % (2 * Config.SECTOR_WORDS) != 0) throw new IOException(file.getName() + " is not a whole number of sectors!");
+            if (channel.size() / (2 * Config.SECTOR_WORDS) > 0xFFFF) throw new IOException(file.getName() + " has more sectors than a word can address!");
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    private int getWordCount() {
+        return this.sectors * Config.SECTOR_WORDS;
+    }
+
+    public short read() {
+        short word = 0;
+        if (this.cursor < this.getWordCount()) {
+            word = this.image.getShort(2 * this.cursor);
+            this.cursor++;
+            this.wordsRead++;
+        }
+        return word;
+    }
+
+    public void write(short word) {
+        if (this.cursor >= this.getWordCount()) return;
+        this.image.putShort(2 * this.cursor, word);
+        this.cursor++;
+        this.wordsWritten++;
+    }
+
+    // The sector is an unsigned word
+    public void seek(short sector) {
+        this.cursor = Short.toUnsignedInt(sector) * Config.SECTOR_WORDS;
+        this.seeks++;
+    }
+
+    public short getSector() {
+        return (short) (this.cursor / Config.SECTOR_WORDS);
+    }
+
+    public short getSectors() {
+        return (short) this.sectors;
+    }
+
+    public short getWordsLeftInSector() {
+        if (this.cursor >= this.getWordCount()) return 0;
+        return (short) (Config.SECTOR_WORDS - this.cursor % Config.SECTOR_WORDS);
+    }
+
+    // Words from the cursor to the end of the disk
+    public int getWordsLeftOnDisk() {
+        return Math.max(0, this.getWordCount() - this.cursor);
+    }
+
+    public void reset() {
+        this.cursor = 0;
+    }
+
+    public void dumpStatistics() {
+        if (this.image == null) return;
+        this.context.io.engineerConsolePrintLn("Block Device (" + this.sectors + " sectors of " + Config.SECTOR_WORDS + " words)");
+        this.context.io.engineerConsolePrintLn("    Words Read: " + this.wordsRead);
+        this.context.io.engineerConsolePrintLn("    Words Written: " + this.wordsWritten);
+        this.context.io.engineerConsolePrintLn("    Seeks: " + this.seeks);
+    }
+}
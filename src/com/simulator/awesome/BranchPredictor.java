@@ -0,0 +1,238 @@
+package com.simulator.awesome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Predicts the direction of the conditional branches (JZ, JNE, JCC, SOB and JGE) at fetch.
+ * This base class always predicts not taken. Accuracy is also counted per branch site.
+ */
+public class BranchPredictor {
+    // The number of branch sites listed in the statistics
+    static final int REPORTED_SITES = 10;
+
+    protected final Simulator context;
+
+    // Statistics
+    private long predictions;
+    private long mispredictions;
+    private final long[] sitePredictions;
+    private final long[] siteMispredictions;
+
+    BranchPredictor(Simulator context) {
+        this.context = context;
+        // Every address the PC can hold, as the timing model is created before memory
+        this.sitePredictions = new long[ProgramCounter.PC_MASK + 1];
+        this.siteMispredictions = new long[ProgramCounter.PC_MASK + 1];
+    }
+
+    public static BranchPredictor create(Simulator context) {
+        int tableSize = context.profile.branchTableSize;
+        switch (context.profile.branchPredictor) {
+            case STATIC:
+                return new StaticBranchPredictor(context);
+            case BIMODAL:
+                return new BimodalBranchPredictor(context, tableSize);
+            case GSHARE:
+                return new GshareBranchPredictor(context, tableSize);
+            case TOURNAMENT:
+                return new TournamentBranchPredictor(context, tableSize);
+            default:
+                return new BranchPredictor(context);
+        }
+    }
+
+    public BranchPredictorType getType() {
+        return BranchPredictorType.NONE;
+    }
+
+    /**
+     * @param pc the address of the branch
+     * @param target the target from the branch target buffer
+     * @return true if the branch is predicted taken
+     */
+    public boolean predict(short pc, short target) {
+        return false;
+    }
+
+    // Trains the predictor with the outcome of a branch
+    public void update(short pc, boolean isTaken) {
+        // NOOP
+    }
+
+    // Counts a prediction against the outcome of the branch
+    public void recordOutcome(short pc, boolean isCorrect) {
+        int site = Short.toUnsignedInt(pc) % this.sitePredictions.length;
+        this.predictions++;
+        this.sitePredictions[site]++;
+        if (!isCorrect) {
+            this.mispredictions++;
+            this.siteMispredictions[site]++;
+        }
+    }
+
+    public long getPredictions() {
+        return this.predictions;
+    }
+
+    public long getMispredictions() {
+        return this.mispredictions;
+    }
+
+    public double getAccuracy() {
+        return this.predictions == 0 ? 0 : 1 - (double) this.mispredictions / this.predictions;
+    }
+
+    public double getSiteAccuracy(short pc) {
+        int site = Short.toUnsignedInt(pc) % this.sitePredictions.length;
+        return this.sitePredictions[site] == 0 ? 0 : 1 - (double) this.siteMispredictions[site] / this.sitePredictions[site];
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Branch Predictor: " + this.getType());
+        this.context.io.engineerConsolePrintLn("    Conditional Branches: " + this.predictions);
+        this.context.io.engineerConsolePrintLn("    Mispredictions: " + this.mispredictions);
+        this.context.io.engineerConsolePrintLn("    Accuracy: " + String.format("%.4f", this.getAccuracy()));
+
+        // The branch sites with the most mispredictions first
+        ArrayList<Integer> sites = new ArrayList<>();
+        for (int site = 0; site < this.sitePredictions.length; site++) {
+            if (this.sitePredictions[site] > 0) sites.add(site);
+        }
+        sites.sort(Comparator.comparingLong((Integer site) -> this.siteMispredictions[site]).reversed());
+        for (int site : sites.subList(0, Math.min(sites.size(), REPORTED_SITES))) {
+            this.context.io.engineerConsolePrintLn("    Branch at " + site + ": " + this.sitePredictions[site] + " predictions, accuracy " + String.format("%.4f", this.getSiteAccuracy((short) site)));
+        }
+    }
+
+    // Two bit saturating counters, 2 and 3 mean taken
+    static byte train(byte counter, boolean isTaken) {
+        if (isTaken) return counter < 3 ? (byte)(counter + 1) : counter;
+        return counter > 0 ? (byte)(counter - 1) : counter;
+    }
+}
+
+/**
+ * Backward taken, forward not taken. Loops branch backwards, so their branches are predicted taken.
+ */
+class StaticBranchPredictor extends BranchPredictor {
+    StaticBranchPredictor(Simulator context) {
+        super(context);
+    }
+
+    public BranchPredictorType getType() {
+        return BranchPredictorType.STATIC;
+    }
+
+    public boolean predict(short pc, short target) {
+        return Short.toUnsignedInt(target) <= Short.toUnsignedInt(pc);
+    }
+}
+
+/**
+ * A table of two bit counters indexed by the address of the branch.
+ */
+class BimodalBranchPredictor extends BranchPredictor {
+    private final byte[] counters;
+
+    BimodalBranchPredictor(Simulator context, int tableSize) {
+        super(context);
+        this.counters = new byte[tableSize];
+        // Start weakly not taken
+        Arrays.fill(this.counters, (byte) 1);
+    }
+
+    public BranchPredictorType getType() {
+        return BranchPredictorType.BIMODAL;
+    }
+
+    private int index(short pc) {
+        return Short.toUnsignedInt(pc) % this.counters.length;
+    }
+
+    public boolean predict(short pc, short target) {
+        return this.counters[this.index(pc)] >= 2;
+    }
+
+    public void update(short pc, boolean isTaken) {
+        int i = this.index(pc);
+        this.counters[i] = train(this.counters[i], isTaken);
+    }
+}
+
+/**
+ * A table of two bit counters indexed by the address of the branch exclusive-ored with the global history of
+ * recent branch outcomes, so branches that depend on earlier branches can be predicted.
+ */
+class GshareBranchPredictor extends BranchPredictor {
+    private final byte[] counters;
+    private int history;
+
+    GshareBranchPredictor(Simulator context, int tableSize) {
+        super(context);
+        this.counters = new byte[tableSize];
+        Arrays.fill(this.counters, (byte) 1);
+    }
+
+    public BranchPredictorType getType() {
+        return BranchPredictorType.GSHARE;
+    }
+
+    private int index(short pc) {
+        return (Short.toUnsignedInt(pc) ^ this.history) % this.counters.length;
+    }
+
+    public boolean predict(short pc, short target) {
+        return this.counters[this.index(pc)] >= 2;
+    }
+
+    public void update(short pc, boolean isTaken) {
+        int i = this.index(pc);
+        this.counters[i] = train(this.counters[i], isTaken);
+        // Only keep as much history as the table can be indexed by
+        this.history = ((this.history << 1) | (isTaken ? 1 : 0)) % this.counters.length;
+    }
+}
+
+/**
+ * Chooses between a bimodal and a gshare predictor with a table of two bit counters indexed by the address of the
+ * branch. Each chooser counter moves towards whichever predictor was right when they disagree.
+ */
+class TournamentBranchPredictor extends BranchPredictor {
+    private final BimodalBranchPredictor bimodal;
+    private final GshareBranchPredictor gshare;
+    // 2 and 3 choose gshare
+    private final byte[] choosers;
+
+    TournamentBranchPredictor(Simulator context, int tableSize) {
+        super(context);
+        this.bimodal = new BimodalBranchPredictor(context, tableSize);
+        this.gshare = new GshareBranchPredictor(context, tableSize);
+        this.choosers = new byte[tableSize];
+        Arrays.fill(this.choosers, (byte) 1);
+    }
+
+    public BranchPredictorType getType() {
+        return BranchPredictorType.TOURNAMENT;
+    }
+
+    private int index(short pc) {
+        return Short.toUnsignedInt(pc) % this.choosers.length;
+    }
+
+    public boolean predict(short pc, short target) {
+        return this.choosers[this.index(pc)] >= 2 ? this.gshare.predict(pc, target) : this.bimodal.predict(pc, target);
+    }
+
+    public void update(short pc, boolean isTaken) {
+        boolean isBimodalCorrect = this.bimodal.predict(pc, (short) 0) == isTaken;
+        boolean isGshareCorrect = this.gshare.predict(pc, (short) 0) == isTaken;
+        if (isBimodalCorrect != isGshareCorrect) {
+            int i = this.index(pc);
+            this.choosers[i] = train(this.choosers[i], isGshareCorrect);
+        }
+        this.bimodal.update(pc, isTaken);
+        this.gshare.update(pc, isTaken);
+    }
+}
@@ -0,0 +1,5 @@
+package com.simulator.awesome;
+
+enum BranchPredictorType {
+    NONE, STATIC, BIMODAL, GSHARE, TOURNAMENT
+}
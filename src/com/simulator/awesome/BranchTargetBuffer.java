@@ -0,0 +1,71 @@
+package com.simulator.awesome;
+
+import java.util.Arrays;
+
+/**
+ * A direct mapped cache of the targets of taken transfers of control, indexed by the address of the instruction.
+ * A hit at fetch lets the pipeline fetch from the target on the next cycle.
+ */
+class BranchTargetBuffer {
+    private final Simulator context;
+    private final short[] tags;
+    private final short[] targets;
+    private final boolean[] isConditional;
+
+    // Statistics
+    private long hits;
+    private long misses;
+
+    BranchTargetBuffer(Simulator context, int entries) {
+        this.context = context;
+        this.tags = new short[entries];
+        this.targets = new short[entries];
+        this.isConditional = new boolean[entries];
+        // A tag of -1 marks an empty entry since -1 is never a valid PC
+        Arrays.fill(this.tags, (short) -1);
+    }
+
+    private int index(short pc) {
+        return Short.toUnsignedInt(pc) % this.tags.length;
+    }
+
+    // Returns true if the buffer has an entry for the instruction at this address
+    public boolean lookup(short pc) {
+        boolean isHit = this.tags[this.index(pc)] == pc;
+        if (isHit) {
+            this.hits++;
+        } else {
+            this.misses++;
+        }
+        return isHit;
+    }
+
+    public short getTarget(short pc) {
+        return this.targets[this.index(pc)];
+    }
+
+    public boolean isConditional(short pc) {
+        return this.isConditional[this.index(pc)];
+    }
+
+    public void insert(short pc, short target, boolean isConditional) {
+        int i = this.index(pc);
+        this.tags[i] = pc;
+        this.targets[i] = target;
+        this.isConditional[i] = isConditional;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    public long getMisses() {
+        return this.misses;
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Branch Target Buffer (" + this.tags.length + " entries)");
+        this.context.io.engineerConsolePrintLn("    Hits: " + this.hits);
+        this.context.io.engineerConsolePrintLn("    Misses: " + this.misses);
+    }
+}
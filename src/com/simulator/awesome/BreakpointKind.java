@@ -0,0 +1,8 @@
+package com.simulator.awesome;
+
+// What an address is watched for
+enum BreakpointKind {
+    EXECUTE, // The instruction at the address is about to be fetched
+    READ,    // The address is read through Memory.fetch
+    WRITE    // The address is written through Memory.store
+}
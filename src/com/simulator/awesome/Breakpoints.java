@@ -0,0 +1,174 @@
+package com.simulator.awesome;
+
+import java.util.Arrays;
+
+// Called on the thread running the machine when a breakpoint or watchpoint is hit
+interface BreakpointListener {
+    /**
+     * @param kind what the address was watched for
+     * @param address the address that was hit
+     * @param value the word read or written, or the PC for an execution breakpoint
+     * @return true to pause the execution loop, false to carry on
+     */
+    boolean breakpointHit(BreakpointKind kind, short address, short value);
+}
+
+/**
+ * Execution breakpoints and read and write watchpoints, kept as one bit for each address so the execution loop only
+ * tests a bit for each instruction and memory access.
+ *
+ * A hit pauses the execution loop, as HALT does, and is written to the engineer console. Headless tools set a listener
+ * instead, which decides whether to pause. Execution breakpoints stop before the instruction is fetched, and the
+ * instruction runs once the loop resumes. Watchpoints stop after the step that made the access.
+ *
+ * Breakpoints and watchpoints survive a reset, and can be set from the machine profile:
+ *   debug.breakpoints=200,215
+ *   debug.readWatchpoints=1000-1015
+ *   debug.writeWatchpoints=5,1000-1015
+ */
+public class Breakpoints {
+    private static final int ADDRESSES = ProgramCounter.PC_MASK + 1;
+
+    private final Simulator context;
+
+    // A bit for each address, indexed by the ordinal of the BreakpointKind
+    private final long[][] bits = new long[BreakpointKind.values().length][ADDRESSES / 64];
+    private final long[] executeBits = this.bits[BreakpointKind.EXECUTE.ordinal()];
+    private final long[] readBits = this.bits[BreakpointKind.READ.ordinal()];
+    private final long[] writeBits = this.bits[BreakpointKind.WRITE.ordinal()];
+
+    private BreakpointListener listener;
+
+    // The address an execution breakpoint paused the loop at, so its instruction runs when the loop resumes, or -1
+    private int resumeAddress = -1;
+
+    // Statistics
+    private long hits;
+    private BreakpointKind lastKind;
+    private short lastAddress;
+
+    Breakpoints(Simulator context) {
+        this.context = context;
+        MachineProfile profile = context.profile;
+        this.setAll(BreakpointKind.EXECUTE, profile.breakpoints, "debug.breakpoints");
+        this.setAll(BreakpointKind.READ, profile.readWatchpoints, "debug.readWatchpoints");
+        this.setAll(BreakpointKind.WRITE, profile.writeWatchpoints, "debug.writeWatchpoints");
+    }
+
+    // Sets the addresses and ranges of addresses in a list like 5,1000-1015
+    private void setAll(BreakpointKind kind, String addresses, String key) {
+        if (addresses == null) return;
+        for (String range : addresses.split(",")) {
+            if (range.trim().isEmpty()) continue;
+            String[] bounds = range.split("-", 2);
+            try {
+                int from = Integer.parseInt(bounds[0].trim());
+                int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : from;
+                this.set(kind, (short) from, (short) to, true);
+            } catch (IllegalArgumentException e) {
+                throw new Error(key + " must list addresses or ranges of addresses below " + ADDRESSES + "!");
+            }
+        }
+    }
+
+    /**
+     * Sets or clears a range of addresses
+     * @param kind what the addresses are watched for
+     * @param from the first address
+     * @param to the last address, inclusive
+     * @param isSet true to set, false to clear
+     */
+    public void set(BreakpointKind kind, short from, short to, boolean isSet) {
+        int first = Short.toUnsignedInt(from);
+        int last = Short.toUnsignedInt(to);
+        if (first > last || last >= ADDRESSES) throw new IllegalArgumentException("Cannot watch addresses " + first + " to " + last + "!");
+        long[] bits = this.bits[kind.ordinal()];
+        for (int address = first; address <= last; address++) {
+            if (isSet) {
+                bits[address >>> 6] |= 1L << address;
+            } else {
+                bits[address >>> 6] &= ~(1L << address);
+            }
+        }
+    }
+
+    public void set(BreakpointKind kind, short address, boolean isSet) {
+        this.set(kind, address, address, isSet);
+    }
+
+    public boolean isSet(BreakpointKind kind, short address) {
+        int word = Short.toUnsignedInt(address) & ProgramCounter.PC_MASK;
+        return (this.bits[kind.ordinal()][word >>> 6] & (1L << word)) != 0;
+    }
+
+    public void clear() {
+        for (long[] bits : this.bits) {
+            Arrays.fill(bits, 0);
+        }
+    }
+
+    public void setListener(BreakpointListener listener) {
+        this.listener = listener;
+    }
+
+    // Lets the instruction at an address run once without stopping, as after a pause at its breakpoint
+    void resumeAt(short pc) {
+        this.resumeAddress = Short.toUnsignedInt(pc) & ProgramCounter.PC_MASK;
+    }
+
+    /**
+     * Call before the instruction at the PC is fetched
+     * @return true if the loop was paused before the instruction
+     */
+    public boolean checkExecute(short pc) {
+        int word = Short.toUnsignedInt(pc) & ProgramCounter.PC_MASK;
+        if ((this.executeBits[word >>> 6] & (1L << word)) == 0) return false;
+        if (this.resumeAddress == word) {
+            this.resumeAddress = -1;
+            return false;
+        }
+        boolean isPaused = this.hit(BreakpointKind.EXECUTE, pc, pc);
+        this.resumeAddress = isPaused ? word : -1;
+        return isPaused;
+    }
+
+    // Call after a word is read through Memory.fetch
+    public void checkRead(short address, short value) {
+        int word = Short.toUnsignedInt(address) & ProgramCounter.PC_MASK;
+        if ((this.readBits[word >>> 6] & (1L << word)) != 0) this.hit(BreakpointKind.READ, address, value);
+    }
+
+    // Call after a word is written through Memory.store
+    public void checkWrite(short address, short value) {
+        int word = Short.toUnsignedInt(address) & ProgramCounter.PC_MASK;
+        if ((this.writeBits[word >>> 6] & (1L << word)) != 0) this.hit(BreakpointKind.WRITE, address, value);
+    }
+
+    // Returns true if the loop was paused
+    private boolean hit(BreakpointKind kind, short address, short value) {
+        this.hits++;
+        this.lastKind = kind;
+        this.lastAddress = address;
+        if (kind == BreakpointKind.EXECUTE) {
+            this.context.io.engineerConsolePrintLn("Breakpoint at " + address + "!");
+        } else {
+            this.context.io.engineerConsolePrintLn(kind + " watchpoint at " + address + " (" + value + ") hit by the instruction at " + this.context.cu.getInstructionAddress() + "!");
+        }
+        boolean isPausing = this.listener == null || this.listener.breakpointHit(kind, address, value);
+        if (isPausing) this.context.cu.pauseExecutionLoop();
+        return isPausing;
+    }
+
+    public long getHits() {
+        return this.hits;
+    }
+
+    // What the last hit was watched for, or null if nothing was hit yet
+    public BreakpointKind getLastKind() {
+        return this.lastKind;
+    }
+
+    public short getLastAddress() {
+        return this.lastAddress;
+    }
+}
@@ -0,0 +1,8 @@
+package com.simulator.awesome;
+
+// The requests a core broadcasts on the bus for the other cores to snoop
+enum BusTransaction {
+    BUS_READ,           // A read miss, other cores keep shared copies
+    BUS_READ_EXCLUSIVE, // A write miss, other copies are invalidated
+    BUS_UPGRADE         // A write hit on a shared line, other copies are invalidated
+}
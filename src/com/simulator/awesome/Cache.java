@@ -1,26 +1,130 @@
 package com.simulator.awesome;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.simulator.awesome.Utils.wordToString;
 
+// A set-associative cache of four word lines. Lines within a set are replaced first in, first out.
+// A cache with as many ways as lines is fully associative, a cache with one way is direct mapped.
 public class Cache {
-    private final ArrayList<CacheLine> contents;
-    static final short capacity = 16;
+    private final List<List<CacheLine>> sets;
     private final Simulator context;
 
-    Cache(Simulator context){
+    public final String name;
+    public final int lineCount;
+    public final int ways;
+    public final int hitLatency;
+
+    private final CacheWritePolicy writePolicy;
+    private final CacheWriteMissPolicy writeMissPolicy;
+
+    // Only used by the L1 caches
+    public final Prefetcher prefetcher;
+
+    // Statistics
+    private long readHits;
+    private long readMisses;
+    private long writeHits;
+    private long writeMisses;
+    private long dirtyEvictions;
+    private long accessCycles;
+
+    // Lines that changed since the last dump, collected only while the machine is debugging
+    private final ArrayList<CacheLine> changedLines = new ArrayList<>();
+
+    Cache(Simulator context, String name, CacheConfiguration configuration){
+        if (configuration.lines <= 0 || configuration.ways <= 0 || configuration.lines % configuration.ways != 0) {
+            throw new Error(name + " must have a positive number of lines that is a multiple of its ways!");
+        }
         this.context = context;
-        this.contents = new ArrayList<>();
+        this.name = name;
+        this.lineCount = configuration.lines;
+        this.ways = configuration.ways;
+        this.hitLatency = configuration.hitLatency;
+        this.writePolicy = configuration.writePolicy;
+        this.writeMissPolicy = configuration.writeMissPolicy;
+
+        this.sets = new ArrayList<>();
+        for (int i = 0; i < this.lineCount / this.ways; i++) {
+            this.sets.add(new ArrayList<>());
+        }
+        this.prefetcher = Prefetcher.create(context, this, configuration);
+    }
+
+    public CacheWritePolicy getWritePolicy() {
+        return this.writePolicy;
     }
 
-    public void store(short tag, short[] words) {
+    public CacheWriteMissPolicy getWriteMissPolicy() {
+        return this.writeMissPolicy;
+    }
+
+    private List<CacheLine> getSet(short tag) {
+        return this.sets.get(Short.toUnsignedInt(tag) % this.sets.size());
+    }
+
+    /**
+     * Adds a block to the cache, evicting the oldest line of its set if the set is full
+     * @param tag the tag of the block being added
+     * @param words the four words of the block
+     * @return the evicted line, or null if nothing was evicted. The caller must write it back if it is dirty.
+     */
+    public CacheLine store(short tag, short[] words) {
         if (words.length != 4) throw new Error("A cache line must be four words!");
 
-        if (this.contents.size() == Cache.capacity) this.contents.remove(0);
+        List<CacheLine> set = this.getSet(tag);
+        CacheLine evicted = null;
+        if (set.size() == this.ways) {
+            // Lines invalidated by another core are replaced before valid ones
+            int victim = 0;
+            for (int i = 0; i < set.size(); i++) {
+                if (!set.get(i).isValid()) {
+                    victim = i;
+                    break;
+                }
+            }
+            evicted = set.remove(victim);
+            if (evicted.isDirty()) this.dirtyEvictions++;
+            if (evicted.isPrefetched()) this.prefetcher.useless++;
+            this.markChanged(evicted);
+        }
 
         // Add new cache line
-        this.contents.add(new CacheLine(tag, words));
+        CacheLine cacheLine = new CacheLine(tag, words);
+        set.add(cacheLine);
+        this.markChanged(cacheLine);
+        return evicted;
+    }
+
+    /**
+     * Finds the valid line holding an address without touching the statistics
+     * @param address an address we are trying to find in the cache
+     * @return the line holding the address or null if it is not present
+     */
+    public CacheLine find(short address) {
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+        for (CacheLine cacheLine : this.getSet(tag)) {
+            if (cacheLine.getTag() == tag && cacheLine.isValid()) return cacheLine;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the line holding an address for a read, counting the hit or miss
+     * @param address an address we are trying to read from the cache
+     * @return the line holding the address or null if it is not present
+     */
+    public CacheLine read(short address) {
+        this.accessCycles += this.hitLatency;
+        CacheLine match = this.find(address);
+        if (match == null) {
+            this.readMisses++;
+            if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.CACHE_MISS)) this.context.flightRecorder.cacheMiss(this, address, false);
+        } else {
+            this.readHits++;
+        }
+        return match;
     }
 
     /**
@@ -29,35 +133,147 @@ public class Cache {
      * @return the value from the cache if present and valid or null if not present
      */
     public Short fetch(short address) {
-        short tag = Utils.short_unsigned_right_shift(address, 2);
-        short offset = (short)(address % 4);
-        CacheLine[] matches = this.contents.stream().filter(cacheLine -> {
-            short cacheTag = cacheLine.getTag();
-            boolean cacheIsValid = cacheLine.isValid();
-            return cacheTag == tag && cacheIsValid;
-        }).toArray(CacheLine[]::new);
-        return matches.length >= 1 ?  matches[0].getWord(offset) : null;
+        CacheLine match = this.read(address);
+        return match == null ? null : match.getWord((short)(address % 4));
     }
 
-    public void updateIfPresent(short address, short word){
-        short tag = Utils.short_unsigned_right_shift(address, 2);
-        short offset = (short)(address % 4);
-        CacheLine[] matches = this.contents.stream().filter(cacheLine -> cacheLine.getTag() == tag && cacheLine.isValid()).toArray(CacheLine[]::new);
-        if (matches.length >= 1) matches[0].setWord(offset, word);
+    /**
+     * Writes a word to the cache if the address is present. Under write-back, the line is marked dirty.
+     * @param address the address being stored to
+     * @param word the value being stored
+     * @return the line holding the address or null if it is not present
+     */
+    public CacheLine write(short address, short word){
+        this.accessCycles += this.hitLatency;
+        CacheLine match = this.find(address);
+        if (match == null) {
+            this.writeMisses++;
+            if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.CACHE_MISS)) this.context.flightRecorder.cacheMiss(this, address, true);
+            return null;
+        }
+        this.writeHits++;
+        this.fill(match, address, word);
+        return match;
+    }
+
+    /**
+     * Writes a word to a line that was just allocated for a store miss. The miss has already been counted.
+     */
+    public void fill(CacheLine cacheLine, short address, short word){
+        cacheLine.setWord((short)(address % 4), word);
+        if (this.writePolicy == CacheWritePolicy.WRITE_BACK) cacheLine.setDirty(true);
+        this.markChanged(cacheLine);
+    }
+
+    // Remembers a line for the next dumpChanges. Lines are only collected while the machine is debugging.
+    void markChanged(CacheLine cacheLine){
+        if (cacheLine.isChanged() || !this.context.msr.isDebugging()) return;
+        cacheLine.setChanged(true);
+        this.changedLines.add(cacheLine);
+    }
+
+    private void clearChanges(){
+        for (CacheLine cacheLine : this.changedLines) cacheLine.setChanged(false);
+        this.changedLines.clear();
+    }
+
+    /**
+     * Collects the dirty lines so they can be written back
+     * @return the valid lines that are dirty
+     */
+    public CacheLine[] getDirtyLines(){
+        ArrayList<CacheLine> dirtyLines = new ArrayList<>();
+        for (List<CacheLine> set : this.sets) {
+            for (CacheLine cacheLine : set) {
+                if (cacheLine.isValid() && cacheLine.isDirty()) dirtyLines.add(cacheLine);
+            }
+        }
+        return dirtyLines.toArray(new CacheLine[0]);
+    }
+
+    public long getReadHits() {
+        return this.readHits;
+    }
+
+    public long getReadMisses() {
+        return this.readMisses;
+    }
+
+    public long getWriteHits() {
+        return this.writeHits;
+    }
+
+    public long getWriteMisses() {
+        return this.writeMisses;
+    }
+
+    public long getDirtyEvictions() {
+        return this.dirtyEvictions;
+    }
+
+    public long getAccessCycles() {
+        return this.accessCycles;
+    }
+
+    public double getMissRate() {
+        long accesses = this.readHits + this.readMisses + this.writeHits + this.writeMisses;
+        return accesses == 0 ? 0 : (double)(this.readMisses + this.writeMisses) / accesses;
+    }
+
+    public void dumpStatistics(){
+        this.dumpStatistics(this.context);
+    }
+
+    // Prints to the engineer's console of another machine, such as the boot core of a multiprocessor sharing this cache
+    public void dumpStatistics(Simulator console){
+        console.io.engineerConsolePrintLn(this.name + " (" + this.lineCount + " lines, " + this.ways + "-way, " + this.writePolicy + ", " + this.writeMissPolicy + ")");
+        console.io.engineerConsolePrintLn("    Read Hits: " + this.readHits);
+        console.io.engineerConsolePrintLn("    Read Misses: " + this.readMisses);
+        console.io.engineerConsolePrintLn("    Write Hits: " + this.writeHits);
+        console.io.engineerConsolePrintLn("    Write Misses: " + this.writeMisses);
+        console.io.engineerConsolePrintLn("    Miss Rate: " + String.format("%.4f", this.getMissRate()));
+        console.io.engineerConsolePrintLn("    Dirty Evictions: " + this.dirtyEvictions);
+        console.io.engineerConsolePrintLn("    Access Cycles: " + this.accessCycles);
+        this.prefetcher.dumpStatistics();
     }
 
     public void dump(){
         this.context.io.engineerConsolePrintLn("===============================");
-        this.context.io.engineerConsolePrintLn("Cache");
+        this.context.io.engineerConsolePrintLn(this.name + " (" + this.writePolicy + ", " + this.writeMissPolicy + ")");
+        this.context.io.engineerConsolePrintLn("===============================");
+        boolean isEmpty = true;
+        for (List<CacheLine> set : this.sets) {
+            for (CacheLine cacheLine : set) {
+                isEmpty = false;
+                this.dumpLine(cacheLine);
+            }
+        }
+        if (isEmpty) this.context.io.engineerConsolePrintLn("Cache Empty!");
+        this.clearChanges();
+    }
+
+    // Prints only the lines that changed since the last dump. Evicted lines are listed by their tag.
+    public void dumpChanges(){
+        if (this.changedLines.isEmpty()) return;
         this.context.io.engineerConsolePrintLn("===============================");
-        if (this.contents.size() == 0) this.context.io.engineerConsolePrintLn("Cache Empty!");
-        this.contents.stream().forEach(cacheLine -> {
-            this.context.io.engineerConsolePrintLn("Tag: " + cacheLine.getTag());
-            this.context.io.engineerConsolePrintLn("    Word 0: " + wordToString(cacheLine.getWord((short)0)));
-            this.context.io.engineerConsolePrintLn("    Word 1: " + wordToString(cacheLine.getWord((short)1)));
-            this.context.io.engineerConsolePrintLn("    Word 2: " + wordToString(cacheLine.getWord((short)2)));
-            this.context.io.engineerConsolePrintLn("    Word 3: " + wordToString(cacheLine.getWord((short)3)));
-        });
+        this.context.io.engineerConsolePrintLn(this.name + " Changes");
+        this.context.io.engineerConsolePrintLn("===============================");
+        for (CacheLine cacheLine : this.changedLines) {
+            if (this.getSet(cacheLine.getTag()).contains(cacheLine)) {
+                this.dumpLine(cacheLine);
+            } else {
+                this.context.io.engineerConsolePrintLn("Tag: " + cacheLine.getTag() + " (evicted)");
+            }
+        }
+        this.clearChanges();
+    }
+
+    private void dumpLine(CacheLine cacheLine){
+        this.context.io.engineerConsolePrintLn("Tag: " + cacheLine.getTag() + (cacheLine.isValid() ? "" : " (invalid)") + (cacheLine.isDirty() ? " (dirty)" : "") + (cacheLine.isShared() ? " (shared)" : "") + (cacheLine.isPrefetched() ? " (prefetched)" : ""));
+        this.context.io.engineerConsolePrintLn("    Word 0: " + wordToString(cacheLine.getWord((short)0)));
+        this.context.io.engineerConsolePrintLn("    Word 1: " + wordToString(cacheLine.getWord((short)1)));
+        this.context.io.engineerConsolePrintLn("    Word 2: " + wordToString(cacheLine.getWord((short)2)));
+        this.context.io.engineerConsolePrintLn("    Word 3: " + wordToString(cacheLine.getWord((short)3)));
     }
 
 }
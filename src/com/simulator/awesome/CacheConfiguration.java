@@ -0,0 +1,35 @@
+package com.simulator.awesome;
+
+// The geometry and policies of one level of the cache hierarchy
+class CacheConfiguration {
+    int lines;
+    int ways;
+    int hitLatency;
+    CacheWritePolicy writePolicy;
+    CacheWriteMissPolicy writeMissPolicy;
+    PrefetcherType prefetcher;
+    int prefetchDegree;
+
+    CacheConfiguration(int lines, int ways, int hitLatency, CacheWritePolicy writePolicy, CacheWriteMissPolicy writeMissPolicy) {
+        this.lines = lines;
+        this.ways = ways;
+        this.hitLatency = hitLatency;
+        this.writePolicy = writePolicy;
+        this.writeMissPolicy = writeMissPolicy;
+        this.prefetcher = PrefetcherType.NONE;
+        this.prefetchDegree = Config.PREFETCH_DEGREE;
+    }
+
+    CacheConfiguration copy() {
+        CacheConfiguration copy = new CacheConfiguration(this.lines, this.ways, this.hitLatency, this.writePolicy, this.writeMissPolicy);
+        copy.prefetcher = this.prefetcher;
+        copy.prefetchDegree = this.prefetchDegree;
+        return copy;
+    }
+
+    public String toString() {
+        String description = this.lines + " lines, " + this.ways + "-way, " + this.hitLatency + " cycles, " + this.writePolicy + ", " + this.writeMissPolicy;
+        if (this.prefetcher != PrefetcherType.NONE) description += ", " + this.prefetcher + " prefetcher (degree " + this.prefetchDegree + ")";
+        return description;
+    }
+}
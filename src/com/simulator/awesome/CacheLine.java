@@ -1,11 +1,15 @@
 package com.simulator.awesome;
 
 // Intention is to model a 80-bit sequence of bits
-// Tag (10 bit) | Valid Bit | 5 reserved Bits | word | word | word | word
+// Tag (10 bit) | Valid Bit | Dirty Bit | Prefetched Bit | Shared Bit | Changed Bit | reserved Bit | word | word | word | word
 public class CacheLine {
     short header;
     short[] words;
     static final short validBit = (short) 0b100000;
+    static final short dirtyBit = (short) 0b010000;
+    static final short prefetchedBit = (short) 0b001000;
+    static final short sharedBit = (short) 0b000100;
+    static final short changedBit = (short) 0b000010;
 
     CacheLine(short tag, short[] words){
         if (words.length != 4) throw new Error("A cache line must be four words!");
@@ -27,6 +31,11 @@ public class CacheLine {
         return Utils.short_unsigned_right_shift(this.header, 6);
     }
 
+    // The address of the first word of the block held by this line
+    public short getBaseAddress(){
+        return (short)(this.getTag() << 2);
+    }
+
     public short getWord(short nth){
         if (nth < 0 || nth > 3) throw new Error("Invalid index. Cache Line Expected 0 - 3");
         return this.words[nth];
@@ -44,4 +53,47 @@ public class CacheLine {
     public boolean isValid(){
         return Utils.getNthLeastSignificantBit(this.header, 5 );
     }
+
+    // A dirty line holds words that have not yet been written back to linear memory
+    public boolean isDirty(){
+        return Utils.getNthLeastSignificantBit(this.header, 4);
+    }
+
+    public void setDirty(boolean isDirty){
+        this.header = Utils.setNthLeastSignificantBit(this.header, 4, isDirty);
+    }
+
+    // A prefetched line was brought in by a prefetcher and has not been used by a demand access yet
+    public boolean isPrefetched(){
+        return Utils.getNthLeastSignificantBit(this.header, 3);
+    }
+
+    public void setPrefetched(boolean isPrefetched){
+        this.header = Utils.setNthLeastSignificantBit(this.header, 3, isPrefetched);
+    }
+
+    // A shared line may also be held by the cache of another core
+    public boolean isShared(){
+        return Utils.getNthLeastSignificantBit(this.header, 2);
+    }
+
+    public void setShared(boolean isShared){
+        this.header = Utils.setNthLeastSignificantBit(this.header, 2, isShared);
+    }
+
+    // A changed line was added, written, invalidated or evicted since its cache was last dumped
+    public boolean isChanged(){
+        return Utils.getNthLeastSignificantBit(this.header, 1);
+    }
+
+    public void setChanged(boolean isChanged){
+        this.header = Utils.setNthLeastSignificantBit(this.header, 1, isChanged);
+    }
+
+    // The MESI state of the line. A line that is neither dirty nor shared is the only cached copy of its block.
+    public CoherenceState getCoherenceState(){
+        if (!this.isValid()) return CoherenceState.INVALID;
+        if (this.isDirty()) return CoherenceState.MODIFIED;
+        return this.isShared() ? CoherenceState.SHARED : CoherenceState.EXCLUSIVE;
+    }
 }
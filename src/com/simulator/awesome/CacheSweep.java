@@ -0,0 +1,338 @@
+package com.simulator.awesome;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Which line of a full set a trace-driven cache replaces
+enum ReplacementPolicy {
+    FIFO,  // The oldest line, like Cache
+    LRU,   // The line used longest ago
+    RANDOM // Any line, from a seeded generator so runs repeat
+}
+
+// Where the addresses of a cache sweep come from
+enum AddressPattern {
+    TRACE,      // A trace written by the TraceRecorder
+    SEQUENTIAL, // Every word in turn, wrapping around
+    STRIDE,     // Every stride-th word, wrapping around
+    RANDOM      // Uniformly random words
+}
+
+/**
+ * Replays one address trace against many cache geometries at once and prints their miss rates, so cache designs can
+ * be compared without running the whole simulator once per configuration. The trace is read once into an array that
+ * every configuration shares, and the configurations are spread across the host's cores with fork/join.
+ *
+ * Addresses come from a trace written by the TraceRecorder, or are synthesized. From a trace, each record adds its
+ * instruction fetch, its last read and its last write, filtered by stream. The caches model tags only, so they differ
+ * from Cache in allowing any power of two words per line and other replacement policies.
+ *
+ * Settings are given as key=value arguments, lists separated by commas:
+ *   pattern=TRACE|SEQUENTIAL|STRIDE|RANDOM  trace=trace.bin  stream=DATA|INSTRUCTIONS|ALL
+ *   accesses=100000  words=2048  stride=5  writes=0.25  seed=1
+ *   sizes=64,128,256,512,1024,2048  ways=1,2,4,8,0  lineWords=1,2,4,8,16  replacement=FIFO,LRU,RANDOM
+ *   writePolicy=WRITE_BACK,WRITE_THROUGH  writeMissPolicy=WRITE_ALLOCATE  threads=8  csv=true
+ * Sizes are in words and 0 ways is fully associative. The report has one miss rate curve per geometry, from the
+ * smallest size to the largest, and csv=true prints every result as a CSV table instead.
+ */
+public class CacheSweep {
+    // An access is its address, plus WRITE for stores
+    static final int WRITE = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        Properties settings = new Properties();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) settings.setProperty(pair[0].trim(), pair[1].trim());
+        }
+        int[] accesses = loadAccesses(settings);
+        List<TraceCacheConfiguration> configurations = createConfigurations(settings);
+        int threads = MachineProfile.getInt(settings, "threads", Runtime.getRuntime().availableProcessors());
+        System.out.println("Replaying " + accesses.length + " accesses against " + configurations.size() + " caches on " + threads + " threads");
+
+        long start = System.nanoTime();
+        TraceCacheResult[] results = run(accesses, configurations, threads);
+        System.out.println("Took " + (System.nanoTime() - start) / 1000000 + " ms");
+        if (Boolean.parseBoolean(settings.getProperty("csv", "false"))) {
+            printCsv(results, System.out);
+        } else {
+            printCurves(results, System.out);
+        }
+    }
+
+    // Replays the accesses against every configuration, in the order given
+    public static TraceCacheResult[] run(int[] accesses, List<TraceCacheConfiguration> configurations, int threads) {
+        if (configurations.isEmpty()) {
+            throw new IllegalArgumentException("No cache configuration to sweep: check sizes, ways and lineWords, as a line must divide the size and a set cannot have more ways than the cache has lines.");
+        }
+        TraceCacheResult[] results = new TraceCacheResult[configurations.size()];
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SweepTask(accesses, configurations, results, 0, configurations.size()));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    static int[] loadAccesses(Properties settings) throws IOException {
+        AddressPattern pattern = AddressPattern.valueOf(settings.getProperty("pattern", settings.containsKey("trace") ? "TRACE" : "SEQUENTIAL"));
+        if (pattern == AddressPattern.TRACE) return readTrace(settings);
+
+        int count = MachineProfile.getInt(settings, "accesses", 100000);
+        int words = MachineProfile.getInt(settings, "words", Config.WORD_COUNT);
+        int stride = pattern == AddressPattern.STRIDE ? MachineProfile.getInt(settings, "stride", 5) : 1;
+        double writes = Double.parseDouble(settings.getProperty("writes", "0.25"));
+        Random random = new Random(MachineProfile.getInt(settings, "seed", 1));
+        int[] accesses = new int[count];
+        int address = 0;
+        for (int i = 0; i < count; i++) {
+            if (pattern == AddressPattern.RANDOM) {
+                address = random.nextInt(words);
+            } else {
+                address = i == 0 ? 0 : (address + stride) % words;
+            }
+            accesses[i] = address | (random.nextDouble() < writes ? WRITE : 0);
+        }
+        return accesses;
+    }
+
+    // The accesses of a trace, from its instruction fetches, data accesses or both
+    static int[] readTrace(Properties settings) throws IOException {
+        String stream = settings.getProperty("stream", "DATA");
+        boolean isInstructions = !stream.equals("DATA");
+        boolean isData = !stream.equals("INSTRUCTIONS");
+        try (TraceReader reader = new TraceReader(Paths.get(settings.getProperty("trace", "trace.bin")))) {
+            int[] accesses = new int[(int) Math.min(Integer.MAX_VALUE - 8, 3 * reader.getRecords())];
+            int count = 0;
+            for (TraceRecord record : reader) {
+                if (count + 3 > accesses.length) break;
+                if (isInstructions) accesses[count++] = Short.toUnsignedInt(record.getAddress());
+                if (isData && record.getReads() > 0) accesses[count++] = Short.toUnsignedInt(record.getReadAddress());
+                if (isData && record.getWrites() > 0) accesses[count++] = Short.toUnsignedInt(record.getWriteAddress()) | WRITE;
+            }
+            return Arrays.copyOf(accesses, count);
+        }
+    }
+
+    // Every valid combination of the settings
+    static List<TraceCacheConfiguration> createConfigurations(Properties settings) {
+        int[] sizes = getInts(settings, "sizes", "64,128,256,512,1024,2048");
+        int[] ways = getInts(settings, "ways", "1,2,4,8,0");
+        int[] lineWords = getInts(settings, "lineWords", "1,2,4,8,16");
+        List<TraceCacheConfiguration> configurations = new ArrayList<>();
+        for (String writePolicy : settings.getProperty("writePolicy", "WRITE_BACK,WRITE_THROUGH").split(",")) {
+            for (String writeMissPolicy : settings.getProperty("writeMissPolicy", "WRITE_ALLOCATE").split(",")) {
+                for (String replacement : settings.getProperty("replacement", "FIFO,LRU,RANDOM").split(",")) {
+                    for (int line : lineWords) {
+                        for (int way : ways) {
+                            for (int size : sizes) {
+                                if (Integer.bitCount(line) != 1 || size % line != 0) continue;
+                                int lines = size / line;
+                                int associativity = way == 0 ? lines : way;
+                                if (associativity > lines || lines % associativity != 0) continue;
+                                TraceCacheConfiguration configuration = new TraceCacheConfiguration(lines, associativity, line, ReplacementPolicy.valueOf(replacement.trim()),
+                                        CacheWritePolicy.valueOf(writePolicy.trim()), CacheWriteMissPolicy.valueOf(writeMissPolicy.trim()));
+                                configuration.isFullyAssociative = way == 0;
+                                configurations.add(configuration);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return configurations;
+    }
+
+    private static int[] getInts(Properties settings, String key, String defaultValue) {
+        return Arrays.stream(settings.getProperty(key, defaultValue).split(",")).mapToInt(value -> Integer.parseInt(value.trim())).toArray();
+    }
+
+    static void printCsv(TraceCacheResult[] results, PrintStream output) {
+        output.println("sizeWords,lines,ways,lineWords,replacement,writePolicy,writeMissPolicy,accesses,misses,missRate,writeBacks,wordsWrittenBelow");
+        for (TraceCacheResult result : results) {
+            TraceCacheConfiguration configuration = result.configuration;
+            output.println(configuration.getSizeWords() + "," + configuration.lines + "," + configuration.ways + "," + configuration.lineWords + ","
+                    + configuration.replacement + "," + configuration.writePolicy + "," + configuration.writeMissPolicy + "," + result.accesses + ","
+                    + result.misses + "," + String.format("%.6f", result.getMissRate()) + "," + result.writeBacks + "," + result.wordsWrittenBelow);
+        }
+    }
+
+    // One line per geometry, with its miss rate at each size. Results of one curve are next to each other, smallest first.
+    static void printCurves(TraceCacheResult[] results, PrintStream output) {
+        String curve = null;
+        StringBuilder line = new StringBuilder();
+        for (TraceCacheResult result : results) {
+            TraceCacheConfiguration configuration = result.configuration;
+            String ways = configuration.isFullyAssociative ? "fully associative" : configuration.ways + "-way";
+            String name = configuration.lineWords + " words/line, " + ways + ", " + configuration.replacement + ", " + configuration.writePolicy + ", " + configuration.writeMissPolicy;
+            if (!name.equals(curve)) {
+                if (curve != null) output.println(line);
+                curve = name;
+                line.setLength(0);
+                line.append(name).append(':');
+            }
+            line.append(' ').append(configuration.getSizeWords()).append('=').append(String.format("%.4f", result.getMissRate()));
+        }
+        if (curve != null) output.println(line);
+    }
+}
+
+class SweepTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] accesses;
+    private final List<TraceCacheConfiguration> configurations;
+    private final TraceCacheResult[] results;
+    private final int from;
+    private final int to;
+
+    SweepTask(int[] accesses, List<TraceCacheConfiguration> configurations, TraceCacheResult[] results, int from, int to) {
+        this.accesses = accesses;
+        this.configurations = configurations;
+        this.results = results;
+        this.from = from;
+        this.to = to;
+    }
+
+    protected void compute() {
+        if (this.from >= this.to) return;
+        if (this.to - this.from == 1) {
+            this.results[this.from] = new TraceCache(this.configurations.get(this.from)).replay(this.accesses);
+            return;
+        }
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(new SweepTask(this.accesses, this.configurations, this.results, this.from, middle),
+                new SweepTask(this.accesses, this.configurations, this.results, middle, this.to));
+    }
+}
+
+class TraceCacheConfiguration {
+    final int lines;
+    final int ways;
+    final int lineWords;
+    final ReplacementPolicy replacement;
+    final CacheWritePolicy writePolicy;
+    final CacheWriteMissPolicy writeMissPolicy;
+    // Set for the configurations asked for with 0 ways, which have as many ways as lines whatever their size
+    boolean isFullyAssociative;
+
+    TraceCacheConfiguration(int lines, int ways, int lineWords, ReplacementPolicy replacement, CacheWritePolicy writePolicy, CacheWriteMissPolicy writeMissPolicy) {
+        this.lines = lines;
+        this.ways = ways;
+        this.lineWords = lineWords;
+        this.replacement = replacement;
+        this.writePolicy = writePolicy;
+        this.writeMissPolicy = writeMissPolicy;
+    }
+
+    int getSizeWords() {
+        return this.lines * this.lineWords;
+    }
+}
+
+class TraceCacheResult {
+    final TraceCacheConfiguration configuration;
+    long accesses;
+    long misses;
+    long writeBacks;
+    // Words written to the next level, by write-through stores, stores that do not allocate and dirty evictions
+    long wordsWrittenBelow;
+
+    TraceCacheResult(TraceCacheConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    double getMissRate() {
+        return this.accesses == 0 ? 0 : (double) this.misses / this.accesses;
+    }
+}
+
+/**
+ * The tags of a set-associative cache, kept in flat arrays indexed by set * ways + way. Each line has a stamp: the
+ * access it was filled on for FIFO, or the access it was last used on for LRU.
+ */
+class TraceCache {
+    private final TraceCacheConfiguration configuration;
+    private final int sets;
+    private final int lineShift;
+    private final int[] tags;
+    private final long[] stamps;
+    private final boolean[] dirty;
+    private final Random random = new Random(1);
+
+    TraceCache(TraceCacheConfiguration configuration) {
+        this.configuration = configuration;
+        this.sets = configuration.lines / configuration.ways;
+        this.lineShift = Integer.numberOfTrailingZeros(configuration.lineWords);
+        this.tags = new int[configuration.lines];
+        this.stamps = new long[configuration.lines];
+        this.dirty = new boolean[configuration.lines];
+        Arrays.fill(this.tags, -1);
+    }
+
+    TraceCacheResult replay(int[] accesses) {
+        TraceCacheResult result = new TraceCacheResult(this.configuration);
+        int ways = this.configuration.ways;
+        boolean isWriteBack = this.configuration.writePolicy == CacheWritePolicy.WRITE_BACK;
+        boolean isWriteAllocate = this.configuration.writeMissPolicy == CacheWriteMissPolicy.WRITE_ALLOCATE;
+        boolean isLru = this.configuration.replacement == ReplacementPolicy.LRU;
+        for (int i = 0; i < accesses.length; i++) {
+            boolean isWrite = (accesses[i] & CacheSweep.WRITE) != 0;
+            int tag = (accesses[i] & 0xFFFF) >>> this.lineShift;
+            int base = (tag % this.sets) * ways;
+            int line = -1;
+            for (int way = base; way < base + ways; way++) {
+                if (this.tags[way] == tag) {
+                    line = way;
+                    break;
+                }
+            }
+            if (line < 0) {
+                result.misses++;
+                if (isWrite && !isWriteAllocate) {
+                    result.wordsWrittenBelow++;
+                    continue;
+                }
+                line = this.chooseVictim(base, ways);
+                if (this.tags[line] >= 0 && this.dirty[line]) {
+                    result.writeBacks++;
+                    result.wordsWrittenBelow += this.configuration.lineWords;
+                }
+                this.tags[line] = tag;
+                this.stamps[line] = i;
+                this.dirty[line] = false;
+            } else if (isLru) {
+                this.stamps[line] = i;
+            }
+            if (isWrite) {
+                if (isWriteBack) {
+                    this.dirty[line] = true;
+                } else {
+                    result.wordsWrittenBelow++;
+                }
+            }
+        }
+        result.accesses = accesses.length;
+        return result;
+    }
+
+    // An empty way if there is one, otherwise the line the replacement policy picks
+    private int chooseVictim(int base, int ways) {
+        int victim = base;
+        for (int way = base; way < base + ways; way++) {
+            if (this.tags[way] < 0) return way;
+            if (this.stamps[way] < this.stamps[victim]) victim = way;
+        }
+        if (this.configuration.replacement == ReplacementPolicy.RANDOM) victim = base + this.random.nextInt(ways);
+        return victim;
+    }
+}
@@ -0,0 +1,7 @@
+package com.simulator.awesome;
+
+// What happens when a store misses the cache
+enum CacheWriteMissPolicy {
+    WRITE_ALLOCATE,   // Load the block into the cache and then perform the store on the cache line
+    NO_WRITE_ALLOCATE // Write the word straight to the next level without touching the cache
+}
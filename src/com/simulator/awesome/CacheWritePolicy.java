@@ -0,0 +1,7 @@
+package com.simulator.awesome;
+
+// What happens to the next level when a word held in the cache is written
+enum CacheWritePolicy {
+    WRITE_THROUGH, // Every store is also written to the next level
+    WRITE_BACK     // Stores only mark the line dirty. The next level is updated when the line is evicted
+}
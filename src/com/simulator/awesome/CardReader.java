@@ -0,0 +1,103 @@
+package com.simulator.awesome;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A deck of cards in the card reader (device 2), streamed from a memory-mapped file instead of being queued in the
+ * input buffer a word at a time. Words are decoded at a read cursor as the program asks for them, so a deck of any
+ * size only costs its mapping.
+ *
+ * A deck reads the same as one queued a character at a time: every character on a card is one word, each card ends
+ * with a line feed (10) and the deck ends with a file separator (28). Carriage returns are skipped and each byte of the
+ * file is one character.
+ */
+public class CardReader {
+    static final short RECORD_SEPARATOR = 10;
+    static final short FILE_SEPARATOR = 28;
+
+    // Null when no deck is loaded. The mapping is released by the garbage collector once the deck is ejected.
+    private MappedByteBuffer deck;
+    private String deckName;
+    // Whether the last word read ended a card, so a deck that does not end with a line feed still ends its last card
+    private boolean isAtEndOfCard;
+
+    // Counted when the deck is loaded so CHK does not have to scan the rest of the deck
+    private long remainingWords;
+    private long remainingCards;
+
+    public synchronized void load(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException(file.getName() + " is too large to map as a deck!");
+            this.deck = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.deckName = file.getName();
+        this.isAtEndOfCard = true;
+
+        // One pass to count what the program will read, without keeping any of it
+        long characters = 0;
+        long cards = 0;
+        byte last = '\n';
+        for (int i = 0; i < this.deck.limit(); i++) {
+            byte b = this.deck.get(i);
+            if (b == '\r') continue;
+            if (b == '\n') cards++;
+            characters++;
+            last = b;
+        }
+        if (last != '\n') {
+            // The last card is ended for the program
+            characters++;
+            cards++;
+        }
+        this.remainingWords = characters + 1;
+        this.remainingCards = cards;
+    }
+
+    public synchronized void eject() {
+        this.deck = null;
+        this.deckName = null;
+        this.remainingWords = 0;
+        this.remainingCards = 0;
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.remainingWords == 0;
+    }
+
+    // Reads the word at the cursor and moves past it. The deck is ejected after its file separator is read.
+    public synchronized short next() {
+        if (this.remainingWords == 0) throw new IllegalStateException("The card reader is empty!");
+        this.remainingWords--;
+        while (this.deck.hasRemaining()) {
+            byte b = this.deck.get();
+            if (b == '\r') continue;
+            this.isAtEndOfCard = b == '\n';
+            if (this.isAtEndOfCard) this.remainingCards--;
+            return this.isAtEndOfCard ? RECORD_SEPARATOR : (short) (b & 0xFF);
+        }
+        if (!this.isAtEndOfCard) {
+            this.isAtEndOfCard = true;
+            this.remainingCards--;
+            return RECORD_SEPARATOR;
+        }
+        this.eject();
+        return FILE_SEPARATOR;
+    }
+
+    public synchronized long getRemainingWords() {
+        return this.remainingWords;
+    }
+
+    public synchronized long getRemainingCards() {
+        return this.remainingCards;
+    }
+
+    public synchronized String getDeckName() {
+        return this.deckName;
+    }
+}
@@ -0,0 +1,133 @@
+package com.simulator.awesome;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One end of a point-to-point link between two Simulators in the same JVM, like a serial line or network adapter.
+ * Each direction of a link is a bounded ring with one producer and one consumer, so the two ends can run on separate
+ * host threads without locks.
+ *
+ * Programs use the channels as devices 10 and 11:
+ *   OUT r,n sends c(r). The word is dropped if the ring is full.
+ *   CHK r,n reads the number of words ready to be received
+ *   IN r,n  receives the next ready word, or 0 if none is ready
+ *
+ * A word sent when the sender's timing model reads t cycles is ready once the receiver's timing model reaches
+ * t + channel.latency. Words leave one at a time, at most one every channel.cyclesPerWord cycles, so bursts are
+ * limited by the bandwidth of the link. An end that is not connected drops what is sent and never receives anything.
+ */
+public class ChannelDevice {
+    private final Simulator context;
+
+    // Null until connected
+    private WordRing outgoing;
+    private WordRing incoming;
+
+    // The cycle the last word left this end
+    private long lastSentAt = Long.MIN_VALUE;
+
+    // Statistics
+    private long sent;
+    private long received;
+    private long dropped;
+
+    ChannelDevice(Simulator context) {
+        this.context = context;
+    }
+
+    // Links two ends, each direction with the capacity in the first end's machine profile
+    public static void connect(ChannelDevice a, ChannelDevice b) {
+        int capacity = a.context.profile.channelCapacity;
+        a.outgoing = b.incoming = new WordRing(capacity);
+        b.outgoing = a.incoming = new WordRing(capacity);
+    }
+
+    public boolean isConnected() {
+        return this.outgoing != null;
+    }
+
+    public void send(short word) {
+        long now = this.context.timing.getCycles();
+        long sentAt = Math.max(now, this.lastSentAt + this.context.profile.channelCyclesPerWord);
+        if (this.outgoing == null || !this.outgoing.offer(word, sentAt + this.context.profile.channelLatency)) {
+            this.dropped++;
+            return;
+        }
+        this.lastSentAt = sentAt;
+        this.sent++;
+    }
+
+    public short receive() {
+        if (this.incoming == null || !this.incoming.isReady(this.context.timing.getCycles())) return 0;
+        this.received++;
+        return this.incoming.poll();
+    }
+
+    public short getReadyWords() {
+        if (this.incoming == null) return 0;
+        return (short) this.incoming.countReady(this.context.timing.getCycles());
+    }
+
+    public long getSent() {
+        return this.sent;
+    }
+
+    public long getReceived() {
+        return this.received;
+    }
+
+    public long getDropped() {
+        return this.dropped;
+    }
+}
+
+/**
+ * A bounded ring of words for one producer thread and one consumer thread. Each index is only written by one side and
+ * published with an ordered store after the slot it covers.
+ */
+class WordRing {
+    private final short[] words;
+    // The cycle each word is ready on the consumer's clock. These never decrease along the ring.
+    private final long[] readyAt;
+    // The next slot to read, written by the consumer
+    private final AtomicLong head = new AtomicLong();
+    // The next slot to write, written by the producer
+    private final AtomicLong tail = new AtomicLong();
+
+    WordRing(int capacity) {
+        this.words = new short[capacity];
+        this.readyAt = new long[capacity];
+    }
+
+    // Returns false if the ring is full
+    boolean offer(short word, long readyAt) {
+        long tail = this.tail.get();
+        if (tail - this.head.get() == this.words.length) return false;
+        int slot = (int) (tail % this.words.length);
+        this.words[slot] = word;
+        this.readyAt[slot] = readyAt;
+        this.tail.lazySet(tail + 1);
+        return true;
+    }
+
+    boolean isReady(long now) {
+        long head = this.head.get();
+        return head < this.tail.get() && this.readyAt[(int) (head % this.words.length)] <= now;
+    }
+
+    int countReady(long now) {
+        long head = this.head.get();
+        long tail = this.tail.get();
+        int ready = 0;
+        while (head + ready < tail && this.readyAt[(int) ((head + ready) % this.words.length)] <= now) ready++;
+        return ready;
+    }
+
+    // Only call after isReady
+    short poll() {
+        long head = this.head.get();
+        short word = this.words[(int) (head % this.words.length)];
+        this.head.lazySet(head + 1);
+        return word;
+    }
+}
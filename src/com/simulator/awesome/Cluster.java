@@ -0,0 +1,144 @@
+package com.simulator.awesome;
+
+/**
+ * A small cluster of separate machines in one JVM for running distributed programs. Each node is a Simulator with its
+ * own memory, linked in a ring by channel devices: device 10 of node n is connected to device 11 of node n + 1, and the
+ * last node wraps around to the first. A node reads its number with IN r,4 and the number of nodes with CHK r,4.
+ *
+ * Load the ROM and a program into every node, then run the cluster. In lockstep mode, set by cluster.lockstep in the
+ * machine profile, the nodes take turns one step at a time on one thread, so every run of a cluster is the same.
+ * Otherwise each node runs on its own host thread.
+ *
+ * Nodes are attached to a console, so HLT stops the node that ran it instead of the whole simulator. Each node has
+ * memory.words words of memory and writes to its own files, path.noden for node n.
+ */
+public class Cluster {
+    public final Simulator[] nodes;
+    private final boolean isLockstep;
+
+    Cluster(MachineProfile profile) {
+        this(profile, null);
+    }
+
+    // The run name is given before the nodes open their files, as Simulator.getOwnPath names them after it
+    Cluster(MachineProfile profile, String runName) {
+        // A node is a single core
+        if (profile.coreCount > 1) throw new Error("cluster.nodes and cores.count cannot both be more than one!");
+        this.isLockstep = profile.isLockstep;
+        this.nodes = new Simulator[profile.nodeCount];
+        for (int i = 0; i < this.nodes.length; i++) {
+            Simulator node = new Simulator(profile.wordCount, profile.copy());
+            node.nodeId = (short) i;
+            node.nodeCount = (short) this.nodes.length;
+            node.runName = runName;
+            node.attachConsole();
+            node.io.initializeIOBuffers();
+            this.nodes[i] = node;
+        }
+        // A single node is not linked to itself
+        if (this.nodes.length < 2) return;
+        for (int i = 0; i < this.nodes.length; i++) {
+            Simulator next = this.nodes[(i + 1) % this.nodes.length];
+            ChannelDevice.connect(this.nodes[i].io.getChannel(Config.CHANNEL_DEVICE), next.io.getChannel((short)(Config.CHANNEL_DEVICE + 1)));
+        }
+    }
+
+    public Simulator getNode(int node) {
+        return this.nodes[node];
+    }
+
+    // Resets every node, which reopens its files
+    public void reset() {
+        for (Simulator node : this.nodes) {
+            node.reset();
+        }
+    }
+
+    // Boots every node from ROM and loads the same user program into each
+    public void load(String[] assembledMachineCode, short programAddress) {
+        for (Simulator node : this.nodes) {
+            node.rom.load();
+            node.loadUserProgram(assembledMachineCode, programAddress);
+        }
+    }
+
+    // Runs every node from where it is until each halts or waits for input
+    public void run() {
+        if (this.isLockstep) {
+            this.runLockstep();
+        } else {
+            this.runThreaded();
+        }
+    }
+
+    private void runThreaded() {
+        Thread[] threads = new Thread[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; i++) {
+            threads[i] = new Thread(this.nodes[i].cu::startExecutionLoop, "Node " + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runLockstep() {
+        this.start();
+        boolean isAnyRunning = true;
+        while (isAnyRunning) {
+            isAnyRunning = this.step();
+        }
+        for (Simulator node : this.nodes) {
+            node.flushRecordings();
+        }
+    }
+
+    // Sets every node running from where it is, for callers that step the nodes themselves
+    public void start() {
+        for (Simulator node : this.nodes) {
+            node.msr.setIsRunning(true);
+        }
+    }
+
+    /**
+     * Steps every running node once, in turn
+     * @return false if no node was running
+     */
+    public boolean step() {
+        boolean isAnyRunning = false;
+        for (Simulator node : this.nodes) {
+            if (!node.msr.isRunning()) continue;
+            node.cu.singleStep();
+            isAnyRunning = true;
+        }
+        return isAnyRunning;
+    }
+
+    // The nodes run in parallel, so the program takes as long as the slowest node
+    public long getCycles() {
+        long cycles = 0;
+        for (Simulator node : this.nodes) {
+            cycles = Math.max(cycles, node.timing.getCycles());
+        }
+        return cycles;
+    }
+
+    public void dumpStatistics() {
+        Simulator first = this.getNode(0);
+        first.io.engineerConsolePrintLn("Cluster (" + this.nodes.length + " nodes, " + (this.isLockstep ? "lockstep" : "threaded") + ")");
+        for (Simulator node : this.nodes) {
+            first.io.engineerConsolePrintLn("    Node " + node.nodeId + ": " + node.timing.getRetiredInstructions() + " instructions, " + node.timing.getCycles() + " cycles");
+            for (short device = Config.CHANNEL_DEVICE; device < Config.CHANNEL_DEVICE + Config.CHANNEL_DEVICE_COUNT; device++) {
+                ChannelDevice channel = node.io.getChannel(device);
+                if (!channel.isConnected()) continue;
+                first.io.engineerConsolePrintLn("        Device " + device + ": " + channel.getSent() + " sent, " + channel.getReceived() + " received, " + channel.getDropped() + " dropped");
+            }
+        }
+        first.io.engineerConsolePrintLn("    Cycles: " + this.getCycles());
+    }
+}
@@ -0,0 +1,91 @@
+package com.simulator.awesome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A snooping bus that keeps the private L1 caches of a Multiprocessor coherent with the MESI protocol.
+ * Every core attached to the bus shares its linear memory and L2 cache. Before a core reads a block into one of its
+ * L1 caches, or writes a block another core may hold, it broadcasts a transaction that every other core snoops.
+ * A modified copy is written back to the shared level below, then the other copies become shared on a read or are
+ * invalidated on a write.
+ *
+ * The bus is also the lock every memory access takes, so cores running on separate threads see one order of loads
+ * and stores.
+ *
+ * A Multiprocessor builds the bus with a linear memory and L2 cache of its own, which belong to no one core. Their
+ * context is a Simulator that is not a core, so an L2 miss or debugging dump is not put down to the first core.
+ */
+public class CoherenceBus {
+    // The level below the L1 caches, shared by every core
+    final Short[] memory;
+    Cache l2Cache;
+
+    // The context of the shared L2 cache
+    private final Simulator context;
+
+    private final ArrayList<Memory> memories = new ArrayList<>();
+
+    // Statistics
+    private final long[] transactions = new long[BusTransaction.values().length];
+    long invalidations;
+    long interventions;
+
+    // A bus with its own zeroed linear memory and L2 cache, sized from the context's profile
+    CoherenceBus(Simulator context) {
+        this.context = context;
+        this.memory = new Short[context.profile.wordCount];
+        this.reset();
+    }
+
+    // Zeroes the shared memory and empties the shared L2 cache. Reset the cores afterwards, so they pick up the new L2.
+    void reset() {
+        Arrays.fill(this.memory, (short) 0);
+        MachineProfile profile = this.context.profile;
+        this.l2Cache = profile.hasL2Cache() ? new Cache(this.context, "L2", profile.l2Cache) : null;
+    }
+
+    void attach(Memory memory) {
+        this.memories.add(memory);
+    }
+
+    /**
+     * Lets every other core snoop a transaction
+     * @param requester the memory subsystem of the core making the request
+     * @param transaction the request
+     * @param address an address in the block being requested
+     * @return true if another core still holds a copy of the block afterwards
+     */
+    public boolean broadcast(Memory requester, BusTransaction transaction, short address) {
+        this.transactions[transaction.ordinal()]++;
+        boolean isShared = false;
+        for (Memory memory : this.memories) {
+            if (memory != requester && memory.snoop(transaction, address)) isShared = true;
+        }
+        return isShared;
+    }
+
+    public long getTransactions(BusTransaction transaction) {
+        return this.transactions[transaction.ordinal()];
+    }
+
+    // Copies invalidated in another core's L1 Data Cache
+    public long getInvalidations() {
+        return this.invalidations;
+    }
+
+    // Modified copies written back by another core so the requester could read them
+    public long getInterventions() {
+        return this.interventions;
+    }
+
+    public void dumpStatistics(Simulator context) {
+        context.io.engineerConsolePrintLn("Coherence Bus (" + this.memories.size() + " cores)");
+        for (BusTransaction transaction : BusTransaction.values()) {
+            context.io.engineerConsolePrintLn("    " + transaction + ": " + this.transactions[transaction.ordinal()]);
+        }
+        context.io.engineerConsolePrintLn("    Invalidations: " + this.invalidations);
+        context.io.engineerConsolePrintLn("    Interventions: " + this.interventions);
+        if (this.l2Cache != null) this.l2Cache.dumpStatistics(context);
+    }
+}
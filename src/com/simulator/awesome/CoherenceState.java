@@ -0,0 +1,9 @@
+package com.simulator.awesome;
+
+// The states of a line in an L1 cache under the MESI protocol
+enum CoherenceState {
+    INVALID,   // The line holds no usable copy of its block
+    SHARED,    // Other cores may also hold clean copies of the block
+    EXCLUSIVE, // The only cached copy of the block, and it matches the level below
+    MODIFIED   // The only cached copy of the block, and it is newer than the level below
+}
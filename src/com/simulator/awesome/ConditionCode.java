@@ -25,6 +25,9 @@ public class ConditionCode {
 
     public short get() { return this.cc; }
 
+    // Restores all the bits at once, as the UndoJournal does
+    public void set(short cc) { this.cc = cc; }
+
     public void reset() {
         this.cc = 0;
     }
@@ -4,10 +4,83 @@ public class Config {
     public static final short WORD_COUNT = 2048;
     public static final short INPUT_IO_BUFFER_SIZE = 1024;
     public static final short OUTPUT_IO_BUFFER_SIZE = 1024;
+    public static final short CORE_ID_DEVICE = 4;
+    public static final short TIMER_DEVICE = 5;
+    public static final short INTERRUPT_CONTROLLER_DEVICE = 6;
+    public static final short DMA_DEVICE = 7;
+    public static final short BLOCK_DEVICE = 8;
+    public static final short BLOCK_CONTROL_DEVICE = 9;
+    public static final short SECTOR_WORDS = 32;
+    public static final short CHANNEL_DEVICE = 10;
+    public static final short CHANNEL_DEVICE_COUNT = 2;
+    public static final short INTERRUPT_VECTOR_BASE = 8;
     public static short MIN_VALUE = 0;
     public static final int MAX_VALUE = 65535; //can't use a short here because Java doesn't allow unsigned shorts
     public static final short FP_MANTISSA_MAX_VALUE = 255;
     public static final short FP_MANTISSA_MIN_VALUE = 0;
     public static final short FP_EXPONENT_MAX_VALUE = 64;
     public static final short FP_EXPONENT_MIN_VALUE = -63;
+    public static final CacheWritePolicy CACHE_WRITE_POLICY = CacheWritePolicy.WRITE_THROUGH;
+    public static final CacheWriteMissPolicy CACHE_WRITE_MISS_POLICY = CacheWriteMissPolicy.NO_WRITE_ALLOCATE;
+    public static final short L1_CACHE_LINES = 16;
+    public static final short L1_CACHE_WAYS = 16;
+    public static final short L1_CACHE_LATENCY = 1;
+    public static final short L2_CACHE_LINES = 64;
+    public static final short L2_CACHE_WAYS = 4;
+    public static final short L2_CACHE_LATENCY = 4;
+    public static final short MEMORY_LATENCY = 20;
+    public static final short PREFETCH_DEGREE = 1;
+    public static final short PREFETCH_TABLE_SIZE = 4;
+    public static final short REGISTER_MEMORY_LATENCY = 1;
+    public static final short REGISTER_REGISTER_LATENCY = 2;
+    public static final short SHIFT_ROTATE_LATENCY = 1;
+    public static final short FLOATING_POINT_LATENCY = 4;
+    public static final short VECTOR_LATENCY = 8;
+    public static final short INPUT_OUTPUT_LATENCY = 10;
+    public static final short TRAP_LATENCY = 4;
+    public static final short MISCELLANEOUS_LATENCY = 1;
+    public static final short FAULT_PENALTY = 20;
+    public static final short CLOCK_MEGAHERTZ = 10;
+    public static final ExecutionMode EXECUTION_MODE = ExecutionMode.SEQUENTIAL;
+    public static final boolean PIPELINE_FORWARDING = true;
+    public static final short REORDER_BUFFER_SIZE = 16;
+    public static final short ALU_STATIONS = 4;
+    public static final short FPU_STATIONS = 2;
+    public static final short MEMORY_STATIONS = 4;
+    public static final BranchPredictorType BRANCH_PREDICTOR = BranchPredictorType.NONE;
+    public static final short BRANCH_TABLE_SIZE = 64;
+    public static final short BRANCH_TARGET_BUFFER_ENTRIES = 16;
+    public static final short CORE_COUNT = 1;
+    public static final boolean CORES_THREADED = true;
+    public static final TimerMode TIMER_MODE = TimerMode.INSTRUCTIONS;
+    public static final short DMA_CYCLES_PER_WORD = 1;
+    public static final String DISK_IMAGE = null;
+    public static final short DEVICE_COUNT = 32;
+    public static final int OUTPUT_SINK_BUFFER_SIZE = 8192;
+    public static final int OUTPUT_SINK_FLUSH_MILLIS = 1000;
+    public static final short NODE_COUNT = 1;
+    public static final boolean CLUSTER_LOCKSTEP = true;
+    public static final short CHANNEL_CAPACITY = 64;
+    public static final short CHANNEL_LATENCY = 0;
+    public static final short CHANNEL_CYCLES_PER_WORD = 0;
+    public static final boolean INPUT_BLOCKING = false;
+    public static final boolean PROFILING = false;
+    public static final short PROFILER_HOT_ADDRESSES = 10;
+    public static final int SAMPLE_INTERVAL = 0;
+    public static final String SAMPLE_OUTPUT = "stacks.txt";
+    public static final String TRACE_FILE = null;
+    public static final int TRACE_FROM = 0;
+    public static final int TRACE_TO = 0xFFFF;
+    public static final int TRACE_WINDOW_RECORDS = 16384;
+    public static final boolean ENGINEER_CONSOLE = true;
+    public static final String BREAKPOINTS = null;
+    public static final String READ_WATCHPOINTS = null;
+    public static final String WRITE_WATCHPOINTS = null;
+    public static final int JOURNAL_INSTRUCTIONS = 0;
+    public static final int JOURNAL_CHECKPOINT_INTERVAL = 100000;
+    public static final int JOURNAL_CHECKPOINTS = 8;
+    public static final String INPUT_RECORD_FILE = null;
+    public static final String INPUT_REPLAY_FILE = null;
+    public static final int JFR_BATCH_INSTRUCTIONS = 10000;
+    public static final int JFR_CACHE_MISS_INTERVAL = 100;
 }
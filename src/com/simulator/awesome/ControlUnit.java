@@ -8,6 +8,9 @@ public class ControlUnit {
     private short ir;
     private Instruction currentInstruction;
 
+    // The address the instruction in the IR was fetched from
+    private short instructionAddress;
+
     /** The execution step, 1-5
      * 1. Instruction Fetch
      * 2. Instruction Decode
@@ -17,6 +20,17 @@ public class ControlUnit {
      **/
     private int executionStep;
 
+    // Demand memory cycles when the current step started, for the timing model
+    private long stepStartCycles;
+
+    // Set while startExecutionLoop runs, read by threads that stop the machine
+    private volatile boolean isLooping;
+
+    // Whether the last instruction retired while debugging, so its dump can be compared against
+    private boolean wasDebugging;
+
+    private boolean isStepping;
+
     ControlUnit(Simulator context) {
         this.context = context;
         this.ir = 0;
@@ -37,7 +51,12 @@ public class ControlUnit {
         return this.ir;
     }
 
-    public void handleFault(){
+    public short getInstructionAddress() {
+        return this.instructionAddress;
+    }
+
+    // Enters supervisor mode and saves the PC and R0 for a fault or interrupt handler. RFS returns from the handler.
+    private void enterHandler(){
         // Set inFault flag on MSR
         this.context.msr.setIsExecutingFaultHandler(true);
         // If in supervisor mode, set faultInSupervisor flag. Else, Supervisor Mode
@@ -56,6 +75,13 @@ public class ControlUnit {
         } catch (IllegalMemoryAddressBeyondLimitException e) {
             e.printStackTrace();
         }
+    }
+
+    public void handleFault(){
+        int faultedStep = this.executionStep;
+        if (this.context.tracer.isRecording()) this.context.tracer.record(this.instructionAddress, this.ir);
+        if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.FAULT)) this.context.flightRecorder.fault();
+        this.enterHandler();
 
         // Copy The Fault ID to R0
         if (this.context.mfr.isIllegalMemoryAccessToReservedLocations()){
@@ -81,6 +107,40 @@ public class ControlUnit {
 
         // Set Execution Step to 1
         this.executionStep = 1;
+        this.context.timing.recordFault(faultedStep, this.context.memory.getDemandAccessCycles() - this.stepStartCycles);
+        if (this.context.journal.isEnabled()) this.context.journal.instructionRetired();
+    }
+
+    // Takes an interrupt between instructions, unless a fault or interrupt handler is already running
+    private void pollInterrupts(){
+        if (this.context.msr.isExecutingFaultHandler()) return;
+        int line = this.context.interrupts.take();
+        if (line < 0) return;
+        long startCycles = this.context.memory.getDemandAccessCycles();
+
+        // Get the handler from the interrupt vectors
+        short handlerAddress = 0;
+        boolean isSupervisor = this.context.msr.isSupervisorMode();
+        this.context.msr.setSupervisorMode(true);
+        try {
+            handlerAddress = this.context.memory.fetch((short)(Config.INTERRUPT_VECTOR_BASE + line));
+        } catch (IllegalMemoryAccessToReservedLocationsException | IllegalMemoryAddressBeyondLimitException e) {
+            e.printStackTrace();
+        }
+        this.context.msr.setSupervisorMode(isSupervisor);
+        if (handlerAddress == 0) {
+            this.context.io.engineerConsolePrintLn("Interrupt " + line + " has no handler! Dropping");
+            this.context.interrupts.drop();
+            return;
+        }
+
+        this.context.io.engineerConsolePrintLn("Interrupt " + line + "! Jumping to " + handlerAddress);
+        this.enterHandler();
+        this.context.msr.setIsExecutingInterruptHandler(true);
+        // Copy the line to R0
+        this.context.setGeneralRegister((short)0, (short) line);
+        this.context.pc.set(handlerAddress);
+        this.context.timing.recordInterrupt(this.context.memory.getDemandAccessCycles() - startCycles);
     }
 
     public void setInstructionRegister(short instructionRegister) {
@@ -95,11 +155,45 @@ public class ControlUnit {
      * 5. Result Store
      **/
 
+    int getExecutionStep(){
+        return this.executionStep;
+    }
+
+    // Starts the current instruction again from its first step, after the UndoJournal put the machine back
+    void restartInstruction(){
+        this.executionStep = 1;
+    }
+
     public void singleStep(){
+        this.isStepping = true;
+        try {
+            this.step();
+        } finally {
+            this.isStepping = false;
+        }
+    }
+
+    // True while singleStep runs, so memory can tell the machine's own stores from stores made between steps
+    public boolean isStepping(){
+        return this.isStepping;
+    }
+
+    private void step(){
+        // Recorded input is delivered between steps on this thread, so a replay can deliver it at the same points
+        if (this.context.inputRecorder.isRecording()) this.context.inputRecorder.deliver();
+        if (this.context.inputReplayer.isReplaying()) this.context.inputReplayer.deliver();
+        if (this.executionStep == 1) {
+            if (this.context.journal.isEnabled()) this.context.journal.instructionStarted();
+            this.pollInterrupts();
+            if (this.context.breakpoints.checkExecute(this.context.pc.get())) return;
+        }
+        int step = this.executionStep;
+        this.stepStartCycles = this.context.memory.getDemandAccessCycles();
         try {
             switch (this.executionStep) {
                 // Instruction Fetch
                 case 1:
+                    if (this.context.tracer.isRecording()) this.context.tracer.instructionStarted();
                     this.executionInstructionFetch();
                     break;
                 // Instruction Decode
@@ -124,14 +218,30 @@ public class ControlUnit {
                     this.currentInstruction.storeResult();
                     break;
             }
-            if (this.executionStep == 5) {
-                // Commenting out because this causing the program to hang
-                if (this.context.msr.isDebugging()) {
+            this.context.timing.recordStep(step, this.currentInstruction, this.context.memory.getDemandAccessCycles() - this.stepStartCycles);
+            // The instruction is only decoded after the first step
+            if (step > 1 && step == this.currentInstruction.getRetirementStep()) {
+                this.context.timing.recordRetired(this.currentInstruction);
+                this.context.interrupts.instructionRetired();
+                this.context.dma.instructionRetired();
+                if (this.context.profiler.isEnabled()) this.context.profiler.recordRetired(this.currentInstruction, this.instructionAddress);
+                this.context.sampler.instructionRetired();
+                if (this.context.tracer.isRecording()) this.context.tracer.record(this.instructionAddress, this.ir);
+                if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.INSTRUCTION_BATCH)) this.context.flightRecorder.instructionRetired();
+
+                // The first dump after debugging is turned on shows everything, the later ones only what changed
+                if (this.context.msr.isDebugging() && this.wasDebugging) {
+                    this.context.dumpChangedRegistersToJavaConsole();
+                    this.context.memory.dumpChanges();
+                } else if (this.context.msr.isDebugging()) {
                     this.context.dumpRegistersToJavaConsole();
                     this.context.memory.dump();
                 }
+                this.wasDebugging = this.context.msr.isDebugging();
+                if (this.context.journal.isEnabled()) this.context.journal.instructionRetired();
 
                 this.executionStep = 1;
+                this.currentInstruction.retired();
             } else {
                 this.executionStep++;
             }
@@ -167,7 +277,8 @@ public class ControlUnit {
         // MAR <- PC
         // MBR <- c[MAR]
         // IR <- MBR
-        this.ir = this.context.memory.fetch(this.context.pc.get());
+        this.instructionAddress = this.context.pc.get();
+        this.ir = this.context.memory.fetchInstruction(this.context.pc.get());
 
         // PC++
         this.context.pc.increment();
@@ -296,12 +407,28 @@ public class ControlUnit {
 
     public void startExecutionLoop(){
         this.context.msr.setIsRunning(true);
-        while(this.context.msr.isRunning()){
-            singleStep();
+        this.isLooping = true;
+        try {
+            while(this.context.msr.isRunning()){
+                singleStep();
+            }
+        } finally {
+            this.isLooping = false;
+            // The host time of a batch should not include the time the loop spends paused
+            this.context.flightRecorder.endBatch();
+            // A trace or input recording read while the machine is paused has everything up to the pause
+            this.context.flushRecordings();
         }
     }
 
     public void pauseExecutionLoop(){
         this.context.msr.setIsRunning(false);
+        // A thread parked in IN has to see that the machine stopped
+        this.context.io.wakeInputWaiter();
+    }
+
+    // True while a thread is inside startExecutionLoop, rather than another loop stepping this machine in turn
+    public boolean isLooping(){
+        return this.isLooping;
     }
 }
@@ -0,0 +1,70 @@
+package com.simulator.awesome;
+
+/**
+ * A timing model of how a core overlaps the instructions it runs.
+ * The control unit always executes instructions one step at a time, so a core model never changes architectural
+ * results. As each instruction retires, the timing model issues it to the core model in program order along with the
+ * cycles each of its steps spent in the memory hierarchy. This base class never overlaps instructions.
+ */
+public class CoreModel {
+    protected final Simulator context;
+
+    // Statistics
+    protected long instructions;
+    protected long cycles;
+
+    CoreModel(Simulator context) {
+        this.context = context;
+    }
+
+    // Sequential execution is counted by the timing model itself, so it has no core model
+    public static CoreModel create(Simulator context) {
+        switch (context.profile.executionMode) {
+            case PIPELINED:
+                return new Pipeline(context, context.profile.isForwarding);
+            case OUT_OF_ORDER:
+                return new OutOfOrderCore(context);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Issues a retired instruction to the core
+     * @param instruction the instruction that retired
+     * @param memoryCycles the demand cycles each step spent in the memory hierarchy
+     * @param latency the execute latency of the instruction's class
+     * @param flushStep the step, 1-5, that found fetch went down the wrong path, or 0 if fetch predicted the next PC
+     */
+    public void issue(Instruction instruction, long[] memoryCycles, int latency, int flushStep) {
+        // NOOP
+    }
+
+    /**
+     * Flushes the core before the fault handler is fetched
+     * @param cycles the cycles spent by the faulting instruction and entering the fault handler
+     */
+    public void fault(long cycles) {
+        // NOOP
+    }
+
+    public long getCycles() {
+        return this.cycles;
+    }
+
+    public long getInstructions() {
+        return this.instructions;
+    }
+
+    public double getCPI() {
+        return this.instructions == 0 ? 0 : (double) this.cycles / this.instructions;
+    }
+
+    public double getIPC() {
+        return this.cycles == 0 ? 0 : (double) this.instructions / this.cycles;
+    }
+
+    public void dumpStatistics() {
+        // NOOP
+    }
+}
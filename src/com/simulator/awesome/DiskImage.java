@@ -0,0 +1,86 @@
+package com.simulator.awesome;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Builds and inspects disk images for the BlockDevice.
+ *
+ *   create image sectors         makes an image of zeroed sectors
+ *   text image sector file       writes the characters of a text file from a sector on, one card per line like a deck
+ *   program image sector file    assembles a program and writes its machine code from a sector on
+ *   dump image sector            prints the words of a sector
+ */
+public class DiskImage {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: DiskImage create|text|program|dump image sector(s) [file]");
+            return;
+        }
+        File image = new File(args[1]);
+        int sector = Integer.parseInt(args[2]);
+        switch (args[0]) {
+            case "create":
+                create(image, sector);
+                break;
+            case "text":
+                write(image, sector, readText(args[3]));
+                break;
+            case "program":
+                Assembler assembler = new Assembler();
+                assembler.loadFile(args[3]);
+                String[] machineCode = assembler.convertToMachineCode();
+                short[] words = new short[machineCode.length];
+                for (int i = 0; i < machineCode.length; i++) words[i] = (short) Integer.parseInt(machineCode[i], 2);
+                write(image, sector, words);
+                break;
+            case "dump":
+                dump(image, sector);
+                break;
+            default:
+                System.out.println("Unknown command " + args[0]);
+                break;
+        }
+    }
+
+    static void create(File image, int sectors) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(image, "rw")) {
+            output.setLength(0);
+            output.setLength((long) sectors * 2 * Config.SECTOR_WORDS);
+        }
+        System.out.println("Created " + image.getName() + " with " + sectors + " sectors of " + Config.SECTOR_WORDS + " words");
+    }
+
+    // The characters of a text file, with a line feed after each line and a file separator at the end
+    static short[] readText(String path) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : Files.readAllLines(Paths.get(path))) text.append(line).append((char) CardReader.RECORD_SEPARATOR);
+        text.append((char) CardReader.FILE_SEPARATOR);
+        short[] words = new short[text.length()];
+        for (int i = 0; i < words.length; i++) words[i] = (short) text.charAt(i);
+        return words;
+    }
+
+    static void write(File image, int sector, short[] words) throws IOException {
+        MappedByteBuffer buffer = BlockDevice.map(image);
+        int start = sector * Config.SECTOR_WORDS;
+        if (start + words.length > buffer.capacity() / 2) throw new IOException(words.length + " words do not fit from sector " + sector + "!");
+        for (int i = 0; i < words.length; i++) buffer.putShort(2 * (start + i), words[i]);
+        buffer.force();
+        int sectors = (words.length + Config.SECTOR_WORDS - 1) / Config.SECTOR_WORDS;
+        System.out.println("Wrote " + words.length + " words to sectors " + sector + "-" + (sector + sectors - 1));
+    }
+
+    static void dump(File image, int sector) throws IOException {
+        MappedByteBuffer buffer = BlockDevice.map(image);
+        for (int i = 0; i < Config.SECTOR_WORDS; i++) {
+            int word = 2 * (sector * Config.SECTOR_WORDS + i);
+            if (word >= buffer.capacity()) break;
+            System.out.println(i + ": " + Utils.wordToString(buffer.getShort(word)));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.simulator.awesome;
+
+/**
+ * Direct memory access controller. Moves a block of words between a device and linear memory, so programs that
+ * ingest cards or page data to and from the disk do not run an IN or OUT, a load or store and a loop branch for every
+ * word.
+ *
+ * Programs use the controller as device 7. OUT r,7 starts a transfer described by the three words at the address in
+ * r: the device, the address and the length. The keyboard (0), card reader (2) and disk (8) can be read into memory.
+ * Adding TO_DEVICE to the device writes memory out to the printer (1) or the disk instead. Input devices give up to
+ * the length in words from what they have buffered and the disk transfers from its cursor.
+ *
+ * The words reach their destination once the transfer completes. Cached copies of the blocks written to memory are
+ * invalidated, and dirty cached copies of the blocks read from memory are written back first. A transfer takes one
+ * memory latency plus dma.cyclesPerWord cycles for each word, counted on the timing model, and raises the DMA line of
+ * the interrupt controller when it completes.
+ *
+ * CHK r,7 reads 1 while a transfer is in flight and 0 once it has completed. IN r,7 reads the number of words moved
+ * by the last transfer, which is less than the length if the device ran out of input or the disk ran out of sectors.
+ * Starting a transfer while another is in flight completes the earlier one first.
+ */
+public class DmaController {
+    // Added to the device in a descriptor to move words from memory to the device
+    static final short TO_DEVICE = 0b100000;
+
+    private final Simulator context;
+
+    // The transfer in flight
+    private boolean isBusy;
+    private short deviceId;
+    private boolean isToDevice;
+    private short address;
+    private int length;
+    // Words already taken from the source device
+    private short[] words;
+    private long completesAt;
+
+    private short lastTransferLength;
+
+    // Statistics
+    private long transfers;
+    private long wordsTransferred;
+    private long busyCycles;
+
+    DmaController(Simulator context) {
+        this.context = context;
+    }
+
+    static boolean isSourceDevice(short deviceId) {
+        return deviceId == 0 || deviceId == 2 || deviceId == Config.BLOCK_DEVICE;
+    }
+
+    static boolean isDestinationDevice(short deviceId) {
+        return deviceId == 1 || deviceId == Config.BLOCK_DEVICE;
+    }
+
+    /**
+     * Starts a transfer from the descriptor at an address
+     * @param descriptorAddress the address of the device, the address in memory and the length
+     */
+    public void start(short descriptorAddress) throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
+        if (this.isBusy) this.complete();
+
+        short device = this.context.memory.fetch(descriptorAddress);
+        short address = this.context.memory.fetch((short)(descriptorAddress + 1));
+        int length = Short.toUnsignedInt(this.context.memory.fetch((short)(descriptorAddress + 2)));
+        boolean isToDevice = (device & TO_DEVICE) != 0;
+        short deviceId = (short)(device & ~TO_DEVICE);
+
+        // The program must be allowed to access every word of the block itself
+        if (Short.toUnsignedInt(address) + length > this.context.memory.getWordCount()) {
+            throw new IllegalMemoryAddressBeyondLimitException("DMA of " + length + " words at " + Short.toUnsignedInt(address) + " goes beyond the highest memory address. Halting!");
+        }
+        for (int i = Short.toUnsignedInt(address); i < Short.toUnsignedInt(address) + length; i++) {
+            this.context.memory.validateAddress(i, !isToDevice);
+        }
+
+        if (isToDevice ? !isDestinationDevice(deviceId) : !isSourceDevice(deviceId)) {
+            this.context.io.engineerConsolePrintLn("DMA " + (isToDevice ? "to" : "from") + " device " + deviceId + " is not supported! Ignoring");
+            length = 0;
+        } else if (deviceId == Config.BLOCK_DEVICE) {
+            length = Math.min(length, this.context.io.disk.getWordsLeftOnDisk());
+        } else if (!isToDevice) {
+            length = Math.min(length, this.context.io.getSizeOfInputBuffer(deviceId));
+        }
+        if (!isToDevice) {
+            this.words = new short[length];
+            for (int i = 0; i < length; i++) {
+                this.words[i] = deviceId == Config.BLOCK_DEVICE ? this.context.io.disk.read() : this.context.io.getFirstWordFromInputBuffer(deviceId);
+            }
+        }
+        this.isBusy = true;
+        this.deviceId = deviceId;
+        this.isToDevice = isToDevice;
+        this.address = address;
+        this.length = length;
+        long duration = this.context.profile.memoryLatency + (long) this.context.profile.dmaCyclesPerWord * length;
+        this.completesAt = this.context.timing.getCycles() + duration;
+        this.busyCycles += duration;
+        this.context.io.engineerConsolePrintLn("DMA of " + length + " words " + (isToDevice ? "to" : "from") + " device " + deviceId + (isToDevice ? " from " : " to ") + Short.toUnsignedInt(address) + " started");
+    }
+
+    // Called by the control unit after every instruction retires
+    public void instructionRetired() {
+        if (this.isBusy && this.context.timing.getCycles() >= this.completesAt) this.complete();
+    }
+
+    private void complete() {
+        if (this.isToDevice) {
+            // The disk's cursor may have moved since the transfer started, the words go wherever it is now
+            for (short word : this.context.memory.readForDevice(this.address, this.length)) {
+                if (this.deviceId == Config.BLOCK_DEVICE) {
+                    this.context.io.disk.write(word);
+                } else {
+                    this.context.io.addWordToOutputBuffer(this.deviceId, word);
+                }
+            }
+        } else {
+            this.context.memory.writeFromDevice(this.address, this.words);
+        }
+        this.lastTransferLength = (short) this.length;
+        this.transfers++;
+        this.wordsTransferred += this.length;
+        this.words = null;
+        this.isBusy = false;
+        this.context.interrupts.raise(InterruptController.DMA_LINE);
+    }
+
+    public boolean isBusy() {
+        return this.isBusy;
+    }
+
+    public short getLastTransferLength() {
+        return this.lastTransferLength;
+    }
+
+    public long getTransfers() {
+        return this.transfers;
+    }
+
+    public long getWordsTransferred() {
+        return this.wordsTransferred;
+    }
+
+    public void dumpStatistics() {
+        if (this.transfers == 0 && !this.isBusy) return;
+        this.context.io.engineerConsolePrintLn("DMA Controller (" + this.context.profile.dmaCyclesPerWord + " cycles per word)");
+        this.context.io.engineerConsolePrintLn("    Transfers: " + this.transfers);
+        this.context.io.engineerConsolePrintLn("    Words Transferred: " + this.wordsTransferred);
+        this.context.io.engineerConsolePrintLn("    Busy Cycles: " + this.busyCycles);
+    }
+}
@@ -0,0 +1,8 @@
+package com.simulator.awesome;
+
+// How the timing model overlaps instructions
+enum ExecutionMode {
+    SEQUENTIAL,  // Each instruction runs all five steps before the next starts
+    PIPELINED,   // Consecutive instructions overlap in a five stage pipeline
+    OUT_OF_ORDER // Instructions are dispatched to reservation stations and run as soon as their operands are ready
+}
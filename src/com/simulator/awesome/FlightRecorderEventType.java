@@ -0,0 +1,24 @@
+package com.simulator.awesome;
+
+// The events given to Java Flight Recorder, named com.simulator.awesome.<name>. Every event starts with the core number.
+enum FlightRecorderEventType {
+    INSTRUCTION_BATCH("InstructionBatch", "Instruction Batch", "firstInstruction", long.class, "instructions", long.class, "cycles", long.class),
+    TRAP("Trap", "Trap", "trapCode", int.class, "address", int.class),
+    FAULT("Fault", "Fault", "cause", String.class, "mfr", int.class, "address", int.class),
+    CALL("Call", "Call Stack Push", "callee", int.class, "depth", int.class),
+    RETURN("Return", "Call Stack Pop", "depth", int.class),
+    CACHE_MISS("CacheMiss", "Cache Miss", "cache", String.class, "address", int.class, "isWrite", boolean.class, "misses", long.class),
+    DEVICE_READ("DeviceRead", "Device Read", "device", int.class, "word", int.class),
+    DEVICE_WRITE("DeviceWrite", "Device Write", "device", int.class, "word", int.class);
+
+    final String name;
+    final String label;
+    // Pairs of a field name and its type
+    final Object[] fields;
+
+    FlightRecorderEventType(String name, String label, Object... fields) {
+        this.name = name;
+        this.label = label;
+        this.fields = fields;
+    }
+}
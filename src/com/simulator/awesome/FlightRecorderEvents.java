@@ -0,0 +1,253 @@
+package com.simulator.awesome;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gives Java Flight Recorder events for what the simulated machine does, so a recording shows them on the same
+ * timeline as the host JVM's garbage collections and compilations. The events are in the Simulator category:
+ * batches of jfr.batchInstructions retired instructions, with how long the batch took on the host, traps taken, faults
+ * and their MFR cause, call stack pushes and pops, one cache miss out of every jfr.cacheMissInterval, and words read
+ * and written with IN and OUT.
+ *
+ * The machine is built for Java 8, where jdk.jfr only exists from 8u262, so the event types are defined at run time
+ * through jdk.jfr.EventFactory and reached with method handles. On a JVM without it nothing is emitted. Which event
+ * types a running recording has enabled is read again each time a recording starts or stops, so the checks made
+ * while the machine runs only test a bit. Start a recording as usual, for example with
+ *   java -XX:StartFlightRecording=filename=simulator.jfr ...
+ */
+public class FlightRecorderEvents {
+    private static final MethodHandle[] NEW_EVENTS = new MethodHandle[FlightRecorderEventType.values().length];
+    private static final MethodHandle SET;
+    private static final MethodHandle BEGIN;
+    private static final MethodHandle END;
+    private static final MethodHandle COMMIT;
+    private static final MethodHandle IS_ENABLED;
+    private static final Object[] EVENT_TYPES = new Object[FlightRecorderEventType.values().length];
+
+    // A bit for each FlightRecorderEventType a running recording has enabled
+    private static volatile int enabledTypes;
+
+    static {
+        MethodHandle set = null;
+        MethodHandle begin = null;
+        MethodHandle end = null;
+        MethodHandle commit = null;
+        MethodHandle isEnabled = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventTypeClass = Class.forName("jdk.jfr.EventType");
+            for (FlightRecorderEventType type : FlightRecorderEventType.values()) {
+                Object factory = factoryClass.getMethod("create", List.class, List.class).invoke(null, getAnnotations(type), getFields(type));
+                NEW_EVENTS[type.ordinal()] = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass)).bindTo(factory);
+                EVENT_TYPES[type.ordinal()] = factoryClass.getMethod("getEventType").invoke(factory);
+            }
+            set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+            begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+            end = lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class));
+            commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+            isEnabled = lookup.findVirtual(eventTypeClass, "isEnabled", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // No Flight Recorder on this JVM
+            Arrays.fill(NEW_EVENTS, null);
+        }
+        SET = set;
+        BEGIN = begin;
+        END = end;
+        COMMIT = commit;
+        IS_ENABLED = isEnabled;
+        if (isAvailable()) listenForRecordings();
+    }
+
+    // @Name, @Label and @Category for the event type, and no stack traces, which would cost more than the event
+    private static List<Object> getAnnotations(FlightRecorderEventType type) throws ReflectiveOperationException {
+        List<Object> annotations = new ArrayList<>();
+        annotations.add(createAnnotation("jdk.jfr.Name", "com.simulator.awesome." + type.name));
+        annotations.add(createAnnotation("jdk.jfr.Label", type.label));
+        annotations.add(createAnnotation("jdk.jfr.Category", new String[]{"Simulator"}));
+        annotations.add(createAnnotation("jdk.jfr.StackTrace", false));
+        return annotations;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object createAnnotation(String annotation, Object value) throws ReflectiveOperationException {
+        Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+        Class<? extends Annotation> annotationClass = (Class<? extends Annotation>) Class.forName(annotation);
+        return annotationElementClass.getConstructor(Class.class, Object.class).newInstance(annotationClass, value);
+    }
+
+    private static List<Object> getFields(FlightRecorderEventType type) throws ReflectiveOperationException {
+        Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+        List<Object> fields = new ArrayList<>();
+        fields.add(valueDescriptorClass.getConstructor(Class.class, String.class).newInstance(int.class, "core"));
+        for (int i = 0; i < type.fields.length; i += 2) {
+            fields.add(valueDescriptorClass.getConstructor(Class.class, String.class).newInstance(type.fields[i + 1], type.fields[i]));
+        }
+        return fields;
+    }
+
+    // Reads which event types are enabled each time the recorder starts or a recording changes state
+    private static void listenForRecordings() {
+        try {
+            Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+            Object listener = Proxy.newProxyInstance(FlightRecorderEvents.class.getClassLoader(), new Class<?>[]{listenerClass}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "FlightRecorderEvents";
+                    default:
+                        readEnabledTypes();
+                        return null;
+                }
+            });
+            Class.forName("jdk.jfr.FlightRecorder").getMethod("addListener", listenerClass).invoke(null, listener);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Cannot listen for flight recordings: " + e);
+        }
+        readEnabledTypes();
+    }
+
+    private static void readEnabledTypes() {
+        int enabled = 0;
+        try {
+            for (FlightRecorderEventType type : FlightRecorderEventType.values()) {
+                if ((boolean) IS_ENABLED.invoke(EVENT_TYPES[type.ordinal()])) enabled |= 1 << type.ordinal();
+            }
+        } catch (Throwable e) {
+            System.err.println("Cannot read flight recorder settings: " + e);
+        }
+        enabledTypes = enabled;
+    }
+
+    public static boolean isAvailable() {
+        return NEW_EVENTS[0] != null;
+    }
+
+    private final Simulator context;
+    private final int batchInstructions;
+    private final int cacheMissInterval;
+
+    // The batch of instructions being timed, or null, and where it started
+    private Object batch;
+    private long batchStartInstructions;
+    private long batchStartCycles;
+
+    // Cache misses left until the next one is sent
+    private int cacheMissCountdown;
+
+    FlightRecorderEvents(Simulator context) {
+        this.context = context;
+        this.batchInstructions = context.profile.jfrBatchInstructions;
+        this.cacheMissInterval = context.profile.jfrCacheMissInterval;
+        this.cacheMissCountdown = this.cacheMissInterval;
+    }
+
+    // The check made before each event, and for every retired instruction
+    public boolean isEnabled(FlightRecorderEventType type) {
+        return (enabledTypes & (1 << type.ordinal())) != 0;
+    }
+
+    private Object newEvent(FlightRecorderEventType type) throws Throwable {
+        Object event = NEW_EVENTS[type.ordinal()].invoke();
+        SET.invoke(event, 0, (Object) (int) this.context.coreId);
+        return event;
+    }
+
+    private void commit(FlightRecorderEventType type, Object... values) {
+        try {
+            Object event = this.newEvent(type);
+            for (int i = 0; i < values.length; i++) {
+                SET.invoke(event, i + 1, values[i]);
+            }
+            COMMIT.invoke(event);
+        } catch (Throwable e) {
+            System.err.println("Cannot send " + type.name + " to the flight recorder: " + e);
+        }
+    }
+
+    // Call once an instruction has retired. Each batch starts where the last one ended, the first one after this instruction.
+    public void instructionRetired() {
+        if (this.batch != null && this.context.timing.getRetiredInstructions() - this.batchStartInstructions < this.batchInstructions) return;
+        this.endBatch();
+        try {
+            this.batch = this.newEvent(FlightRecorderEventType.INSTRUCTION_BATCH);
+            BEGIN.invoke(this.batch);
+            this.batchStartInstructions = this.context.timing.getRetiredInstructions();
+            this.batchStartCycles = this.context.timing.getCycles();
+        } catch (Throwable e) {
+            System.err.println("Cannot send " + FlightRecorderEventType.INSTRUCTION_BATCH.name + " to the flight recorder: " + e);
+            this.batch = null;
+        }
+    }
+
+    // Sends the batch being timed, if any. Call on HLT and when the execution loop pauses.
+    public void endBatch() {
+        if (this.batch == null) return;
+        try {
+            END.invoke(this.batch);
+            SET.invoke(this.batch, 1, (Object) (this.batchStartInstructions + 1));
+            SET.invoke(this.batch, 2, (Object) (this.context.timing.getRetiredInstructions() - this.batchStartInstructions));
+            SET.invoke(this.batch, 3, (Object) (this.context.timing.getCycles() - this.batchStartCycles));
+            COMMIT.invoke(this.batch);
+        } catch (Throwable e) {
+            System.err.println("Cannot send " + FlightRecorderEventType.INSTRUCTION_BATCH.name + " to the flight recorder: " + e);
+        }
+        this.batch = null;
+    }
+
+    public void trap(short trapCode) {
+        this.commit(FlightRecorderEventType.TRAP, (int) trapCode, Short.toUnsignedInt(this.context.cu.getInstructionAddress()));
+    }
+
+    // Call once the MFR holds the cause of the fault
+    public void fault() {
+        MachineFaultRegister mfr = this.context.mfr;
+        String cause;
+        if (mfr.isIllegalMemoryAccessToReservedLocations()) {
+            cause = "Illegal Memory Access To Reserved Locations";
+        } else if (mfr.isIllegalTrapCode()) {
+            cause = "Illegal Trap Code";
+        } else if (mfr.isIllegalOpcode()) {
+            cause = "Illegal Opcode";
+        } else if (mfr.isIllegalMemoryAddressBeyondLimit()) {
+            cause = "Illegal Memory Address Beyond Limit";
+        } else {
+            cause = "Unknown";
+        }
+        this.commit(FlightRecorderEventType.FAULT, cause, (int) mfr.get(), Short.toUnsignedInt(this.context.cu.getInstructionAddress()));
+    }
+
+    public void call(short callee, short depth) {
+        this.commit(FlightRecorderEventType.CALL, Short.toUnsignedInt(callee), (int) depth);
+    }
+
+    public void callReturned(short depth) {
+        this.commit(FlightRecorderEventType.RETURN, (int) depth);
+    }
+
+    // Sends one miss out of every jfr.cacheMissInterval, standing for all of them
+    public void cacheMiss(Cache cache, short address, boolean isWrite) {
+        if (--this.cacheMissCountdown > 0) return;
+        this.cacheMissCountdown = this.cacheMissInterval;
+        this.commit(FlightRecorderEventType.CACHE_MISS, cache.name, Short.toUnsignedInt(address), isWrite, (long) this.cacheMissInterval);
+    }
+
+    public void deviceRead(short deviceId, short word) {
+        this.commit(FlightRecorderEventType.DEVICE_READ, (int) deviceId, (int) word);
+    }
+
+    public void deviceWrite(short deviceId, short word) {
+        this.commit(FlightRecorderEventType.DEVICE_WRITE, (int) deviceId, (int) word);
+    }
+}
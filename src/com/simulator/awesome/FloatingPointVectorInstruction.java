@@ -26,6 +26,14 @@ public class FloatingPointVectorInstruction extends Instruction {
         this.validateIndexRegisterIndex(this.indexRegisterId);
     }
 
+    public int getAddressRegisters() {
+        return indexRegisterBit(this.indexRegisterId);
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.FLOATING_POINT;
+    }
+
     public void computeEffectiveAddress() {
         // IAR <- EA
         this.context.setInternalAddressRegister((short) (this.context.getIndexRegister(this.indexRegisterId) + this.address));
@@ -72,6 +80,14 @@ class FloatingAddMemoryToRegister extends FloatingPointVectorInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId);
+    }
+
+    public int getDestinationRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -120,6 +136,14 @@ class FloatingSubtractMemoryFromRegister extends FloatingPointVectorInstruction
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId);
+    }
+
+    public int getDestinationRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -170,6 +194,10 @@ class ConvertToFixedOrFloatingPoint extends FloatingPointVectorInstruction {
         this.validateIndexRegisterIndex(this.indexRegisterId);
     }
 
+    public int getDestinationRegisters() {
+        return this.floatingRegisterId == 1 ? generalRegisterBit(1) | floatingRegisterBit(1) : generalRegisterBit(0);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -239,6 +267,10 @@ class LoadFloatingPointFromMemory extends FloatingPointVectorInstruction {
         this.validateIndexRegisterIndex(this.indexRegisterId);
     }
 
+    public int getDestinationRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -266,6 +298,10 @@ class StoreFloatingPointToMemory extends FloatingPointVectorInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return floatingRegisterBit(this.floatingRegisterId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
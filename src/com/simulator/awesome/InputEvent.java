@@ -0,0 +1,61 @@
+package com.simulator.awesome;
+
+import java.io.File;
+import java.io.IOException;
+
+// Something that happened to the input of a device, as written on a line of a recording after its position
+class InputEvent {
+    final InputEventType type;
+    final short deviceId;
+    final short[] words;
+    final File deck;
+
+    InputEvent(InputEventType type, short deviceId, short[] words, File deck) {
+        this.type = type;
+        this.deviceId = deviceId;
+        this.words = words;
+        this.deck = deck;
+    }
+
+    // Parses what follows the position on a line, such as ARRIVED 0 49 10
+    static InputEvent parse(String text) {
+        String[] fields = text.split(" ", text.startsWith(InputEventType.DECK.name()) ? 3 : -1);
+        InputEventType type = InputEventType.valueOf(fields[0]);
+        short deviceId = Short.parseShort(fields[1]);
+        if (type == InputEventType.DECK) return new InputEvent(type, deviceId, null, new File(fields[2]));
+        short[] words = new short[fields.length - 2];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = Short.parseShort(fields[i + 2]);
+        }
+        return new InputEvent(type, deviceId, words, null);
+    }
+
+    // Does what happened to the input buffers. CONSUMED events do nothing.
+    void apply(InputOutput io) {
+        switch (this.type) {
+            case ARRIVED:
+                io.receiveWords(this.deviceId, this.words);
+                break;
+            case DECK:
+                try {
+                    io.receiveDeck(this.deck);
+                } catch (IOException e) {
+                    System.err.println("Cannot load deck " + this.deck + ": " + e.getMessage());
+                    io.engineerConsolePrintLn("Cannot load deck " + this.deck + ": " + e.getMessage());
+                }
+                break;
+            case CLEARED:
+                io.receiveClear(this.deviceId);
+                break;
+        }
+    }
+
+    public String toString() {
+        StringBuilder line = new StringBuilder(this.type.name()).append(' ').append(this.deviceId);
+        if (this.deck != null) return line.append(' ').append(this.deck.getAbsolutePath()).toString();
+        if (this.words != null) {
+            for (short word : this.words) line.append(' ').append(word);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,9 @@
+package com.simulator.awesome;
+
+// What happened to the input of a device
+enum InputEventType {
+    ARRIVED, // Words were added to the device's input buffer
+    DECK,    // A deck was loaded into the card reader
+    CLEARED, // The device's input buffer was emptied
+    CONSUMED // The program read a word. Only used to check that a replay reads what the recording read.
+}
@@ -1,8 +1,12 @@
 package com.simulator.awesome;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
 
 public class InputOutput {
     final Simulator context;
@@ -12,8 +16,30 @@ public class InputOutput {
     private final LinkedBlockingQueue[] inputBuffer;
     private final LinkedBlockingQueue engineerConsoleOutputBuffer;
 
+    // The card reader reads its loaded deck once the words queued for device 2 have been read
+    public final CardReader cardReader = new CardReader();
+
+    // Block storage, devices 8 and 9
+    public final BlockDevice disk;
+
+    // Links to other machines, devices 10 and 11
+    private final ChannelDevice[] channels = new ChannelDevice[Config.CHANNEL_DEVICE_COUNT];
+
+    // The thread parked in IN waiting for input, if any
+    private volatile Thread inputWaiter;
+    private long inputWaits;
+    // Set once no more input will come, such as when a headless run's standard input ends, so IN stops waiting for it
+    private volatile boolean isInputEnded;
+
+    // Output devices with a sink bypass their output buffer
+    private final OutputSink[] outputSinks = new OutputSink[Config.DEVICE_COUNT];
+
     public InputOutput(Simulator context){
         this.context = context;
+        this.disk = new BlockDevice(context);
+        for (int i = 0; i < this.channels.length; i++) {
+            this.channels[i] = new ChannelDevice(context);
+        }
         this.outputBuffer = new LinkedBlockingQueue[Config.OUTPUT_IO_BUFFER_SIZE];
         this.inputBuffer = new LinkedBlockingQueue[Config.INPUT_IO_BUFFER_SIZE];
         this.engineerConsoleOutputBuffer = new LinkedBlockingQueue();
@@ -25,11 +51,64 @@ public class InputOutput {
         emptyAllInputBuffers();
         emptyAllOutputBuffers();
         emptyEngineersConsoleBuffer();
+        // Each run writes its sinks from the start, as it does its trace
+        closeOutputSinks();
+        initializeOutputSinks();
+        this.isInputEnded = false;
+        this.disk.reset();
     }
 
 
     public void addWordToOutputBuffer(short deviceId, short word) {
-        this.outputBuffer[deviceId].add(word);
+        OutputSink sink = this.outputSinks[deviceId];
+        if (sink != null) {
+            sink.write(word);
+        } else {
+            this.outputBuffer[deviceId].add(word);
+        }
+    }
+
+    public ChannelDevice getChannel(short deviceId) {
+        return this.channels[deviceId - Config.CHANNEL_DEVICE];
+    }
+
+    public OutputSink getOutputSink(short deviceId) {
+        return this.outputSinks[deviceId];
+    }
+
+    // Sends a device's words to a sink, or back to its output buffer if the sink is null. The sink it replaces is closed.
+    public void setOutputSink(short deviceId, OutputSink sink) {
+        OutputSink replaced = this.outputSinks[deviceId];
+        if (replaced != null && replaced != sink) replaced.close();
+        this.outputSinks[deviceId] = sink;
+    }
+
+    public void flushOutputSinks() {
+        for (OutputSink sink : this.outputSinks) {
+            if (sink != null) sink.flush();
+        }
+    }
+
+    // Closes every sink and sends the devices' words back to their output buffers
+    public void closeOutputSinks() {
+        for (short device = 0; device < Config.DEVICE_COUNT; device++) {
+            this.setOutputSink(device, null);
+        }
+    }
+
+    // Opens the sinks named in the machine profile. Each run and each core of a multiprocessor writes to its own file.
+    private void initializeOutputSinks() {
+        MachineProfile profile = this.context.profile;
+        for (short device = 0; device < Config.DEVICE_COUNT; device++) {
+            String specification = profile.outputSinks[device];
+            if (specification == null) continue;
+            if (specification.startsWith(OutputSinkType.FILE + ":")) specification = this.context.getOwnPath(specification);
+            try {
+                this.setOutputSink(device, OutputSink.create(specification, profile.outputBufferSize, profile.outputFlushMillis));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Cannot open output sink " + specification + " for device " + device + ": " + e.getMessage());
+            }
+        }
     }
 
     public short getFirstWordFromOutputBuffer(short deviceId){
@@ -51,25 +130,116 @@ public class InputOutput {
     }
 
     public void addWordToInputBuffer(short deviceId, short inputBuffer) {
-        this.inputBuffer[deviceId].add(inputBuffer);
+        this.receive(new InputEvent(InputEventType.ARRIVED, deviceId, new short[]{inputBuffer}, null));
+    }
+
+    // Adds the characters of some text together, so a parked IN wakes once the whole text is there
+    public void addTextToInputBuffer(short deviceId, String text) {
+        short[] words = new short[text.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = (short) text.charAt(i);
+        }
+        this.receive(new InputEvent(InputEventType.ARRIVED, deviceId, words, null));
+    }
+
+    // While input is recorded it is delivered on the machine's thread, at a point the replay can find again
+    private void receive(InputEvent event) {
+        if (this.context.inputRecorder.isRecording()) {
+            this.context.inputRecorder.queue(event);
+            wakeInputWaiter();
+        } else {
+            event.apply(this);
+        }
+    }
+
+    void receiveWords(short deviceId, short[] words) {
+        for (short word : words) {
+            this.inputBuffer[deviceId].add(word);
+        }
+        this.context.interrupts.raiseForInputDevice(deviceId);
+        wakeInputWaiter();
+    }
+
+    /**
+     * Parks the calling thread until a device has input, the machine stops running or the input ends. Input from any
+     * other thread wakes it straight away, and it uses no CPU while it waits.
+     */
+    public void awaitInput(short deviceId){
+        this.inputWaiter = Thread.currentThread();
+        this.inputWaits++;
+        this.context.msr.setReadyForInput(true);
+        while (this.context.msr.isRunning()) {
+            if (this.context.inputRecorder.isRecording()) this.context.inputRecorder.deliver();
+            if (!isInputBufferNull(deviceId) || this.isInputEnded) break;
+            LockSupport.park(this);
+        }
+        this.context.msr.setReadyForInput(false);
+        this.inputWaiter = null;
+    }
+
+    // Called when no more input will arrive. IN then pauses the machine when it finds no input, as it does without blocking.
+    public void endInput(){
+        this.isInputEnded = true;
+        wakeInputWaiter();
+    }
+
+    // Called when input arrives or the machine is stopped
+    public void wakeInputWaiter(){
+        Thread waiter = this.inputWaiter;
+        if (waiter != null) LockSupport.unpark(waiter);
+    }
+
+    public long getInputWaits(){
+        return this.inputWaits;
     }
 
     public short getFirstWordFromInputBuffer(short deviceId){
-        return (short) inputBuffer[deviceId].remove();
+        short word = isCardReaderStreaming(deviceId) ? this.cardReader.next() : (short) inputBuffer[deviceId].remove();
+        if (this.context.inputRecorder.isRecording()) this.context.inputRecorder.consumed(deviceId, word);
+        if (this.context.inputReplayer.isReplaying()) this.context.inputReplayer.consumed(deviceId, word);
+        return word;
     }
 
     public boolean isInputBufferNull(short deviceId){
-        return inputBuffer[deviceId].peek() == null;
+        return inputBuffer[deviceId].peek() == null && (deviceId != 2 || this.cardReader.isEmpty());
+    }
+
+    private boolean isCardReaderStreaming(short deviceId){
+        return deviceId == 2 && inputBuffer[deviceId].peek() == null && !this.cardReader.isEmpty();
+    }
+
+    // Loads a deck into the card reader (device 2), which streams it from disk as the program reads it
+    public void loadDeck(File file) throws IOException {
+        if (this.context.inputRecorder.isRecording()) {
+            // The deck is loaded once the event is delivered, so a missing file is reported now
+            if (!file.isFile()) throw new FileNotFoundException(file.getPath() + " is not a deck!");
+            this.receive(new InputEvent(InputEventType.DECK, (short) 2, null, file));
+        } else {
+            this.receiveDeck(file);
+        }
+    }
+
+    void receiveDeck(File file) throws IOException {
+        this.cardReader.load(file);
+        this.engineerConsolePrintLn("Loaded deck " + file.getName() + ": " + this.cardReader.getRemainingCards() + " cards, " + this.cardReader.getRemainingWords() + " words");
+        this.context.interrupts.raiseForInputDevice((short) 2);
+        wakeInputWaiter();
     }
 
     public void emptyAllInputBuffers(){
         for (int i=0; i<inputBuffer.length; i++) {
             inputBuffer[i].clear();
         }
+        this.cardReader.eject();
     }
 
     public void emptyDeviceInputBuffer(short deviceId){
+        this.receive(new InputEvent(InputEventType.CLEARED, deviceId, null, null));
+    }
+
+    void receiveClear(short deviceId){
         inputBuffer[deviceId].clear();
+        if (deviceId == 2) this.cardReader.eject();
     }
 
     public boolean isEngineersConsoleBufferNull(){
@@ -82,6 +252,7 @@ public class InputOutput {
 
     // Prints a line of text to the engineer's console
     public void engineerConsolePrintLn(String outputString){
+        if (!this.context.profile.isEngineerConsole) return;
         SimpleDateFormat formatter = new SimpleDateFormat("HH:mm:ss");
         Date timestamp = new Date();
         engineerConsoleOutputBuffer.add("["+formatter.format(timestamp)+"]: "+outputString+"\n");
@@ -97,10 +268,13 @@ public class InputOutput {
             outputBuffer[i] = new LinkedBlockingQueue();
             inputBuffer[i] = new LinkedBlockingQueue();
         }
+        initializeOutputSinks();
     }
 
     public int getSizeOfInputBuffer(short deviceId){
-        return inputBuffer[deviceId].size();
+        long size = inputBuffer[deviceId].size();
+        if (deviceId == 2) size += this.cardReader.getRemainingWords();
+        return (int) Math.min(size, Integer.MAX_VALUE);
     }
     public int getSizeOfOutputBuffer(short deviceId){
         return outputBuffer[deviceId].size();
@@ -1,5 +1,7 @@
 package com.simulator.awesome;
 
+import javax.swing.SwingUtilities;
+
 // This class centralizes the parsing of the LoadStore class of instructions
 // It is used by IN, OUT, CHK
 public class InputOutputInstruction extends Instruction {
@@ -18,6 +20,20 @@ public class InputOutputInstruction extends Instruction {
         this.registerId = Utils.short_unsigned_right_shift((short)(word & registerMask), registerOffset);
     }
 
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.INPUT_OUTPUT;
+    }
+
+    // The core ID, timer, interrupt controller, DMA, block and channel devices are part of the machine, so they never wait for input
+    static boolean isInternalDevice(short devid){
+        return devid == Config.CORE_ID_DEVICE || devid == Config.TIMER_DEVICE || devid == Config.INTERRUPT_CONTROLLER_DEVICE || devid == Config.DMA_DEVICE
+                || devid == Config.BLOCK_DEVICE || devid == Config.BLOCK_CONTROL_DEVICE || isChannelDevice(devid);
+    }
+
+    static boolean isChannelDevice(short devid){
+        return devid >= Config.CHANNEL_DEVICE && devid < Config.CHANNEL_DEVICE + Config.CHANNEL_DEVICE_COUNT;
+    }
+
     public void validateInputDevice(short devid){
         // Input from console printer triggers a fault
         if (devid == 1 || devid < 0 || devid > 31) {
@@ -53,8 +69,25 @@ class InputCharacterToRegisterFromDevice extends InputOutputInstruction {
         validateInputDevice(this.deviceId);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
     public void fetchOperand(){
-        // If the buffer is empty, pause the execution loop and wait for user input
+        if (isInternalDevice(this.deviceId)) return;
+        // A replay delivers the input the recorded run waited for here, whether that run paused or parked
+        if (this.context.io.isInputBufferNull(this.deviceId) && this.context.inputReplayer.isReplaying()) this.context.inputReplayer.deliverAwaited();
+        if (this.context.io.isInputBufferNull(this.deviceId)) {
+            // Prompts written to a sink must be seen before the machine waits
+            this.context.io.flushOutputSinks();
+        }
+        // A machine on its own execution loop can park there and carry on with this instruction once input arrives.
+        // Machines stepped in turn by a Multiprocessor or Cluster must not hold up the others, so they pause instead,
+        // and so does a loop the console started on Swing's event thread, which has to stay free to take the input.
+        if (this.context.io.isInputBufferNull(this.deviceId) && this.context.profile.isBlockingInput && this.context.cu.isLooping() && !SwingUtilities.isEventDispatchThread()) {
+            this.context.io.awaitInput(this.deviceId);
+        }
+        // If the buffer is still empty, pause the execution loop and wait for user input
         if (this.context.io.isInputBufferNull(this.deviceId)) {
             this.context.msr.setReadyForInput(true);
             this.context.cu.pauseExecutionLoop();
@@ -62,9 +95,43 @@ class InputCharacterToRegisterFromDevice extends InputOutputInstruction {
     }
 
     public void execute(){
-        // c(Register) <- inputBuffer <- Device
-        short word = this.context.io.getFirstWordFromInputBuffer(this.deviceId);
-        this.context.setGeneralRegister(this.registerId, word);
+        switch (this.deviceId) {
+            case Config.CORE_ID_DEVICE:
+                // A node of a cluster reads its node number instead
+                this.context.setGeneralRegister(this.registerId, this.context.nodeCount > 1 ? this.context.nodeId : this.context.coreId);
+                break;
+            case Config.TIMER_DEVICE:
+                // c(Register) <- what is left of the timer's count
+                this.context.setGeneralRegister(this.registerId, this.context.interrupts.timer.getRemaining());
+                break;
+            case Config.INTERRUPT_CONTROLLER_DEVICE:
+                // c(Register) <- pending interrupt lines
+                this.context.setGeneralRegister(this.registerId, this.context.interrupts.getPending());
+                break;
+            case Config.DMA_DEVICE:
+                // c(Register) <- words moved by the last transfer
+                this.context.setGeneralRegister(this.registerId, this.context.dma.getLastTransferLength());
+                break;
+            case Config.BLOCK_DEVICE:
+                // c(Register) <- the word at the disk's cursor
+                this.context.setGeneralRegister(this.registerId, this.context.io.disk.read());
+                break;
+            case Config.BLOCK_CONTROL_DEVICE:
+                // c(Register) <- the sector of the disk's cursor
+                this.context.setGeneralRegister(this.registerId, this.context.io.disk.getSector());
+                break;
+            case Config.CHANNEL_DEVICE:
+            case Config.CHANNEL_DEVICE + 1:
+                // c(Register) <- the next word ready on the channel, or 0
+                this.context.setGeneralRegister(this.registerId, this.context.io.getChannel(this.deviceId).receive());
+                break;
+            default:
+                // c(Register) <- inputBuffer <- Device
+                short word = this.context.io.getFirstWordFromInputBuffer(this.deviceId);
+                this.context.setGeneralRegister(this.registerId, word);
+                break;
+        }
+        if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.DEVICE_READ)) this.context.flightRecorder.deviceRead(this.deviceId, this.context.getGeneralRegister(this.registerId));
     }
 }
 
@@ -79,7 +146,43 @@ class OutputCharacterToDeviceFromRegister extends InputOutputInstruction {
         super(word, context);
         validateGeneralRegisterIndex(this.registerId);
         validateOutputDevice(this.deviceId);
-        this.context.io.addWordToOutputBuffer(this.deviceId,this.context.getGeneralRegister(this.registerId));
+        if (!isInternalDevice(this.deviceId)) this.context.io.addWordToOutputBuffer(this.deviceId,this.context.getGeneralRegister(this.registerId));
+    }
+
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
+        // The DMA controller reads its descriptor from memory, so a transfer starts here where memory faults are handled
+        if (this.deviceId == Config.DMA_DEVICE) this.context.dma.start(this.context.getGeneralRegister(this.registerId));
+    }
+
+    public void execute(){
+        if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.DEVICE_WRITE)) this.context.flightRecorder.deviceWrite(this.deviceId, this.context.getGeneralRegister(this.registerId));
+        switch (this.deviceId) {
+            case Config.TIMER_DEVICE:
+                // Timer interval <- c(Register), 0 stops the timer
+                this.context.interrupts.timer.program(this.context.getGeneralRegister(this.registerId));
+                break;
+            case Config.INTERRUPT_CONTROLLER_DEVICE:
+                // Interrupt mask <- c(Register)
+                this.context.interrupts.setMask(this.context.getGeneralRegister(this.registerId));
+                break;
+            case Config.BLOCK_DEVICE:
+                // The word at the disk's cursor <- c(Register)
+                this.context.io.disk.write(this.context.getGeneralRegister(this.registerId));
+                break;
+            case Config.BLOCK_CONTROL_DEVICE:
+                // Disk cursor <- the first word of sector c(Register)
+                this.context.io.disk.seek(this.context.getGeneralRegister(this.registerId));
+                break;
+            case Config.CHANNEL_DEVICE:
+            case Config.CHANNEL_DEVICE + 1:
+                // Channel <- c(Register)
+                this.context.io.getChannel(this.deviceId).send(this.context.getGeneralRegister(this.registerId));
+                break;
+        }
     }
 }
 
@@ -109,12 +212,19 @@ class CheckDeviceStatusToRegister extends InputOutputInstruction {
             case 1: // Console Printer
                 validateOutputDevice(this.deviceId);
                 break;
+            case Config.CORE_ID_DEVICE:
+                validateInputDevice(this.deviceId);
+                break;
             default: // Other devices are not specified and therefore could be input or output
                 validateInputDevice(this.deviceId);
                 validateOutputDevice(this.deviceId);
                 break;
         }
     }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
     public void execute(){
         // If we know the type of device, check the corresponding buffer. If we don't know, take whichever buffer is non-zero.
         switch(this.deviceId){
@@ -122,15 +232,44 @@ class CheckDeviceStatusToRegister extends InputOutputInstruction {
                 this.context.setGeneralRegister(this.registerId, (short) this.context.io.getSizeOfInputBuffer(this.deviceId));
                 break;
             case 2: // Card Reader
-                // c(Register) <- size of inputBuffer
-                // this will break if the inputBuffer has more than 32,767 items in it due to casting an int to short.
-                this.context.setGeneralRegister(this.registerId, (short) this.context.io.getSizeOfInputBuffer(this.deviceId));
+                // c(Register) <- words left in the inputBuffer and the loaded deck
+                // Decks can be far larger than a word can count, so this stops at 32,767
+                this.context.setGeneralRegister(this.registerId, (short) Math.min(this.context.io.getSizeOfInputBuffer(this.deviceId), Short.MAX_VALUE));
                 break;
             case 1: // Console Printer
                 // c(Register) <- size of outputBuffer
                 // this will break if the outputBuffer has more than 32,767 items in it due to casting an int to short.
                 this.context.setGeneralRegister(this.registerId, (short) this.context.io.getSizeOfOutputBuffer(this.deviceId));
                 break;
+            case Config.CORE_ID_DEVICE:
+                // c(Register) <- number of cores, or of nodes in a cluster
+                this.context.setGeneralRegister(this.registerId, this.context.nodeCount > 1 ? this.context.nodeCount : this.context.coreCount);
+                break;
+            case Config.TIMER_DEVICE:
+                // c(Register) <- timer interval
+                this.context.setGeneralRegister(this.registerId, this.context.interrupts.timer.getInterval());
+                break;
+            case Config.INTERRUPT_CONTROLLER_DEVICE:
+                // c(Register) <- interrupt mask
+                this.context.setGeneralRegister(this.registerId, this.context.interrupts.getMask());
+                break;
+            case Config.DMA_DEVICE:
+                // c(Register) <- 1 while a transfer is in flight
+                this.context.setGeneralRegister(this.registerId, (short)(this.context.dma.isBusy() ? 1 : 0));
+                break;
+            case Config.BLOCK_DEVICE:
+                // c(Register) <- words left in the sector of the disk's cursor
+                this.context.setGeneralRegister(this.registerId, this.context.io.disk.getWordsLeftInSector());
+                break;
+            case Config.BLOCK_CONTROL_DEVICE:
+                // c(Register) <- number of sectors on the disk
+                this.context.setGeneralRegister(this.registerId, this.context.io.disk.getSectors());
+                break;
+            case Config.CHANNEL_DEVICE:
+            case Config.CHANNEL_DEVICE + 1:
+                // c(Register) <- words ready to be received on the channel
+                this.context.setGeneralRegister(this.registerId, this.context.io.getChannel(this.deviceId).getReadyWords());
+                break;
             default: // Other devices are not specified and therefore could be input or output
                 if (context.io.isInputBufferNull(this.deviceId)){
                     if (context.io.isOutputBufferNull(this.deviceId)){ // if both are empty, just return 0
@@ -0,0 +1,116 @@
+package com.simulator.awesome;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records the input of the keyboard, the card reader and the other input devices to a text file, so a run can be
+ * repeated exactly by an InputReplayer, for example in a headless batch run.
+ *
+ * While recording, input from the console or another thread is not added to the input buffers straight away. It is
+ * queued and delivered on the machine's own thread, before the next step or while IN waits for it, so it arrives at
+ * a point the replay can find again: the retired instruction count, the faults handled and the step. Each word the
+ * program reads is logged with the retired instruction count it was read at.
+ *
+ * Each line of the file is an event:
+ *   retired faults step ARRIVED device word word...
+ *   retired faults step DECK 2 path
+ *   retired faults step CLEARED device
+ *   retired faults step CONSUMED device word
+ *
+ * The file is input.record in the machine profile. Each core of a multiprocessor writes to its own file, path.n for
+ * core n. The file is written out whenever the machine pauses or halts, and closed when the simulator shuts down.
+ */
+public class InputRecorder {
+    private final Simulator context;
+    private final boolean isRecording;
+
+    // Input from other threads, waiting to be delivered on the machine's thread
+    private final ConcurrentLinkedQueue<InputEvent> pending = new ConcurrentLinkedQueue<>();
+
+    // Null until the first event
+    private BufferedWriter writer;
+
+    // Statistics
+    private long events;
+    private long consumedWords;
+
+    InputRecorder(Simulator context) {
+        this.context = context;
+        this.isRecording = context.profile.inputRecordFile != null;
+    }
+
+    public boolean isRecording() {
+        return this.isRecording;
+    }
+
+    // Called by InputOutput on any thread
+    void queue(InputEvent event) {
+        this.pending.add(event);
+    }
+
+    // Delivers the queued input. Call on the machine's thread before a step, or while IN waits for input.
+    public void deliver() {
+        InputEvent event;
+        while ((event = this.pending.poll()) != null) {
+            event.apply(this.context.io);
+            this.write(event);
+        }
+    }
+
+    // Call when the program reads a word from an input buffer
+    public void consumed(short deviceId, short word) {
+        this.consumedWords++;
+        this.write(new InputEvent(InputEventType.CONSUMED, deviceId, new short[]{word}, null));
+    }
+
+    private void write(InputEvent event) {
+        try {
+            if (this.writer == null) this.open();
+            this.writer.write(this.context.timing.getRetiredInstructions() + " " + this.context.timing.getFaults() + " " + this.context.cu.getExecutionStep() + " " + event);
+            this.writer.newLine();
+            this.events++;
+        } catch (IOException e) {
+            System.err.println("Cannot record input: " + e.getMessage());
+        }
+    }
+
+    private void open() throws IOException {
+        String path = this.context.getOwnPath(this.context.profile.inputRecordFile);
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8));
+        this.context.io.engineerConsolePrintLn("Recording input to " + path);
+    }
+
+    public void flush() {
+        if (this.writer == null) return;
+        try {
+            this.writer.flush();
+        } catch (IOException e) {
+            System.err.println("Cannot record input: " + e.getMessage());
+        }
+    }
+
+    public void close() {
+        if (this.writer == null) return;
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close input recording: " + e.getMessage());
+        }
+        this.writer = null;
+    }
+
+    public long getEvents() {
+        return this.events;
+    }
+
+    public void dumpStatistics() {
+        if (this.writer == null) return;
+        this.flush();
+        this.context.io.engineerConsolePrintLn("Input Recording: " + this.events + " events, " + this.consumedWords + " words read");
+    }
+}
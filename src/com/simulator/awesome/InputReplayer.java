@@ -0,0 +1,157 @@
+package com.simulator.awesome;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Feeds a run the input an InputRecorder recorded, at the same points, so the run repeats the recorded one exactly
+ * without anyone at the console. Each word the program reads is checked against the words the recording read, and
+ * the first difference is reported as the point where the replay diverged.
+ *
+ * The file is input.replay in the machine profile. Input typed at the console while replaying is still delivered, and
+ * the replay will then diverge. A recording made with IN pausing the loop replays the same with IN parking, and the
+ * other way around, as the words it waited for are delivered as soon as IN finds its buffer empty.
+ */
+public class InputReplayer {
+    private final Simulator context;
+    private boolean isReplaying;
+
+    // One reader for the events that deliver input and one for the words the program read. Null until the first step.
+    private BufferedReader events;
+    private BufferedReader consumed;
+
+    // The next event to deliver and where it was delivered, or Long.MAX_VALUE once the recording is used up
+    private InputEvent next;
+    private long nextPosition = Long.MAX_VALUE;
+
+    // The next word the recording read
+    private InputEvent nextConsumed;
+    private long nextConsumedRetired;
+
+    // Statistics
+    private long delivered;
+    private long checkedWords;
+    private long divergences;
+
+    InputReplayer(Simulator context) {
+        this.context = context;
+        this.isReplaying = context.profile.inputReplayFile != null;
+    }
+
+    public boolean isReplaying() {
+        return this.isReplaying;
+    }
+
+    private void open() throws IOException {
+        String path = this.context.profile.inputReplayFile;
+        if (this.context.nodeCount > 1) path += ".node" + this.context.nodeId;
+        if (this.context.coreCount > 1) path += "." + this.context.coreId;
+        this.events = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+        this.consumed = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8);
+        this.readNext();
+        this.readNextConsumed();
+        this.context.io.engineerConsolePrintLn("Replaying input from " + path);
+    }
+
+    // Orders the points of a run. Retired instructions and faults only go up, and an instruction has five steps.
+    private static long getPosition(long retired, long faults, int step) {
+        return (retired + faults) * 8 + step;
+    }
+
+    private long getPosition(int step) {
+        return getPosition(this.context.timing.getRetiredInstructions(), this.context.timing.getFaults(), step);
+    }
+
+    private void readNext() throws IOException {
+        String line;
+        while ((line = this.events.readLine()) != null) {
+            String[] fields = line.split(" ", 4);
+            if (fields.length < 4 || fields[3].startsWith(InputEventType.CONSUMED.name())) continue;
+            this.next = InputEvent.parse(fields[3]);
+            this.nextPosition = getPosition(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2]));
+            return;
+        }
+        this.next = null;
+        this.nextPosition = Long.MAX_VALUE;
+    }
+
+    private void readNextConsumed() throws IOException {
+        String line;
+        while ((line = this.consumed.readLine()) != null) {
+            String[] fields = line.split(" ", 4);
+            if (fields.length < 4 || !fields[3].startsWith(InputEventType.CONSUMED.name())) continue;
+            this.nextConsumed = InputEvent.parse(fields[3]);
+            this.nextConsumedRetired = Long.parseLong(fields[0]);
+            return;
+        }
+        this.nextConsumed = null;
+    }
+
+    // Delivers the input the recording delivered up to the current step. Call on the machine's thread before a step.
+    public void deliver() {
+        this.deliverUpTo(this.context.cu.getExecutionStep());
+    }
+
+    // Delivers the input the recording delivered up to the end of the current instruction. Call when IN finds its buffer empty.
+    public void deliverAwaited() {
+        this.deliverUpTo(7);
+    }
+
+    private void deliverUpTo(int step) {
+        try {
+            if (this.events == null) this.open();
+            long position = this.getPosition(step);
+            while (this.nextPosition <= position) {
+                this.next.apply(this.context.io);
+                this.delivered++;
+                this.readNext();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot replay input: " + e.getMessage());
+            this.close();
+            this.isReplaying = false;
+        }
+    }
+
+    // Call when the program reads a word from an input buffer
+    public void consumed(short deviceId, short word) {
+        this.checkedWords++;
+        InputEvent expected = this.nextConsumed;
+        long retired = this.context.timing.getRetiredInstructions();
+        if (expected == null || expected.deviceId != deviceId || expected.words[0] != word || this.nextConsumedRetired != retired) {
+            if (this.divergences++ == 0) {
+                String recorded = expected == null ? "nothing" : expected.words[0] + " from device " + expected.deviceId + " at instruction " + this.nextConsumedRetired;
+                this.context.io.engineerConsolePrintLn("Replay diverged at instruction " + retired + ": read " + word + " from device " + deviceId + ", the recording read " + recorded + "!");
+            }
+        }
+        try {
+            if (expected != null) this.readNextConsumed();
+        } catch (IOException e) {
+            System.err.println("Cannot replay input: " + e.getMessage());
+            this.nextConsumed = null;
+        }
+    }
+
+    public long getDivergences() {
+        return this.divergences;
+    }
+
+    public void close() {
+        try {
+            if (this.events != null) this.events.close();
+            if (this.consumed != null) this.consumed.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close input replay: " + e.getMessage());
+        }
+        this.events = null;
+        this.consumed = null;
+    }
+
+    public void dumpStatistics() {
+        if (this.delivered == 0 && this.checkedWords == 0) return;
+        this.context.io.engineerConsolePrintLn("Input Replay: " + this.delivered + " events delivered, " + this.checkedWords + " words read, " + this.divergences + " divergences");
+    }
+}
@@ -26,6 +26,65 @@ public class Instruction {
         // NOOP
     }
 
+    // The execution step the instruction retires after
+    public int getRetirementStep() {
+        return 5;
+    }
+
+    // Called once the instruction has retired
+    public void retired() {
+        // NOOP
+    }
+
+    // The class of the instruction, which decides its latency in the timing model
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.MISCELLANEOUS;
+    }
+
+    /*
+     Register masks describe which registers an instruction reads and writes, so the pipeline model can find hazards.
+     R0-R3 are bits 0-3, X1-X3 are bits 4-6, FR0-FR1 are bits 7-8 and the condition code is bit 11.
+     */
+    static final int CONDITION_CODE_BIT = 1 << 11;
+
+    static int generalRegisterBit(int registerId) {
+        return 1 << registerId;
+    }
+
+    static int indexRegisterBit(int indexRegisterId) {
+        // Index register 0 means no indexing
+        return indexRegisterId == 0 ? 0 : 1 << (3 + indexRegisterId);
+    }
+
+    static int floatingRegisterBit(int floatingRegisterId) {
+        return 1 << (7 + floatingRegisterId);
+    }
+
+    // Registers read as data
+    public int getSourceRegisters() {
+        return 0;
+    }
+
+    // Registers read to compute the effective address
+    public int getAddressRegisters() {
+        return 0;
+    }
+
+    // Registers written
+    public int getDestinationRegisters() {
+        return 0;
+    }
+
+    // The execution step that decides whether a conditional branch is taken, or 0 if this is not a conditional branch
+    public int getBranchResolutionStep() {
+        return 0;
+    }
+
+    // Where a branch goes if it is taken, as decode sees it before any indirection, or the next address otherwise
+    public short getDecodedTarget() {
+        return (short)(this.context.cu.getInstructionAddress() + 1);
+    }
+
     public void validateGeneralRegisterIndex(short index){
         if (index < 0 || index > 3) {
             this.didFault = true;
@@ -70,6 +129,10 @@ class Trap extends Instruction {
         this.trapCode = Utils.short_unsigned_right_shift((short)(word & trapCodeMask), trapCodeOffset);
     }
 
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.TRAP;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException, IllegalTrapCodeException {
         // Switch to supervisor mode
         this.context.msr.setSupervisorMode(true);
@@ -82,6 +145,7 @@ class Trap extends Instruction {
         // Check to see if address is NULL, meaning an invalid trap code
         if (addressOfTrap == 0) throw new IllegalTrapCodeException(this.trapCode + " is not a valid trap code!");
 
+        if (this.context.flightRecorder.isEnabled(FlightRecorderEventType.TRAP)) this.context.flightRecorder.trap(this.trapCode);
         // Increment the call stack
         this.context.incrementCallStack(addressOfTrap);
         // Jump to the trap
@@ -103,7 +167,28 @@ class Halt extends Instruction {
 
     public void execute() {
         System.out.println("Halting...");
+        this.context.io.flushOutputSinks();
         this.context.msr.setIsRunning(false);
+    }
+
+    // The machine stops after Execute, so HLT retires there. Resuming starts with the next instruction.
+    public int getRetirementStep() {
+        return 4;
+    }
+
+    public void retired() {
+        this.context.flightRecorder.endBatch();
+        this.context.memory.dumpStatistics();
+        this.context.timing.dumpStatistics();
+        this.context.interrupts.dumpStatistics();
+        this.context.dma.dumpStatistics();
+        this.context.io.disk.dumpStatistics();
+        this.context.profiler.dumpStatistics();
+        this.context.sampler.dumpStatistics();
+        this.context.tracer.dumpStatistics();
+        this.context.journal.dumpStatistics();
+        this.context.inputRecorder.dumpStatistics();
+        this.context.inputReplayer.dumpStatistics();
         if (!this.context.msr.isInteractive()) {
             System.exit(1);
         }
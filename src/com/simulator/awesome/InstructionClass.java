@@ -0,0 +1,13 @@
+package com.simulator.awesome;
+
+// The groups of instructions that share an execution latency in the timing model
+enum InstructionClass {
+    MISCELLANEOUS,     // HLT
+    REGISTER_MEMORY,   // Loads, stores, immediates and transfers of control
+    REGISTER_REGISTER, // MLT, DVD, TRR, AND, ORR, NOT
+    SHIFT_ROTATE,      // SRC, RRC
+    FLOATING_POINT,    // FADD, FSUB, CNVRT, LDFR, STFR
+    VECTOR,            // VADD, VSUB
+    INPUT_OUTPUT,      // IN, OUT, CHK
+    TRAP               // TRAP
+}
@@ -5,8 +5,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
 
 import static com.simulator.awesome.Utils.stringToWord;
 import static com.simulator.awesome.Utils.wordToString;
@@ -315,6 +314,7 @@ public class Interface {
             @Override
             public void actionPerformed(ActionEvent e) {
                 context.cu.singleStep();
+                context.flushRecordings();
                 refresh();
             }
         });
@@ -399,9 +399,7 @@ public class Interface {
                     //context.io.addWordToInputBuffer((short) 0, stringToWord(Integer.toBinaryString(Integer.parseInt(consoleKeyboard.getText()))));
 
                     // Read the input from console keyboard as an array of ASCII characters. Place each character in the inputBuffer.
-                    for (char ch: consoleKeyboard.getText().toCharArray()){
-                        context.io.addWordToInputBuffer((short) 0, (short) ch);
-                    }
+                    context.io.addTextToInputBuffer((short) 0, consoleKeyboard.getText());
 
                     // Change input waiting state
                     context.msr.setReadyForInput(false);
@@ -453,21 +451,11 @@ public class Interface {
                     selectedCardLabel.setText(chooser.getSelectedFile().getName());
                     selectedCard = chooser.getSelectedFile();
 
-                    // Read the input as an array of ASCII characters.
-                    // Separate lines with ASCII 30 (record separator - RS)
+                    // The card reader streams the deck from disk as ASCII characters.
+                    // Separate lines with ASCII 10 (line feed)
                     // Mark end of file with ASCII 28 (file separator - FS)
                     try {
-                        Scanner scanner = new Scanner(selectedCard);
-                        String thisLine;
-                        // Read each character into the inputBuffer
-                        while (scanner.hasNextLine()){
-                            thisLine = scanner.nextLine();
-                            for (char ch: thisLine.toCharArray()){
-                                context.io.addWordToInputBuffer((short) 2, (short) ch);
-                            }
-                            context.io.addWordToInputBuffer((short) 2, (short) 10); // Add record separator RS
-                        }
-                        context.io.addWordToInputBuffer((short) 2, (short) 28); // Add file separator FS
+                        context.io.loadDeck(selectedCard);
                         // turn off the indicator light
                         setUIWaitingForCardInput(false);
                         // If the computer was waiting, resume execution
@@ -476,7 +464,7 @@ public class Interface {
                             context.msr.setWaitingForCard(false);
                             context.cu.startExecutionLoop();
                         }
-                    } catch (FileNotFoundException ex) {
+                    } catch (IOException ex) {
                         ex.printStackTrace();
                     }
 
@@ -515,21 +503,11 @@ public class Interface {
                 selectedCard = new File(basePath.concat("/static/deck-0.txt"));
                 selectedCardLabel.setText(selectedCard.getName());
 
-                // Read the input as an array of ASCII characters.
-                // Separate lines with ASCII 30 (record separator - RS)
+                // The card reader streams the deck from disk as ASCII characters.
+                // Separate lines with ASCII 10 (line feed)
                 // Mark end of file with ASCII 28 (file separator - FS)
                 try {
-                    Scanner scanner = new Scanner(selectedCard);
-                    String thisLine;
-                    // Read each character into the inputBuffer
-                    while (scanner.hasNextLine()){
-                        thisLine = scanner.nextLine();
-                        for (char ch: thisLine.toCharArray()){
-                            context.io.addWordToInputBuffer((short) 2, (short) ch);
-                        }
-                        context.io.addWordToInputBuffer((short) 2, (short) 10); // Add record separator RS
-                    }
-                    context.io.addWordToInputBuffer((short) 2, (short) 28); // Add file separator FS
+                    context.io.loadDeck(selectedCard);
                     // turn off the indicator light
                     setUIWaitingForCardInput(false);
                     // If the computer was waiting, resume execution
@@ -538,7 +516,7 @@ public class Interface {
                         context.msr.setWaitingForCard(false);
                         context.cu.startExecutionLoop();
                     }
-                } catch (FileNotFoundException ex) {
+                } catch (IOException ex) {
                     ex.printStackTrace();
                 }
 
@@ -0,0 +1,163 @@
+package com.simulator.awesome;
+
+/**
+ * Interrupt controller with eight lines, numbered 0-7. A raised line stays pending until it is taken.
+ * Between instructions, the control unit takes the lowest numbered pending line that is enabled in the mask, unless
+ * it is already running a fault or interrupt handler. The handler for line n is the address stored at address 8 + n,
+ * and lines without a handler are dropped when taken.
+ *
+ * Interrupts are entered like faults: the PC is saved to address 4, R0 to address 5, the line number is copied to R0
+ * and the machine switches to supervisor mode. RFS returns from the handler and restores R0. Other registers and the
+ * condition code must be saved by the handler.
+ *
+ * Programs use the controller as device 6. OUT r,6 sets the mask, CHK r,6 reads the mask and IN r,6 reads the pending
+ * lines.
+ */
+public class InterruptController {
+    static final int LINES = 8;
+    static final int TIMER_LINE = 0;
+    static final int KEYBOARD_LINE = 1;
+    static final int CARD_READER_LINE = 2;
+    static final int DMA_LINE = 3;
+
+    private final Simulator context;
+    public final IntervalTimer timer;
+
+    // One bit for each line
+    private int pending;
+    private int mask;
+
+    // Statistics
+    private final long[] taken = new long[LINES];
+    private long dropped;
+
+    InterruptController(Simulator context) {
+        this.context = context;
+        this.timer = new IntervalTimer(context, this);
+    }
+
+    // Devices raise lines from the execution loop or, for input, from the console
+    public synchronized void raise(int line) {
+        this.pending |= 1 << line;
+    }
+
+    // Raises the line for a device that just received input, if it has one
+    public void raiseForInputDevice(short deviceId) {
+        if (deviceId == 0) {
+            this.raise(KEYBOARD_LINE);
+        } else if (deviceId == 2) {
+            this.raise(CARD_READER_LINE);
+        }
+    }
+
+    /**
+     * Takes the lowest numbered pending line that is enabled
+     * @return the line, which is no longer pending, or -1 if no enabled line is pending
+     */
+    public synchronized int take() {
+        int deliverable = this.pending & this.mask;
+        if (deliverable == 0) return -1;
+        int line = Integer.numberOfTrailingZeros(deliverable);
+        this.pending &= ~(1 << line);
+        this.taken[line]++;
+        return line;
+    }
+
+    // Called when a taken line has no handler
+    public void drop() {
+        this.dropped++;
+    }
+
+    public synchronized short getPending() {
+        return (short) this.pending;
+    }
+
+    public synchronized short getMask() {
+        return (short) this.mask;
+    }
+
+    public synchronized void setMask(short mask) {
+        this.mask = mask & ((1 << LINES) - 1);
+    }
+
+    // Called by the control unit after every instruction retires
+    public void instructionRetired() {
+        this.timer.instructionRetired();
+    }
+
+    public long getTaken(int line) {
+        return this.taken[line];
+    }
+
+    public long getDropped() {
+        return this.dropped;
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Interrupt Controller (mask " + Integer.toBinaryString(this.mask) + ")");
+        for (int line = 0; line < LINES; line++) {
+            if (this.taken[line] > 0) this.context.io.engineerConsolePrintLn("    Line " + line + ": " + this.taken[line] + " taken");
+        }
+        this.context.io.engineerConsolePrintLn("    Dropped: " + this.dropped);
+        this.context.io.engineerConsolePrintLn("    Timer Expiries: " + this.timer.getExpiries());
+    }
+}
+
+/**
+ * A programmable interval timer that raises the timer line every time it counts down to zero, then reloads.
+ * It counts retired instructions or cycles, as set by timer.mode in the machine profile.
+ *
+ * Programs use the timer as device 5. OUT r,5 sets the interval and restarts the count, an interval of 0 stops the
+ * timer. CHK r,5 reads the interval and IN r,5 reads what is left of the count.
+ */
+class IntervalTimer {
+    private final Simulator context;
+    private final InterruptController controller;
+    private final TimerMode mode;
+
+    private long interval;
+    private long remaining;
+    // Timing model cycles when the timer last counted
+    private long lastCycles;
+
+    // Statistics
+    private long expiries;
+
+    IntervalTimer(Simulator context, InterruptController controller) {
+        this.context = context;
+        this.controller = controller;
+        this.mode = context.profile.timerMode;
+    }
+
+    // The interval is an unsigned word
+    public void program(short interval) {
+        this.interval = Short.toUnsignedInt(interval);
+        this.remaining = this.interval;
+        this.lastCycles = this.context.timing.getCycles();
+    }
+
+    void instructionRetired() {
+        if (this.interval == 0) return;
+        long cycles = this.context.timing.getCycles();
+        this.remaining -= this.mode == TimerMode.INSTRUCTIONS ? 1 : cycles - this.lastCycles;
+        this.lastCycles = cycles;
+        if (this.remaining > 0) return;
+
+        // A long instruction may have used up more than one interval, but the line is only raised once
+        this.remaining = this.interval - (-this.remaining % this.interval);
+        this.expiries++;
+        this.controller.raise(InterruptController.TIMER_LINE);
+    }
+
+    public short getInterval() {
+        return (short) this.interval;
+    }
+
+    public short getRemaining() {
+        return (short) this.remaining;
+    }
+
+    public long getExpiries() {
+        return this.expiries;
+    }
+}
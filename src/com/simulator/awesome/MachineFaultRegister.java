@@ -19,6 +19,9 @@ public class MachineFaultRegister {
 
     public byte get() { return this.mfr; }
 
+    // Restores all the bits at once, as the UndoJournal does
+    public void set(byte mfr) { this.mfr = mfr; }
+
     public boolean isIllegalMemoryAccessToReservedLocations() {
         return getNthLeastSignificantBit(this.mfr, 0);
     }
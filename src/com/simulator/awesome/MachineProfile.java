@@ -0,0 +1,415 @@
+package com.simulator.awesome;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * A machine profile describes the configurable parts of the simulated machine.
+ * Defaults come from Config. A profile can be loaded from a properties file, for example:
+ *
+ *   l1i.lines=16
+ *   l1i.ways=16
+ *   l1d.lines=16
+ *   l1d.ways=4
+ *   l1d.writePolicy=WRITE_BACK
+ *   l1d.writeMissPolicy=WRITE_ALLOCATE
+ *   l2.lines=128
+ *   l2.ways=8
+ *   l2.latency=6
+ *   memory.latency=30
+ *   memory.words=4096
+ *   l1d.prefetcher=STRIDE
+ *   l1d.prefetchDegree=2
+ *   prefetch.tableSize=64
+ *   latency.FLOATING_POINT=6
+ *   latency.fault=40
+ *   clock.mhz=25
+ *   core.mode=PIPELINED
+ *   pipeline.forwarding=false
+ *   ooo.robSize=32
+ *   ooo.aluStations=8
+ *   branch.predictor=GSHARE
+ *   btb.entries=32
+ *   cores.count=4
+ *   cores.threaded=false
+ *   timer.mode=CYCLES
+ *   dma.cyclesPerWord=2
+ *   disk.image=static/disk.img
+ *   output.1=FILE:printer.txt
+ *   output.bufferSize=65536
+ *   cluster.lockstep=false
+ *   channel.latency=100
+ *   input.blocking=true
+ *   profiler.enabled=true
+ *   sampler.interval=1000
+ *   trace.file=trace.bin
+ *   console.engineer=false
+ *   debug.breakpoints=200,1000-1015
+ *   journal.instructions=100000
+ *   input.record=input.log
+ *   jfr.batchInstructions=100000
+ *
+ * Setting l2.lines=0 removes the L2 cache, so L1 misses go straight to linear memory.
+ * Output devices without an output.n sink keep their words in their output buffer, see OutputSink for the others.
+ * With more than one core, each core has its own L1 caches and shares the L2 cache and linear memory.
+ */
+public class MachineProfile {
+    public CacheConfiguration l1InstructionCache;
+    public CacheConfiguration l1DataCache;
+    public CacheConfiguration l2Cache;
+
+    // Cycles needed to move a block between the last level of cache and linear memory
+    public int memoryLatency;
+
+    // Words of linear memory, for machines built from the profile such as the cores of a Multiprocessor
+    public int wordCount;
+
+    // Entries in the stride prefetcher's table, or the number of stream buffers
+    public int prefetchTableSize;
+
+    // Execute cycles for each instruction class, indexed by ordinal
+    public int[] instructionLatencies;
+
+    // Extra cycles charged each time a fault is handled
+    public int faultPenalty;
+
+    public int clockMegahertz;
+
+    public ExecutionMode executionMode;
+
+    // Whether the pipeline forwards results from Execute to the instructions behind it
+    public boolean isForwarding;
+
+    // Entries in the out of order core's reorder buffer and reservation stations for each functional unit
+    public int reorderBufferSize;
+    public int aluStations;
+    public int fpuStations;
+    public int memoryStations;
+
+    public BranchPredictorType branchPredictor;
+
+    // Counters in each branch predictor table
+    public int branchTableSize;
+
+    public int branchTargetBufferEntries;
+
+    // Cores in a Multiprocessor, and whether each runs on its own host thread instead of taking turns on one
+    public int coreCount;
+    public boolean isThreaded;
+
+    public TimerMode timerMode;
+
+    // Cycles the DMA controller takes to move each word, on top of one memory latency per transfer
+    public int dmaCyclesPerWord;
+
+    // The disk image of the block device, or null for no disk
+    public String diskImage;
+
+    // The sink of each output device, null for its output buffer, and the size and flush interval of sink buffers
+    public String[] outputSinks;
+    public int outputBufferSize;
+    public int outputFlushMillis;
+
+    // Nodes in a Cluster, and whether they take turns one step at a time instead of each running on its own host thread
+    public int nodeCount;
+    public boolean isLockstep;
+
+    // Words each direction of a channel holds, cycles before a sent word can be received and cycles between words
+    public int channelCapacity;
+    public int channelLatency;
+    public int channelCyclesPerWord;
+
+    // Whether IN parks the execution loop's thread until input arrives instead of pausing the loop
+    public boolean isBlockingInput;
+
+    // Whether the Profiler counts instructions from the start, and how many addresses its report lists
+    public boolean isProfiling;
+    public int profilerHotAddresses;
+
+    // Retired instructions between samples of the SamplingProfiler, 0 for none, and the file its call chains go to
+    public int sampleInterval;
+    public String sampleOutput;
+
+    // The file the TraceRecorder writes, or null for no trace, and the addresses of the instructions it records
+    public String traceFile;
+    public int traceFrom;
+    public int traceTo;
+
+    // Whether lines are written to the engineer console. Batch runs turn it off, as a line is added for every step.
+    public boolean isEngineerConsole;
+
+    // Addresses and ranges of addresses, like 5,1000-1015, that Breakpoints stops at, or null for none
+    public String breakpoints;
+    public String readWatchpoints;
+    public String writeWatchpoints;
+
+    // Instructions the UndoJournal can step back over, 0 for none, and how often and how many full checkpoints it keeps
+    public int journalInstructions;
+    public int journalCheckpointInterval;
+    public int journalCheckpoints;
+
+    // The file the InputRecorder writes the machine's input to and the file the InputReplayer feeds it from, or null
+    public String inputRecordFile;
+    public String inputReplayFile;
+
+    // Retired instructions in each batch sent to Java Flight Recorder, and how many cache misses each sent miss stands for
+    public int jfrBatchInstructions;
+    public int jfrCacheMissInterval;
+
+    MachineProfile() {
+        this.l1InstructionCache = new CacheConfiguration(Config.L1_CACHE_LINES, Config.L1_CACHE_WAYS, Config.L1_CACHE_LATENCY, CacheWritePolicy.WRITE_THROUGH, CacheWriteMissPolicy.NO_WRITE_ALLOCATE);
+        this.l1DataCache = new CacheConfiguration(Config.L1_CACHE_LINES, Config.L1_CACHE_WAYS, Config.L1_CACHE_LATENCY, Config.CACHE_WRITE_POLICY, Config.CACHE_WRITE_MISS_POLICY);
+        this.l2Cache = new CacheConfiguration(Config.L2_CACHE_LINES, Config.L2_CACHE_WAYS, Config.L2_CACHE_LATENCY, Config.CACHE_WRITE_POLICY, Config.CACHE_WRITE_MISS_POLICY);
+        this.memoryLatency = Config.MEMORY_LATENCY;
+        this.wordCount = Config.WORD_COUNT;
+        this.prefetchTableSize = Config.PREFETCH_TABLE_SIZE;
+        this.instructionLatencies = new int[InstructionClass.values().length];
+        this.instructionLatencies[InstructionClass.MISCELLANEOUS.ordinal()] = Config.MISCELLANEOUS_LATENCY;
+        this.instructionLatencies[InstructionClass.REGISTER_MEMORY.ordinal()] = Config.REGISTER_MEMORY_LATENCY;
+        this.instructionLatencies[InstructionClass.REGISTER_REGISTER.ordinal()] = Config.REGISTER_REGISTER_LATENCY;
+        this.instructionLatencies[InstructionClass.SHIFT_ROTATE.ordinal()] = Config.SHIFT_ROTATE_LATENCY;
+        this.instructionLatencies[InstructionClass.FLOATING_POINT.ordinal()] = Config.FLOATING_POINT_LATENCY;
+        this.instructionLatencies[InstructionClass.VECTOR.ordinal()] = Config.VECTOR_LATENCY;
+        this.instructionLatencies[InstructionClass.INPUT_OUTPUT.ordinal()] = Config.INPUT_OUTPUT_LATENCY;
+        this.instructionLatencies[InstructionClass.TRAP.ordinal()] = Config.TRAP_LATENCY;
+        this.faultPenalty = Config.FAULT_PENALTY;
+        this.clockMegahertz = Config.CLOCK_MEGAHERTZ;
+        this.executionMode = Config.EXECUTION_MODE;
+        this.isForwarding = Config.PIPELINE_FORWARDING;
+        this.reorderBufferSize = Config.REORDER_BUFFER_SIZE;
+        this.aluStations = Config.ALU_STATIONS;
+        this.fpuStations = Config.FPU_STATIONS;
+        this.memoryStations = Config.MEMORY_STATIONS;
+        this.branchPredictor = Config.BRANCH_PREDICTOR;
+        this.branchTableSize = Config.BRANCH_TABLE_SIZE;
+        this.branchTargetBufferEntries = Config.BRANCH_TARGET_BUFFER_ENTRIES;
+        this.coreCount = Config.CORE_COUNT;
+        this.isThreaded = Config.CORES_THREADED;
+        this.timerMode = Config.TIMER_MODE;
+        this.dmaCyclesPerWord = Config.DMA_CYCLES_PER_WORD;
+        this.diskImage = Config.DISK_IMAGE;
+        this.outputSinks = new String[Config.DEVICE_COUNT];
+        this.outputBufferSize = Config.OUTPUT_SINK_BUFFER_SIZE;
+        this.outputFlushMillis = Config.OUTPUT_SINK_FLUSH_MILLIS;
+        this.nodeCount = Config.NODE_COUNT;
+        this.isLockstep = Config.CLUSTER_LOCKSTEP;
+        this.channelCapacity = Config.CHANNEL_CAPACITY;
+        this.channelLatency = Config.CHANNEL_LATENCY;
+        this.channelCyclesPerWord = Config.CHANNEL_CYCLES_PER_WORD;
+        this.isBlockingInput = Config.INPUT_BLOCKING;
+        this.isProfiling = Config.PROFILING;
+        this.profilerHotAddresses = Config.PROFILER_HOT_ADDRESSES;
+        this.sampleInterval = Config.SAMPLE_INTERVAL;
+        this.sampleOutput = Config.SAMPLE_OUTPUT;
+        this.traceFile = Config.TRACE_FILE;
+        this.traceFrom = Config.TRACE_FROM;
+        this.traceTo = Config.TRACE_TO;
+        this.isEngineerConsole = Config.ENGINEER_CONSOLE;
+        this.breakpoints = Config.BREAKPOINTS;
+        this.readWatchpoints = Config.READ_WATCHPOINTS;
+        this.writeWatchpoints = Config.WRITE_WATCHPOINTS;
+        this.journalInstructions = Config.JOURNAL_INSTRUCTIONS;
+        this.journalCheckpointInterval = Config.JOURNAL_CHECKPOINT_INTERVAL;
+        this.journalCheckpoints = Config.JOURNAL_CHECKPOINTS;
+        this.inputRecordFile = Config.INPUT_RECORD_FILE;
+        this.inputReplayFile = Config.INPUT_REPLAY_FILE;
+        this.jfrBatchInstructions = Config.JFR_BATCH_INSTRUCTIONS;
+        this.jfrCacheMissInterval = Config.JFR_CACHE_MISS_INTERVAL;
+    }
+
+    public MachineProfile copy() {
+        MachineProfile copy = new MachineProfile();
+        copy.l1InstructionCache = this.l1InstructionCache.copy();
+        copy.l1DataCache = this.l1DataCache.copy();
+        copy.l2Cache = this.l2Cache.copy();
+        copy.memoryLatency = this.memoryLatency;
+        copy.wordCount = this.wordCount;
+        copy.prefetchTableSize = this.prefetchTableSize;
+        copy.instructionLatencies = this.instructionLatencies.clone();
+        copy.faultPenalty = this.faultPenalty;
+        copy.clockMegahertz = this.clockMegahertz;
+        copy.executionMode = this.executionMode;
+        copy.isForwarding = this.isForwarding;
+        copy.reorderBufferSize = this.reorderBufferSize;
+        copy.aluStations = this.aluStations;
+        copy.fpuStations = this.fpuStations;
+        copy.memoryStations = this.memoryStations;
+        copy.branchPredictor = this.branchPredictor;
+        copy.branchTableSize = this.branchTableSize;
+        copy.branchTargetBufferEntries = this.branchTargetBufferEntries;
+        copy.coreCount = this.coreCount;
+        copy.isThreaded = this.isThreaded;
+        copy.timerMode = this.timerMode;
+        copy.dmaCyclesPerWord = this.dmaCyclesPerWord;
+        copy.diskImage = this.diskImage;
+        copy.outputSinks = this.outputSinks.clone();
+        copy.outputBufferSize = this.outputBufferSize;
+        copy.outputFlushMillis = this.outputFlushMillis;
+        copy.nodeCount = this.nodeCount;
+        copy.isLockstep = this.isLockstep;
+        copy.channelCapacity = this.channelCapacity;
+        copy.channelLatency = this.channelLatency;
+        copy.channelCyclesPerWord = this.channelCyclesPerWord;
+        copy.isBlockingInput = this.isBlockingInput;
+        copy.isProfiling = this.isProfiling;
+        copy.profilerHotAddresses = this.profilerHotAddresses;
+        copy.sampleInterval = this.sampleInterval;
+        copy.sampleOutput = this.sampleOutput;
+        copy.traceFile = this.traceFile;
+        copy.traceFrom = this.traceFrom;
+        copy.traceTo = this.traceTo;
+        copy.isEngineerConsole = this.isEngineerConsole;
+        copy.breakpoints = this.breakpoints;
+        copy.readWatchpoints = this.readWatchpoints;
+        copy.writeWatchpoints = this.writeWatchpoints;
+        copy.journalInstructions = this.journalInstructions;
+        copy.journalCheckpointInterval = this.journalCheckpointInterval;
+        copy.journalCheckpoints = this.journalCheckpoints;
+        copy.inputRecordFile = this.inputRecordFile;
+        copy.inputReplayFile = this.inputReplayFile;
+        copy.jfrBatchInstructions = this.jfrBatchInstructions;
+        copy.jfrCacheMissInterval = this.jfrCacheMissInterval;
+        return copy;
+    }
+
+    public boolean hasL2Cache() {
+        return this.l2Cache.lines > 0;
+    }
+
+    public static MachineProfile load(String path) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(path)) {
+            properties.load(input);
+        }
+        MachineProfile profile = new MachineProfile();
+        profile.apply(properties);
+        return profile;
+    }
+
+    // Overrides the settings named in the properties, leaving all others unchanged
+    public void apply(Properties properties) {
+        applyCacheConfiguration(properties, "l1i", this.l1InstructionCache);
+        applyCacheConfiguration(properties, "l1d", this.l1DataCache);
+        applyCacheConfiguration(properties, "l2", this.l2Cache);
+        this.memoryLatency = getInt(properties, "memory.latency", this.memoryLatency);
+        this.wordCount = getInt(properties, "memory.words", this.wordCount);
+        if (this.wordCount <= 0 || this.wordCount > ProgramCounter.PC_MASK + 1) throw new Error("memory.words must be between 1 and " + (ProgramCounter.PC_MASK + 1) + "!");
+        this.prefetchTableSize = getInt(properties, "prefetch.tableSize", this.prefetchTableSize);
+        for (InstructionClass instructionClass : InstructionClass.values()) {
+            int i = instructionClass.ordinal();
+            this.instructionLatencies[i] = getInt(properties, "latency." + instructionClass, this.instructionLatencies[i]);
+        }
+        this.faultPenalty = getInt(properties, "latency.fault", this.faultPenalty);
+        this.clockMegahertz = getInt(properties, "clock.mhz", this.clockMegahertz);
+        if (this.clockMegahertz <= 0) throw new Error("clock.mhz must be positive!");
+        String executionMode = properties.getProperty("core.mode");
+        if (executionMode != null) this.executionMode = ExecutionMode.valueOf(executionMode.trim());
+        String forwarding = properties.getProperty("pipeline.forwarding");
+        if (forwarding != null) this.isForwarding = Boolean.parseBoolean(forwarding.trim());
+        this.reorderBufferSize = getInt(properties, "ooo.robSize", this.reorderBufferSize);
+        this.aluStations = getInt(properties, "ooo.aluStations", this.aluStations);
+        this.fpuStations = getInt(properties, "ooo.fpuStations", this.fpuStations);
+        this.memoryStations = getInt(properties, "ooo.memoryStations", this.memoryStations);
+        if (this.reorderBufferSize <= 0 || this.aluStations <= 0 || this.fpuStations <= 0 || this.memoryStations <= 0) throw new Error("ooo.robSize and reservation station counts must be positive!");
+        String branchPredictor = properties.getProperty("branch.predictor");
+        if (branchPredictor != null) this.branchPredictor = BranchPredictorType.valueOf(branchPredictor.trim());
+        this.branchTableSize = getInt(properties, "branch.tableSize", this.branchTableSize);
+        this.branchTargetBufferEntries = getInt(properties, "btb.entries", this.branchTargetBufferEntries);
+        if (this.branchTableSize <= 0 || this.branchTargetBufferEntries <= 0) throw new Error("branch.tableSize and btb.entries must be positive!");
+        this.coreCount = getInt(properties, "cores.count", this.coreCount);
+        if (this.coreCount <= 0) throw new Error("cores.count must be positive!");
+        String threaded = properties.getProperty("cores.threaded");
+        if (threaded != null) this.isThreaded = Boolean.parseBoolean(threaded.trim());
+        String timerMode = properties.getProperty("timer.mode");
+        if (timerMode != null) this.timerMode = TimerMode.valueOf(timerMode.trim());
+        this.dmaCyclesPerWord = getInt(properties, "dma.cyclesPerWord", this.dmaCyclesPerWord);
+        if (this.dmaCyclesPerWord < 0) throw new Error("dma.cyclesPerWord must not be negative!");
+        String diskImage = properties.getProperty("disk.image");
+        if (diskImage != null) this.diskImage = diskImage.trim().isEmpty() ? null : diskImage.trim();
+        for (int device = 0; device < Config.DEVICE_COUNT; device++) {
+            String sink = properties.getProperty("output." + device);
+            if (sink != null) this.outputSinks[device] = sink.trim().isEmpty() ? null : sink.trim();
+        }
+        this.outputBufferSize = getInt(properties, "output.bufferSize", this.outputBufferSize);
+        this.outputFlushMillis = getInt(properties, "output.flushMillis", this.outputFlushMillis);
+        if (this.outputBufferSize < 16 || this.outputFlushMillis < 0) throw new Error("output.bufferSize must be at least 16 and output.flushMillis must not be negative!");
+        this.nodeCount = getInt(properties, "cluster.nodes", this.nodeCount);
+        if (this.nodeCount <= 0) throw new Error("cluster.nodes must be positive!");
+        String lockstep = properties.getProperty("cluster.lockstep");
+        if (lockstep != null) this.isLockstep = Boolean.parseBoolean(lockstep.trim());
+        this.channelCapacity = getInt(properties, "channel.capacity", this.channelCapacity);
+        this.channelLatency = getInt(properties, "channel.latency", this.channelLatency);
+        this.channelCyclesPerWord = getInt(properties, "channel.cyclesPerWord", this.channelCyclesPerWord);
+        if (this.channelCapacity <= 0 || this.channelLatency < 0 || this.channelCyclesPerWord < 0) throw new Error("channel.capacity must be positive and channel timings must not be negative!");
+        String blocking = properties.getProperty("input.blocking");
+        if (blocking != null) this.isBlockingInput = Boolean.parseBoolean(blocking.trim());
+        String profiling = properties.getProperty("profiler.enabled");
+        if (profiling != null) this.isProfiling = Boolean.parseBoolean(profiling.trim());
+        this.profilerHotAddresses = getInt(properties, "profiler.hotAddresses", this.profilerHotAddresses);
+        if (this.profilerHotAddresses < 0) throw new Error("profiler.hotAddresses must not be negative!");
+        this.sampleInterval = getInt(properties, "sampler.interval", this.sampleInterval);
+        if (this.sampleInterval < 0) throw new Error("sampler.interval must not be negative!");
+        String sampleOutput = properties.getProperty("sampler.output");
+        if (sampleOutput != null && !sampleOutput.trim().isEmpty()) this.sampleOutput = sampleOutput.trim();
+        String traceFile = properties.getProperty("trace.file");
+        if (traceFile != null) this.traceFile = traceFile.trim().isEmpty() ? null : traceFile.trim();
+        this.traceFrom = getInt(properties, "trace.from", this.traceFrom);
+        this.traceTo = getInt(properties, "trace.to", this.traceTo);
+        if (this.traceFrom < 0 || this.traceTo > 0xFFFF || this.traceFrom > this.traceTo) throw new Error("trace.from and trace.to must be addresses, lowest first!");
+        String engineerConsole = properties.getProperty("console.engineer");
+        if (engineerConsole != null) this.isEngineerConsole = Boolean.parseBoolean(engineerConsole.trim());
+        this.breakpoints = getAddresses(properties, "debug.breakpoints", this.breakpoints);
+        this.readWatchpoints = getAddresses(properties, "debug.readWatchpoints", this.readWatchpoints);
+        this.writeWatchpoints = getAddresses(properties, "debug.writeWatchpoints", this.writeWatchpoints);
+        this.journalInstructions = getInt(properties, "journal.instructions", this.journalInstructions);
+        this.journalCheckpointInterval = getInt(properties, "journal.checkpointInterval", this.journalCheckpointInterval);
+        this.journalCheckpoints = getInt(properties, "journal.checkpoints", this.journalCheckpoints);
+        if (this.journalInstructions < 0 || this.journalInstructions > 1 << 24 || this.journalCheckpointInterval <= 0 || this.journalCheckpoints < 0) throw new Error("journal.instructions must be between 0 and " + (1 << 24) + ", journal.checkpointInterval must be positive and journal.checkpoints must not be negative!");
+        String inputRecordFile = properties.getProperty("input.record");
+        if (inputRecordFile != null) this.inputRecordFile = inputRecordFile.trim().isEmpty() ? null : inputRecordFile.trim();
+        String inputReplayFile = properties.getProperty("input.replay");
+        if (inputReplayFile != null) this.inputReplayFile = inputReplayFile.trim().isEmpty() ? null : inputReplayFile.trim();
+        if (this.inputRecordFile != null && this.inputReplayFile != null) throw new Error("input.record and input.replay cannot both be set!");
+        this.jfrBatchInstructions = getInt(properties, "jfr.batchInstructions", this.jfrBatchInstructions);
+        this.jfrCacheMissInterval = getInt(properties, "jfr.cacheMissInterval", this.jfrCacheMissInterval);
+        if (this.jfrBatchInstructions <= 0 || this.jfrCacheMissInterval <= 0) throw new Error("jfr.batchInstructions and jfr.cacheMissInterval must be positive!");
+    }
+
+    private static void applyCacheConfiguration(Properties properties, String prefix, CacheConfiguration configuration) {
+        configuration.lines = getInt(properties, prefix + ".lines", configuration.lines);
+        configuration.ways = getInt(properties, prefix + ".ways", configuration.ways);
+        configuration.hitLatency = getInt(properties, prefix + ".latency", configuration.hitLatency);
+        String writePolicy = properties.getProperty(prefix + ".writePolicy");
+        if (writePolicy != null) configuration.writePolicy = CacheWritePolicy.valueOf(writePolicy.trim());
+        String writeMissPolicy = properties.getProperty(prefix + ".writeMissPolicy");
+        if (writeMissPolicy != null) configuration.writeMissPolicy = CacheWriteMissPolicy.valueOf(writeMissPolicy.trim());
+        String prefetcher = properties.getProperty(prefix + ".prefetcher");
+        if (prefetcher != null) configuration.prefetcher = PrefetcherType.valueOf(prefetcher.trim());
+        configuration.prefetchDegree = getInt(properties, prefix + ".prefetchDegree", configuration.prefetchDegree);
+    }
+
+    // A list of addresses, or null if the setting is empty
+    private static String getAddresses(Properties properties, String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        return value.trim().isEmpty() ? null : value.trim();
+    }
+
+    static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public String toString() {
+        return "L1-I: " + this.l1InstructionCache + "\n"
+                + "L1-D: " + this.l1DataCache + "\n"
+                + "L2: " + (this.hasL2Cache() ? this.l2Cache.toString() : "none") + "\n"
+                + "Memory Latency: " + this.memoryLatency + " cycles\n"
+                + "Clock: " + this.clockMegahertz + " MHz\n"
+                + "Cores: " + this.coreCount + (this.coreCount > 1 ? (this.isThreaded ? ", threaded" : ", interleaved") : "") + "\n"
+                + "Execution Mode: " + this.executionMode + (this.executionMode == ExecutionMode.PIPELINED ? (this.isForwarding ? " with forwarding" : " without forwarding") : "")
+                + (this.executionMode == ExecutionMode.OUT_OF_ORDER ? " with a " + this.reorderBufferSize + " entry reorder buffer, " + this.aluStations + " ALU, " + this.fpuStations + " FPU and " + this.memoryStations + " memory stations" : "");
+    }
+}
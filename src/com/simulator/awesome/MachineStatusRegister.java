@@ -17,6 +17,7 @@ import static com.simulator.awesome.Utils.*;
 // 0000000001000000 | Supervisor Fault Flag
 // 0000000110000000 | Call Stack Depth Bits
 // 0000001000000000 | Waiting for card from virtual card reader
+// 0000010000000000 | Interrupt Handler Flag
 // All others reserved
 public class MachineStatusRegister {
     private short msr;
@@ -25,6 +26,11 @@ public class MachineStatusRegister {
         this.msr = 0;
     }
 
+    public short get() { return this.msr; }
+
+    // Restores all the bits at once, as the UndoJournal does
+    public void set(short msr) { this.msr = msr; }
+
     public boolean isSupervisorMode() {
         return getNthLeastSignificantBit(this.msr, 0);
     }
@@ -103,4 +109,12 @@ public class MachineStatusRegister {
     public void setWaitingForCard(boolean isWaitingForCard){
         this.msr = (short)setNthLeastSignificantBit(this.msr, 9, isWaitingForCard);
     }
+
+    // Set along with the Fault Handler Flag when the handler was entered for an interrupt
+    public boolean isExecutingInterruptHandler(){
+        return getNthLeastSignificantBit(this.msr, 10);
+    }
+    public void setIsExecutingInterruptHandler(boolean isExecutingInterruptHandler){
+        this.msr = setNthLeastSignificantBit(this.msr, 10, isExecutingInterruptHandler);
+    }
 }
@@ -1,20 +1,38 @@
 package com.simulator.awesome;
 
 import javax.swing.*;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.String;
 
+/**
+ * Starts the simulator with its console, or runs a program without it:
+ *   Main [profile] [program [deck]]
+ * Given a program in static/, the machine boots and runs it on the main thread with blocking input. Lines typed on
+ * standard input go to the keyboard, a deck in static/ is loaded into the card reader and the printer writes to
+ * standard output unless the profile gives it a sink. The host exits once the program halts, or once standard input
+ * ends and the program waits for more. With cores.count above one the program runs on a Multiprocessor, and with
+ * cluster.nodes above one on every node of a Cluster. The boot core or the first node gets the keyboard and the deck.
+ * The console's window always runs a single machine.
+ */
 class Main {
     public static void main(String[] args) {
         try {
-            boolean isInteractive = true;
+            boolean isInteractive = args.length < 2;
             boolean isDebug = true;
 
-            Simulator myComputer = new Simulator(2048);
-
-//            myComputer.msr.setIsDebugging(true);
+            // The machine profile can be passed as the first argument
+            MachineProfile profile = args.length > 0 ? MachineProfile.load(args[0]) : new MachineProfile();
 
             if (isInteractive) {
+                Simulator myComputer = new Simulator(profile.wordCount, profile);
+                // Closing the window exits the host, which must not lose the files the machine was writing
+                Runtime.getRuntime().addShutdownHook(new Thread(myComputer::shutdown, "Simulator Shutdown"));
+
+//                myComputer.msr.setIsDebugging(true);
+
                 myComputer.attachConsole();
                 myComputer.io.initializeIOBuffers();
                 Interface myInterface = new Interface(myComputer);
@@ -27,7 +45,7 @@ class Main {
                     myInterface.pollIOStatus();
                 }
             } else {
-                System.out.println("Headless non-interactive operation is not yet implemented.");
+                runHeadless(profile, args[1], args.length > 2 ? args[2] : null);
             }
 
         } catch (Exception e) {
@@ -35,4 +53,78 @@ class Main {
         }
     }
 
+    private static void runHeadless(MachineProfile profile, String program, String deck) throws IOException {
+        // Nothing reads the engineer's console without the window, and IN can wait on this thread
+        profile.isEngineerConsole = false;
+        profile.isBlockingInput = true;
+        // Nothing drains the printer's output buffer either
+        String printer = profile.outputSinks[1];
+        if (printer == null || printer.trim().equals(OutputSinkType.QUEUE.name())) profile.outputSinks[1] = OutputSinkType.STDOUT.name();
+
+        Cluster cluster = profile.nodeCount > 1 ? new Cluster(profile) : null;
+        Multiprocessor multiprocessor = profile.coreCount > 1 ? new Multiprocessor(profile) : null;
+        Simulator[] machines;
+        if (cluster != null) {
+            machines = cluster.nodes;
+        } else if (multiprocessor != null) {
+            machines = multiprocessor.cores;
+        } else {
+            machines = new Simulator[]{new Simulator(profile.wordCount, profile)};
+        }
+        for (Simulator machine : machines) {
+            Runtime.getRuntime().addShutdownHook(new Thread(machine::shutdown, "Simulator Shutdown"));
+        }
+        Simulator machine = machines[0];
+        if (cluster != null) {
+            cluster.reset();
+        } else if (multiprocessor != null) {
+            multiprocessor.reset();
+        } else {
+            // Attached so HLT returns here instead of exiting
+            machine.attachConsole();
+            machine.io.initializeIOBuffers();
+            machine.reset();
+        }
+        Assembler assembler = new Assembler();
+        assembler.loadFile(new File("static", program).getAbsolutePath());
+        String[] machineCode = assembler.convertToMachineCode();
+        if (cluster != null) {
+            cluster.load(machineCode, (short) 160);
+        } else {
+            machine.rom.load();
+            machine.loadUserProgram(machineCode, (short) 160);
+        }
+        if (deck != null) machine.io.loadDeck(new File("static", deck));
+
+        Thread keyboard = new Thread(() -> readKeyboard(machines), "Keyboard");
+        keyboard.setDaemon(true);
+        keyboard.start();
+        if (cluster != null) {
+            cluster.run();
+        } else if (multiprocessor != null) {
+            multiprocessor.run();
+        } else {
+            machine.cu.startExecutionLoop();
+        }
+        for (Simulator each : machines) {
+            each.io.flushOutputSinks();
+        }
+    }
+
+    // Types each line of standard input on the first machine's keyboard, then tells every machine no more input will come
+    private static void readKeyboard(Simulator[] machines) {
+        Simulator machine = machines[0];
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                machine.io.addTextToInputBuffer((short) 0, line + "\n");
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read standard input: " + e.getMessage());
+        }
+        for (Simulator each : machines) {
+            each.io.endInput();
+        }
+    }
+
 }
@@ -1,5 +1,7 @@
 package com.simulator.awesome;
 
+import java.util.Arrays;
+
 import static com.simulator.awesome.Utils.wordToString;
 
 public class Memory {
@@ -9,7 +11,11 @@ public class Memory {
     // The linear memory of our simulated system.
     // Shorts in Java are 16-bit, so this is word addressable
     // The index represents the nth word, zero indexed
-    private final Short[] memory;
+    // The cores of a multiprocessor all use the linear memory of their coherence bus
+    private Short[] memory;
+
+    // A bit for each word this core or a device stored to since the last dump, so debug dumps only show what changed
+    private final long[] changedWords;
 
     // Memory Address Register. Holds the address of the word to be fetched from memory
     public MemoryAddressRegister mar;
@@ -18,11 +24,29 @@ public class Memory {
     // Also known as the Memory Data Register (MDR) in certain architectures
     private short mbr;
 
-    // Cache
-    public Cache cache;
+    // Cache Hierarchy
+    // Instruction fetches go to the L1 Instruction Cache, operands go to the L1 Data Cache.
+    // Both are backed by a unified L2 Cache (if the machine profile has one) and then linear memory.
+    public Cache instructionCache;
+    public Cache dataCache;
+    public Cache l2Cache;
+
+    // Memory traffic between the last level of cache and linear memory
+    private long wordsReadFromMemory;
+    private long wordsWrittenToMemory;
+    private long blocksWrittenBack;
+    private long memoryCycles;
+
+    // Words read and written by the DMA controller, and the cached blocks it invalidated
+    private long wordsReadByDevices;
+    private long wordsWrittenByDevices;
+    private long blocksInvalidatedByDevices;
 
     private final Simulator context;
 
+    // Null unless this is one core of a multiprocessor
+    private CoherenceBus bus;
+
     short boundsLowerProtectedMemory = 15;
     short boundsLowerReadOnlyMemory = 16;
     short baseUpperReadOnlyMemory;
@@ -32,9 +56,11 @@ public class Memory {
     Memory(Simulator context, int wordCount){
         this.context = context;
 
-        // Allocate and zero out Linear Memory
-        this.wordCount = Config.WORD_COUNT;
+        // Allocate and zero out Linear Memory. The PC and MAR cannot address more words than their masks allow.
+        if (wordCount <= 0 || wordCount > ProgramCounter.PC_MASK + 1) throw new Error("Memory must have between 1 and " + (ProgramCounter.PC_MASK + 1) + " words!");
+        this.wordCount = wordCount;
         this.memory = new Short[this.wordCount];
+        this.changedWords = new long[(this.wordCount + 63) / 64];
 
         this.mar = new MemoryAddressRegister();
         this.mbr = 0;
@@ -43,16 +69,56 @@ public class Memory {
             this.memory[i] = 0;
         }
 
-        this.cache = new Cache(context);
+        this.initializeCaches();
     }
 
     public void reset(){
         this.mar = new MemoryAddressRegister();
         this.mbr = 0;
-        for (int i = 0; i < this.wordCount; i++) {
-            this.memory[i] = 0;
+        // Resetting one core of a multiprocessor keeps the memory the other cores share
+        if (this.bus == null) {
+            for (int i = 0; i < this.wordCount; i++) {
+                this.memory[i] = 0;
+            }
+        }
+        Arrays.fill(this.changedWords, 0);
+        this.initializeCaches();
+    }
+
+    // Makes this the memory subsystem of one core on a coherence bus. Its own L1 caches become private.
+    void attach(CoherenceBus bus){
+        this.bus = bus;
+        this.memory = bus.memory;
+        this.l2Cache = bus.l2Cache;
+        bus.attach(this);
+    }
+
+    public CoherenceBus getBus() {
+        return this.bus;
+    }
+
+    // Cores of a multiprocessor take turns to access memory
+    private Object getLock(){
+        return this.bus != null ? this.bus : this;
+    }
+
+    // Builds empty caches from the machine profile and clears the traffic counters
+    private void initializeCaches(){
+        MachineProfile profile = this.context.profile;
+        this.instructionCache = new Cache(this.context, "L1-I", profile.l1InstructionCache);
+        this.dataCache = new Cache(this.context, "L1-D", profile.l1DataCache);
+        if (this.bus != null) {
+            this.l2Cache = this.bus.l2Cache;
+        } else {
+            this.l2Cache = profile.hasL2Cache() ? new Cache(this.context, "L2", profile.l2Cache) : null;
         }
-        this.cache = new Cache(context);
+        this.wordsReadFromMemory = 0;
+        this.wordsWrittenToMemory = 0;
+        this.blocksWrittenBack = 0;
+        this.memoryCycles = 0;
+        this.wordsReadByDevices = 0;
+        this.wordsWrittenByDevices = 0;
+        this.blocksInvalidatedByDevices = 0;
     }
 
     public short getWordCount() {
@@ -67,10 +133,12 @@ public class Memory {
         this.mbr = mbr;
     }
 
-    // Given an address, get the block containing that word
+    // Given an address, get the block containing that word from linear memory
     private short[] getBlock(short address){
         // Get the base block-aligned address
         short base = (short)(address & 0b1111111111111100);
+        this.wordsReadFromMemory += 4;
+        this.memoryCycles += this.context.profile.memoryLatency;
         return new short[]{
                 this.memory[base],
                 this.memory[base + 1],
@@ -79,29 +147,392 @@ public class Memory {
         };
     }
 
-    private short getWord(int address) {
-        Short cacheResult = this.cache.fetch((short)address);
-        if (cacheResult != null) {
-            this.context.io.engineerConsolePrintLn("Cache Hit! " + address + " was in cache!");
-            return cacheResult;
+    // Copies a line evicted from the last level of cache back to linear memory
+    private void writeBackLineToMemory(CacheLine cacheLine){
+        short base = cacheLine.getBaseAddress();
+        for (short i = 0; i < 4; i++) {
+            this.memory[base + i] = cacheLine.getWord(i);
+        }
+        this.wordsWrittenToMemory += 4;
+        this.blocksWrittenBack++;
+        this.memoryCycles += this.context.profile.memoryLatency;
+        cacheLine.setDirty(false);
+    }
+
+    private void writeWordToMemory(short address, short value){
+        this.memory[address] = value;
+        this.wordsWrittenToMemory++;
+        this.memoryCycles += this.context.profile.memoryLatency;
+    }
+
+    // Reads the block containing an address from the level below the L1 caches, allocating it in the L2 on a miss
+    private short[] readBlockBelowL1(short address){
+        if (this.l2Cache == null) return this.getBlock(address);
+
+        CacheLine l2Line = this.l2Cache.read(address);
+        if (l2Line != null) {
+            // L1 and L2 lines must never share the same array of words
+            return l2Line.words.clone();
+        }
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+        this.context.io.engineerConsolePrintLn("L2 Miss! Adding " + address + " as tag " + tag);
+        short[] block = this.getBlock(address);
+        CacheLine evicted = this.l2Cache.store(tag, block.clone());
+        if (evicted != null && evicted.isDirty()) this.writeBackLineToMemory(evicted);
+        return block;
+    }
+
+    // Writes an evicted dirty L1 line to the level below
+    private void writeBackLineBelowL1(CacheLine cacheLine){
+        if (this.l2Cache == null) {
+            this.writeBackLineToMemory(cacheLine);
+            return;
+        }
+        short base = cacheLine.getBaseAddress();
+        for (short i = 0; i < 4; i++) {
+            this.writeWordBelowL1((short)(base + i), cacheLine.getWord(i));
+        }
+        cacheLine.setDirty(false);
+    }
+
+    // Writes a single word to the level below the L1 caches, following the write policies of the L2
+    private void writeWordBelowL1(short address, short value){
+        if (this.l2Cache == null) {
+            this.writeWordToMemory(address, value);
+            return;
+        }
+        boolean isCached = this.l2Cache.write(address, value) != null;
+        if (!isCached && this.l2Cache.getWriteMissPolicy() == CacheWriteMissPolicy.WRITE_ALLOCATE) {
+            short tag = Utils.short_unsigned_right_shift(address, 2);
+            CacheLine evicted = this.l2Cache.store(tag, this.getBlock(address));
+            if (evicted != null && evicted.isDirty()) this.writeBackLineToMemory(evicted);
+            this.l2Cache.fill(this.l2Cache.find(address), address, value);
+            isCached = true;
+        }
+        if (!isCached || this.l2Cache.getWritePolicy() == CacheWritePolicy.WRITE_THROUGH) {
+            this.writeWordToMemory(address, value);
+        }
+    }
+
+    // Reads the block containing an address for an L1 cache without touching that cache
+    private short[] readBlockForCache(Cache l1Cache, short address){
+        CacheLine dirtyDataLine = l1Cache == this.instructionCache ? this.dataCache.find(address) : null;
+        if (dirtyDataLine != null && dirtyDataLine.isDirty()) {
+            // Code that was just stored may still only be in a write-back L1 Data Cache
+            return dirtyDataLine.words.clone();
+        }
+        return this.readBlockBelowL1(address);
+    }
+
+    // Loads the block containing an address into an L1 cache, writing back the evicted line if it was dirty
+    private CacheLine allocateBlock(Cache l1Cache, short address, boolean isDemand, BusTransaction transaction){
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+        // Other cores write back a modified copy before the block is read from the level below
+        boolean isShared = this.broadcast(transaction, address);
+        // Stream buffers may already hold the block for a demand miss
+        short[] block = isDemand ? l1Cache.prefetcher.take(address) : null;
+        if (block == null) block = this.readBlockForCache(l1Cache, address);
+        CacheLine evicted = l1Cache.store(tag, block);
+        if (evicted != null && evicted.isDirty()) {
+            this.context.io.engineerConsolePrintLn("Writing back dirty tag " + evicted.getTag() + " from " + l1Cache.name);
+            this.writeBackLineBelowL1(evicted);
+        }
+        CacheLine cacheLine = l1Cache.find(address);
+        cacheLine.setShared(isShared);
+        return cacheLine;
+    }
+
+    // Returns true if another core still holds a copy of the block
+    private boolean broadcast(BusTransaction transaction, short address){
+        return this.bus != null && this.bus.broadcast(this, transaction, address);
+    }
+
+    /**
+     * Called by the coherence bus when another core broadcasts a transaction
+     * @return true if this core still holds a copy of the block
+     */
+    boolean snoop(BusTransaction transaction, short address){
+        CacheLine dataLine = this.dataCache.find(address);
+        CacheLine instructionLine = this.instructionCache.find(address);
+        if (dataLine != null && dataLine.isDirty()) {
+            this.context.io.engineerConsolePrintLn("Snoop hit on modified tag " + dataLine.getTag() + "! Writing back from " + this.dataCache.name);
+            this.writeBackLineBelowL1(dataLine);
+            this.bus.interventions++;
+        }
+        if (transaction == BusTransaction.BUS_READ) {
+            if (dataLine != null) dataLine.setShared(true);
+            if (instructionLine != null) instructionLine.setShared(true);
+            return dataLine != null || instructionLine != null;
+        }
+
+        // The requester is about to write the block
+        this.dataCache.prefetcher.invalidate(address);
+        this.instructionCache.prefetcher.invalidate(address);
+        if (dataLine != null) {
+            dataLine.invalidateWord();
+            this.dataCache.markChanged(dataLine);
+            this.bus.invalidations++;
+        }
+        if (instructionLine != null) {
+            instructionLine.invalidateWord();
+            this.instructionCache.markChanged(instructionLine);
+        }
+        return false;
+    }
+
+    // Counts a demand access that used a prefetched line for the first time
+    private boolean useIfPrefetched(Cache l1Cache, CacheLine cacheLine){
+        if (cacheLine == null || !cacheLine.isPrefetched()) return false;
+        cacheLine.setPrefetched(false);
+        l1Cache.prefetcher.useful++;
+        return true;
+    }
+
+    private boolean isPrefetchable(short address){
+        return address >= 0 && address < this.wordCount;
+    }
+
+    // Called by prefetchers to bring a block into their cache ahead of a demand access
+    public void prefetchIntoCache(Prefetcher prefetcher, short address){
+        if (!this.isPrefetchable(address) || prefetcher.cache.find(address) != null) return;
+        long cycles = this.getAccessCycles();
+        this.allocateBlock(prefetcher.cache, address, false, BusTransaction.BUS_READ).setPrefetched(true);
+        prefetcher.issued++;
+        prefetcher.prefetchCycles += this.getAccessCycles() - cycles;
+    }
+
+    // Called by prefetchers that keep blocks outside of their cache
+    public short[] prefetchBlock(Prefetcher prefetcher, short address){
+        if (!this.isPrefetchable(address)) return null;
+        prefetcher.issued++;
+        // The cache may hold a newer copy than the next level
+        CacheLine cachedLine = prefetcher.cache.find(address);
+        if (cachedLine != null) return cachedLine.words.clone();
+        long cycles = this.getAccessCycles();
+        this.broadcast(BusTransaction.BUS_READ, address);
+        short[] block = this.readBlockForCache(prefetcher.cache, address);
+        prefetcher.prefetchCycles += this.getAccessCycles() - cycles;
+        return block;
+    }
+
+    private short getWord(Cache l1Cache, int address) {
+        CacheLine cacheLine = l1Cache.read((short)address);
+        boolean isHit = cacheLine != null;
+        boolean isFirstUseOfPrefetch = this.useIfPrefetched(l1Cache, cacheLine);
+        if (isHit) {
+            this.context.io.engineerConsolePrintLn("Cache Hit! " + address + " was in " + l1Cache.name + "!");
         } else {
             short tag = Utils.short_unsigned_right_shift((short)address, 2);
-            this.context.io.engineerConsolePrintLn("Cache Miss! Adding " + address + " as tag " + tag);
-            this.cache.store(tag, this.getBlock((short)address));
-            return this.memory[address];
+            this.context.io.engineerConsolePrintLn("Cache Miss! Adding " + address + " as tag " + tag + " to " + l1Cache.name);
+            cacheLine = this.allocateBlock(l1Cache, (short)address, true, BusTransaction.BUS_READ);
         }
+        short word = cacheLine.getWord((short)(address % 4));
+        l1Cache.prefetcher.observe(this.context.cu.getInstructionAddress(), (short)address, isHit, isFirstUseOfPrefetch);
+        return word;
     }
 
     private void setWord(int address, short value) {
         try {
-            this.cache.updateIfPresent((short)address, value);
-            this.memory[address] = value;
+            // Prefetchers must not hand out a stale copy of this block later
+            this.dataCache.prefetcher.invalidate((short)address);
+            this.instructionCache.prefetcher.invalidate((short)address);
+
+            CacheLine cacheLine = this.dataCache.write((short)address, value);
+            boolean isHit = cacheLine != null;
+            boolean isFirstUseOfPrefetch = this.useIfPrefetched(this.dataCache, cacheLine);
+            if (isHit && cacheLine.isShared()) {
+                // Other cores must drop their copies before this one is modified
+                this.broadcast(BusTransaction.BUS_UPGRADE, (short)address);
+                cacheLine.setShared(false);
+            }
+            if (!isHit && this.dataCache.getWriteMissPolicy() == CacheWriteMissPolicy.WRITE_ALLOCATE) {
+                cacheLine = this.allocateBlock(this.dataCache, (short)address, true, BusTransaction.BUS_READ_EXCLUSIVE);
+                this.dataCache.fill(cacheLine, (short)address, value);
+            } else if (!isHit) {
+                // The word goes straight to the level below, after other cores have written back and dropped their copies
+                this.broadcast(BusTransaction.BUS_READ_EXCLUSIVE, (short)address);
+            }
+            // Write-back caches only update the next level on eviction, unless the word never made it into the cache
+            if (cacheLine == null || this.dataCache.getWritePolicy() == CacheWritePolicy.WRITE_THROUGH) {
+                this.writeWordBelowL1((short)address, value);
+            }
+            // Keep the instruction cache coherent with stores to code, such as program loading
+            CacheLine instructionLine = this.instructionCache.find((short)address);
+            if (instructionLine != null) {
+                instructionLine.setWord((short)(address % 4), value);
+                this.instructionCache.markChanged(instructionLine);
+            }
+
+            // Stores that bypass the cache are not shown to the prefetcher
+            if (cacheLine != null) this.dataCache.prefetcher.observe(this.context.cu.getInstructionAddress(), (short)address, isHit, isFirstUseOfPrefetch);
+            this.markChanged(address);
         } catch (Exception err) {
             System.err.println("Accessing " + address + " causes " + err);
         }
     }
 
-    private void validateAddress(int address, boolean isWrite) throws IllegalMemoryAddressBeyondLimitException, IllegalMemoryAccessToReservedLocationsException {
+    // Writes every dirty line back to linear memory. The lines stay in the caches.
+    public void flushCache(){
+        synchronized (this.getLock()) {
+            for (CacheLine cacheLine : this.dataCache.getDirtyLines()) {
+                this.writeBackLineBelowL1(cacheLine);
+            }
+            if (this.l2Cache != null) {
+                for (CacheLine cacheLine : this.l2Cache.getDirtyLines()) {
+                    this.writeBackLineToMemory(cacheLine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes words from a device straight to linear memory, as the DMA controller does, without going through the
+     * caches. Dirty cached copies of each block are written back first, then every cached copy is invalidated, so the
+     * next access reads the device's words from linear memory.
+     */
+    public void writeFromDevice(short address, short[] words){
+        synchronized (this.getLock()) {
+            int end = Short.toUnsignedInt(address) + words.length;
+            for (int base = Short.toUnsignedInt(address) & ~3; base < end; base += 4) {
+                this.invalidateBlock((short) base);
+            }
+            for (int i = 0; i < words.length; i++) {
+                if (this.context.journal.isEnabled()) this.context.journal.recordStore((short)(address + i), this.memory[Short.toUnsignedInt(address) + i]);
+                this.memory[Short.toUnsignedInt(address) + i] = words[i];
+                this.markChanged(Short.toUnsignedInt(address) + i);
+            }
+            this.wordsWrittenByDevices += words.length;
+        }
+    }
+
+    /**
+     * Reads words from linear memory for a device, as the DMA controller does, without going through the caches.
+     * Dirty cached copies of each block, including the copies held by other cores, are written back first. The cached
+     * copies stay valid.
+     */
+    public short[] readForDevice(short address, int length){
+        synchronized (this.getLock()) {
+            int end = Short.toUnsignedInt(address) + length;
+            for (int base = Short.toUnsignedInt(address) & ~3; base < end; base += 4) {
+                this.broadcast(BusTransaction.BUS_READ, (short) base);
+                CacheLine dataLine = this.dataCache.find((short) base);
+                if (dataLine != null && dataLine.isDirty()) this.writeBackLineBelowL1(dataLine);
+                CacheLine l2Line = this.l2Cache != null ? this.l2Cache.find((short) base) : null;
+                if (l2Line != null && l2Line.isDirty()) this.writeBackLineToMemory(l2Line);
+            }
+            short[] words = new short[length];
+            for (int i = 0; i < length; i++) {
+                words[i] = this.memory[Short.toUnsignedInt(address) + i];
+            }
+            this.wordsReadByDevices += length;
+            return words;
+        }
+    }
+
+    // Writes back and drops every cached copy of a block, including the copies held by other cores
+    private void invalidateBlock(short address){
+        this.broadcast(BusTransaction.BUS_READ_EXCLUSIVE, address);
+        this.dataCache.prefetcher.invalidate(address);
+        this.instructionCache.prefetcher.invalidate(address);
+        boolean isCached = false;
+        CacheLine dataLine = this.dataCache.find(address);
+        if (dataLine != null) {
+            if (dataLine.isDirty()) this.writeBackLineBelowL1(dataLine);
+            dataLine.invalidateWord();
+            this.dataCache.markChanged(dataLine);
+            isCached = true;
+        }
+        CacheLine instructionLine = this.instructionCache.find(address);
+        if (instructionLine != null) {
+            instructionLine.invalidateWord();
+            this.instructionCache.markChanged(instructionLine);
+            isCached = true;
+        }
+        CacheLine l2Line = this.l2Cache != null ? this.l2Cache.find(address) : null;
+        if (l2Line != null) {
+            if (l2Line.isDirty()) this.writeBackLineToMemory(l2Line);
+            l2Line.invalidateWord();
+            this.l2Cache.markChanged(l2Line);
+            isCached = true;
+        }
+        if (isCached) this.blocksInvalidatedByDevices++;
+    }
+
+    /**
+     * Reads the newest copy of a word held by this core without counting an access, moving the MAR and MBR or changing
+     * what the caches hold, for tools that watch the machine. Addresses are not checked against protected memory.
+     */
+    public short peek(short address){
+        synchronized (this.getLock()) {
+            CacheLine dataLine = this.dataCache.find(address);
+            if (dataLine != null) return dataLine.getWord((short)(address % 4));
+            CacheLine l2Line = this.l2Cache != null ? this.l2Cache.find(address) : null;
+            if (l2Line != null) return l2Line.getWord((short)(address % 4));
+            return this.memory[Short.toUnsignedInt(address)];
+        }
+    }
+
+    /**
+     * Overwrites every copy of a word held by this core, in its caches and in linear memory, without counting an access,
+     * moving the MAR and MBR or changing what the caches hold, for tools that rewind the machine. Dirty flags are kept.
+     */
+    public void poke(short address, short value){
+        synchronized (this.getLock()) {
+            // Stream buffers must not hand out the old word later
+            this.dataCache.prefetcher.invalidate(address);
+            this.instructionCache.prefetcher.invalidate(address);
+            short nth = (short)(address % 4);
+            CacheLine dataLine = this.dataCache.find(address);
+            if (dataLine != null) dataLine.setWord(nth, value);
+            CacheLine instructionLine = this.instructionCache.find(address);
+            if (instructionLine != null) instructionLine.setWord(nth, value);
+            CacheLine l2Line = this.l2Cache != null ? this.l2Cache.find(address) : null;
+            if (l2Line != null) l2Line.setWord(nth, value);
+            this.memory[Short.toUnsignedInt(address)] = value;
+            this.markChanged(Short.toUnsignedInt(address));
+        }
+    }
+
+    /**
+     * Copies the newest copy of a run of words into an array under a single lock, as peek does for one word, so tools
+     * can take a consistent snapshot of memory between instructions
+     * @param address the first word to copy
+     * @param words the array to fill. Its length is the number of words copied.
+     */
+    public void snapshot(short address, short[] words){
+        int start = Short.toUnsignedInt(address);
+        int end = start + words.length;
+        if (end > this.wordCount) throw new IllegalArgumentException("Cannot copy words " + start + " to " + (end - 1) + " of " + this.wordCount + " words!");
+        synchronized (this.getLock()) {
+            for (int base = start & ~3; base < end; base += 4) {
+                // A block is cached whole, so it is looked up once
+                CacheLine cacheLine = this.dataCache.find((short) base);
+                if (cacheLine == null && this.l2Cache != null) cacheLine = this.l2Cache.find((short) base);
+                for (int i = Math.max(base, start); i < Math.min(base + 4, end); i++) {
+                    words[i - start] = cacheLine != null ? cacheLine.getWord((short)(i % 4)) : this.memory[i];
+                }
+            }
+        }
+    }
+
+    // Copies every word of memory
+    public short[] snapshot(){
+        short[] words = new short[this.wordCount];
+        this.snapshot((short) 0, words);
+        return words;
+    }
+
+    private void markChanged(int address){
+        this.changedWords[address >>> 6] |= 1L << address;
+    }
+
+    // True if this core or a device stored to the word since the last dump
+    public boolean isChanged(short address){
+        int word = Short.toUnsignedInt(address);
+        return (this.changedWords[word >>> 6] & (1L << word)) != 0;
+    }
+
+    void validateAddress(int address, boolean isWrite) throws IllegalMemoryAddressBeyondLimitException, IllegalMemoryAccessToReservedLocationsException {
         int lowerProtectedBounds = isWrite ? this.boundsLowerReadOnlyMemory : this.boundsLowerProtectedMemory;
         int upperProtectedBase = isWrite ? this.baseUpperReadOnlyMemory : this.baseUpperProtectedMemory;
         if (address > this.wordCount) {
@@ -114,9 +545,23 @@ public class Memory {
 
     public short fetch(short address) throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         validateAddress(address, false);
-        this.mar.set(address);
-        this.mbr = this.getWord(this.mar.get());
-        return this.mbr;
+        synchronized (this.getLock()) {
+            this.mar.set(address);
+            this.mbr = this.getWord(this.dataCache, this.mar.get());
+            if (this.context.tracer.isRecording()) this.context.tracer.recordRead(address, this.mbr);
+            this.context.breakpoints.checkRead(address, this.mbr);
+            return this.mbr;
+        }
+    }
+
+    // Instruction fetches are routed through the L1 Instruction Cache
+    public short fetchInstruction(short address) throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
+        validateAddress(address, false);
+        synchronized (this.getLock()) {
+            this.mar.set(address);
+            this.mbr = this.getWord(this.instructionCache, this.mar.get());
+            return this.mbr;
+        }
     }
 
     public void store (short address, short value) throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
@@ -126,7 +571,12 @@ public class Memory {
         // MBR <- value
         this.mbr = value;
         // c(MAR) <- MBR
-        this.context.memory.setWord(this.mar.get(), this.mbr);
+        synchronized (this.getLock()) {
+            if (this.context.journal.isEnabled()) this.context.journal.recordStore(address, this.peek(address));
+            this.context.memory.setWord(this.mar.get(), this.mbr);
+        }
+        if (this.context.tracer.isRecording()) this.context.tracer.recordWrite(address, value);
+        this.context.breakpoints.checkWrite(address, value);
     }
 
     public void dump(){
@@ -145,7 +595,98 @@ public class Memory {
                 //null value in memory-- carry on
             }
         }
-        this.cache.dump();
+        this.instructionCache.dump();
+        this.dataCache.dump();
+        if (this.l2Cache != null) this.l2Cache.dump();
+        this.context.io.engineerConsolePrintLn("===============================");
+        Arrays.fill(this.changedWords, 0);
+    }
+
+    // Like dump, but only prints the words and cache lines that changed since the last dump
+    public void dumpChanges(){
+        synchronized (this.getLock()) {
+            this.context.io.engineerConsolePrintLn("===============================");
+            this.context.io.engineerConsolePrintLn("Memory Subsystem Changes");
+            this.context.io.engineerConsolePrintLn("===============================");
+            this.context.io.engineerConsolePrintLn("Memory Address Register: " + this.mar.toString());
+            this.context.io.engineerConsolePrintLn("Memory Buffer Register: " + wordToString(this.getMemoryBufferRegister()));
+            for (int i = 0; i < this.changedWords.length; i++) {
+                long changed = this.changedWords[i];
+                while (changed != 0) {
+                    int address = i * 64 + Long.numberOfTrailingZeros(changed);
+                    changed &= changed - 1;
+                    // The newest copy may still be in a write-back cache
+                    this.context.io.engineerConsolePrintLn(String.format("Address: %4d: %s", address, wordToString(this.peek((short) address))));
+                }
+                this.changedWords[i] = 0;
+            }
+            this.instructionCache.dumpChanges();
+            this.dataCache.dumpChanges();
+            if (this.l2Cache != null) this.l2Cache.dumpChanges();
+            this.context.io.engineerConsolePrintLn("===============================");
+        }
+    }
+
+    public long getWordsReadFromMemory() {
+        return this.wordsReadFromMemory;
+    }
+
+    public long getWordsWrittenToMemory() {
+        return this.wordsWrittenToMemory;
+    }
+
+    public long getBlocksWrittenBack() {
+        return this.blocksWrittenBack;
+    }
+
+    public long getWordsReadByDevices() {
+        return this.wordsReadByDevices;
+    }
+
+    public long getWordsWrittenByDevices() {
+        return this.wordsWrittenByDevices;
+    }
+
+    public long getBlocksInvalidatedByDevices() {
+        return this.blocksInvalidatedByDevices;
+    }
+
+    public long getMemoryCycles() {
+        return this.memoryCycles;
+    }
+
+    // Total cycles spent in every level of the hierarchy so far, including prefetches
+    public long getAccessCycles() {
+        long cycles = this.instructionCache.getAccessCycles() + this.dataCache.getAccessCycles() + this.memoryCycles;
+        if (this.l2Cache != null) cycles += this.l2Cache.getAccessCycles();
+        return cycles;
+    }
+
+    // Cycles spent on prefetches, which happen in the background rather than stalling the CPU
+    public long getPrefetchCycles() {
+        return this.instructionCache.prefetcher.prefetchCycles + this.dataCache.prefetcher.prefetchCycles;
+    }
+
+    // Cycles the CPU waited on the memory hierarchy
+    public long getDemandAccessCycles() {
+        return this.getAccessCycles() - this.getPrefetchCycles();
+    }
+
+    public void dumpStatistics(){
+        this.context.io.engineerConsolePrintLn("===============================");
+        this.context.io.engineerConsolePrintLn("Memory Hierarchy Statistics");
+        this.context.io.engineerConsolePrintLn("===============================");
+        this.instructionCache.dumpStatistics();
+        this.dataCache.dumpStatistics();
+        // The L2 cache a multiprocessor's cores share is reported once, with the coherence bus
+        if (this.l2Cache != null && this.bus == null) this.l2Cache.dumpStatistics();
+        this.context.io.engineerConsolePrintLn("Linear Memory (" + this.context.profile.memoryLatency + " cycles)");
+        this.context.io.engineerConsolePrintLn("    Words Read: " + this.wordsReadFromMemory);
+        this.context.io.engineerConsolePrintLn("    Words Written: " + this.wordsWrittenToMemory);
+        this.context.io.engineerConsolePrintLn("    Blocks Written Back: " + this.blocksWrittenBack);
+        this.context.io.engineerConsolePrintLn("    Access Cycles: " + this.memoryCycles);
+        this.context.io.engineerConsolePrintLn("    Words Read by DMA: " + this.wordsReadByDevices);
+        this.context.io.engineerConsolePrintLn("    Words Written by DMA: " + this.wordsWrittenByDevices + " (" + this.blocksInvalidatedByDevices + " cached blocks invalidated)");
         this.context.io.engineerConsolePrintLn("===============================");
     }
 
@@ -0,0 +1,169 @@
+package com.simulator.awesome;
+
+/**
+ * Several cores sharing one linear memory and L2 cache.
+ * Each core is a Simulator with its own registers, MSR, control unit, timing model and L1 caches, which a
+ * CoherenceBus keeps coherent with the MESI protocol. A core reads its number with IN r,4 and the number of cores
+ * with CHK r,4.
+ *
+ * The first core is the boot core: load the ROM and the user program through it as with a single Simulator. When the
+ * multiprocessor runs, every core starts at the user program in address 7, so they all run the same program and use
+ * their core ID to pick their share of the work. Reserved locations such as the trap and fault return addresses
+ * are shared, so only one core at a time should take a trap or fault.
+ *
+ * Cores are attached to a console, so HLT stops the core that ran it instead of the whole simulator.
+ *
+ * The shared memory and L2 cache have memory.words words and the L2 geometry of the profile. Their context is a
+ * Simulator that runs nothing and is not one of the cores, with core ID -1.
+ */
+public class Multiprocessor {
+    public final Simulator[] cores;
+    public final CoherenceBus bus;
+    private final Simulator shared;
+    private final boolean isThreaded;
+
+    Multiprocessor(MachineProfile profile) {
+        this(profile, null);
+    }
+
+    // The run name is given before the cores open their files, as Simulator.getOwnPath names them after it
+    Multiprocessor(MachineProfile profile, String runName) {
+        this.isThreaded = profile.isThreaded;
+        this.shared = new Simulator(1, profile.copy());
+        this.shared.coreId = -1;
+        this.shared.coreCount = (short) profile.coreCount;
+        this.bus = new CoherenceBus(this.shared);
+        this.cores = new Simulator[profile.coreCount];
+        for (int i = 0; i < this.cores.length; i++) {
+            Simulator core = new Simulator(profile.wordCount, profile.copy());
+            core.coreId = (short) i;
+            core.coreCount = (short) this.cores.length;
+            core.runName = runName;
+            core.memory.attach(this.bus);
+            core.attachConsole();
+            core.io.initializeIOBuffers();
+            this.cores[i] = core;
+        }
+    }
+
+    public Simulator getBootCore() {
+        return this.cores[0];
+    }
+
+    // Zeroes the shared memory and empties the shared L2 cache, then resets every core
+    public void reset() {
+        this.bus.reset();
+        for (Simulator core : this.cores) {
+            core.reset();
+        }
+    }
+
+    // Starts every core at the user program, then runs them until each halts or waits for input
+    public void run() {
+        this.start();
+        if (this.isThreaded) {
+            this.runThreaded();
+        } else {
+            this.runInterleaved();
+        }
+    }
+
+    // Starts every core at the user program the boot core loaded
+    public void start() {
+        Simulator bootCore = this.getBootCore();
+        short programAddress = 0;
+        boolean isSupervisor = bootCore.msr.isSupervisorMode();
+        bootCore.msr.setSupervisorMode(true);
+        try {
+            programAddress = bootCore.memory.fetch((short)7);
+        } catch (IllegalMemoryAccessToReservedLocationsException | IllegalMemoryAddressBeyondLimitException e) {
+            e.printStackTrace();
+        }
+        bootCore.msr.setSupervisorMode(isSupervisor);
+
+        for (Simulator core : this.cores) {
+            // Memory protection follows what the boot core's ROM loaded
+            core.memory.baseUpperProtectedMemory = bootCore.memory.baseUpperProtectedMemory;
+            core.memory.baseUpperReadOnlyMemory = bootCore.memory.baseUpperReadOnlyMemory;
+            core.memory.baseHeapSpace = bootCore.memory.baseHeapSpace;
+            core.msr.setSupervisorMode(false);
+            core.pc.set(programAddress);
+            core.msr.setIsRunning(true);
+        }
+    }
+
+    // Each core runs on its own host thread. Memory accesses take turns on the bus.
+    private void runThreaded() {
+        Thread[] threads = new Thread[this.cores.length];
+        for (int i = 0; i < this.cores.length; i++) {
+            threads[i] = new Thread(this.cores[i].cu::startExecutionLoop, "Core " + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // The cores take turns one step at a time on this thread, so every run of a program is the same
+    private void runInterleaved() {
+        boolean isAnyRunning = true;
+        while (isAnyRunning) {
+            isAnyRunning = this.step();
+        }
+        for (Simulator core : this.cores) {
+            core.flushRecordings();
+        }
+    }
+
+    /**
+     * Steps every running core once, in turn, for callers that run the cores themselves after start
+     * @return false if no core was running
+     */
+    public boolean step() {
+        boolean isAnyRunning = false;
+        for (Simulator core : this.cores) {
+            if (!core.msr.isRunning()) continue;
+            core.cu.singleStep();
+            isAnyRunning = true;
+        }
+        return isAnyRunning;
+    }
+
+    // The cores run in parallel, so the program takes as long as the slowest core
+    public long getCycles() {
+        long cycles = 0;
+        for (Simulator core : this.cores) {
+            cycles = Math.max(cycles, core.timing.getCycles());
+        }
+        return cycles;
+    }
+
+    public long getRetiredInstructions() {
+        long instructions = 0;
+        for (Simulator core : this.cores) {
+            instructions += core.timing.getRetiredInstructions();
+        }
+        return instructions;
+    }
+
+    // Instructions retired by all of the cores per cycle
+    public double getIPC() {
+        return this.getCycles() == 0 ? 0 : (double) this.getRetiredInstructions() / this.getCycles();
+    }
+
+    public void dumpStatistics() {
+        Simulator bootCore = this.getBootCore();
+        bootCore.io.engineerConsolePrintLn("Multiprocessor (" + this.cores.length + " cores, " + (this.isThreaded ? "threaded" : "interleaved") + ")");
+        for (Simulator core : this.cores) {
+            bootCore.io.engineerConsolePrintLn("    Core " + core.coreId + ": " + core.timing.getRetiredInstructions() + " instructions, " + core.timing.getCycles() + " cycles");
+        }
+        bootCore.io.engineerConsolePrintLn("    Cycles: " + this.getCycles());
+        bootCore.io.engineerConsolePrintLn("    IPC: " + String.format("%.4f", this.getIPC()));
+        this.bus.dumpStatistics(bootCore);
+    }
+}
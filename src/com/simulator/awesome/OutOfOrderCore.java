@@ -0,0 +1,212 @@
+package com.simulator.awesome;
+
+// The functional units that reservation stations feed
+enum FunctionalUnit {
+    ALU,   // Integer, logical, shift and transfer of control instructions that do not touch memory
+    FPU,   // Floating point and vector instructions
+    MEMORY // Instructions that load or store through the cache hierarchy, one at a time in program order
+}
+
+// Why an instruction was dispatched later than the cycle after it was decoded
+enum DispatchStallCause {
+    ROB_FULL,      // Every reorder buffer entry held an instruction that had not committed
+    STATIONS_FULL, // Every reservation station of the instruction's functional unit was waiting to execute
+    SERIALIZED     // I/O, traps and halts wait for every older instruction to commit
+}
+
+/**
+ * Timing model of a Tomasulo style out of order core.
+ * Instructions are fetched and decoded in order, then dispatched into the reorder buffer and a reservation station of
+ * their functional unit. Registers R0-R3, X1-X3, FR0-FR1 and the condition code are renamed to the reorder buffer
+ * entry of their latest producer, so an instruction only waits for the registers it reads (RAW) and starts
+ * executing as soon as they and its functional unit are ready. Instructions commit from the reorder buffer in order.
+ *
+ * As with the Pipeline, the control unit still executes every instruction sequentially, so architectural results do
+ * not change. Faults are precise: they are taken once every older instruction has committed, and the fault handler is
+ * fetched after the MFR has been set by handleFault. Fetch predicts the next PC with the branch target buffer and
+ * predictor. When the prediction is wrong, fetch resumes once the branch has executed.
+ */
+public class OutOfOrderCore extends CoreModel {
+    static final int REGISTER_COUNT = 12;
+
+    private final int reorderBufferSize;
+    private final int[] stationCounts = new int[FunctionalUnit.values().length];
+
+    // The cycle each reorder buffer entry commits, the entry for instruction n is n % reorderBufferSize
+    private final long[] commitAt;
+    // The cycle each reservation station of each unit is freed
+    private final long[][] stationFreeAt = new long[FunctionalUnit.values().length][];
+    // The earliest cycle each functional unit can start another instruction
+    private final long[] unitFreeAt = new long[FunctionalUnit.values().length];
+    // The cycle the latest producer of each register completes
+    private final long[] registerReadyAt = new long[REGISTER_COUNT];
+    // The cycle the next fetch can start, and the earliest cycle it can start after a flush
+    private long nextFetchAt;
+    private long fetchResumesAt;
+    private long faultResumesAt;
+    private long lastDispatch;
+    private long lastCommit;
+
+    // Statistics
+    private long branchFlushes;
+    private long faultFlushes;
+    private long branchFlushCycles;
+    private long faultFlushCycles;
+    // Summed reorder buffer residency, divided by cycles this is the average number of entries in use
+    private long occupiedEntryCycles;
+    private final long[] dispatchStallCycles = new long[DispatchStallCause.values().length];
+    private final long[] unitInstructions = new long[FunctionalUnit.values().length];
+    private final long[] unitStationStallCycles = new long[FunctionalUnit.values().length];
+
+    OutOfOrderCore(Simulator context) {
+        super(context);
+        MachineProfile profile = context.profile;
+        this.reorderBufferSize = profile.reorderBufferSize;
+        this.commitAt = new long[profile.reorderBufferSize];
+        this.stationCounts[FunctionalUnit.ALU.ordinal()] = profile.aluStations;
+        this.stationCounts[FunctionalUnit.FPU.ordinal()] = profile.fpuStations;
+        this.stationCounts[FunctionalUnit.MEMORY.ordinal()] = profile.memoryStations;
+        for (FunctionalUnit unit : FunctionalUnit.values()) {
+            this.stationFreeAt[unit.ordinal()] = new long[this.stationCounts[unit.ordinal()]];
+        }
+    }
+
+    private static long readyAt(int registers, long[] readyTimes) {
+        long ready = 0;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if ((registers & (1 << i)) != 0) ready = Math.max(ready, readyTimes[i]);
+        }
+        return ready;
+    }
+
+    private static FunctionalUnit getFunctionalUnit(Instruction instruction, long memoryCycles) {
+        InstructionClass instructionClass = instruction.getInstructionClass();
+        if (instructionClass == InstructionClass.FLOATING_POINT || instructionClass == InstructionClass.VECTOR) return FunctionalUnit.FPU;
+        return memoryCycles > 0 ? FunctionalUnit.MEMORY : FunctionalUnit.ALU;
+    }
+
+    private static boolean isSerializing(Instruction instruction) {
+        InstructionClass instructionClass = instruction.getInstructionClass();
+        return instructionClass == InstructionClass.INPUT_OUTPUT || instructionClass == InstructionClass.TRAP || instructionClass == InstructionClass.MISCELLANEOUS;
+    }
+
+    public void issue(Instruction instruction, long[] memoryCycles, int latency, int flushStep) {
+        // In order fetch and decode
+        long fetchAt = this.nextFetchAt;
+        if (this.fetchResumesAt > fetchAt) {
+            if (this.fetchResumesAt == this.faultResumesAt) {
+                this.faultFlushCycles += this.fetchResumesAt - fetchAt;
+            } else {
+                this.branchFlushCycles += this.fetchResumesAt - fetchAt;
+            }
+            fetchAt = this.fetchResumesAt;
+        }
+        this.nextFetchAt = fetchAt + Math.max(1, memoryCycles[0]);
+        long decoded = this.nextFetchAt + Math.max(1, memoryCycles[1]);
+
+        // Dispatch in order once there is a reorder buffer entry and a reservation station free
+        long dataCycles = memoryCycles[2] + memoryCycles[3] + memoryCycles[4];
+        FunctionalUnit unit = getFunctionalUnit(instruction, dataCycles);
+        long[] stations = this.stationFreeAt[unit.ordinal()];
+        int station = 0;
+        for (int i = 1; i < stations.length; i++) {
+            if (stations[i] < stations[station]) station = i;
+        }
+        int entry = (int)(this.instructions % this.reorderBufferSize);
+
+        long dispatch = Math.max(decoded, this.lastDispatch + 1);
+        long entryFreeAt = this.commitAt[entry];
+        long stationFreeAt = stations[station];
+        long olderCommitted = isSerializing(instruction) ? this.lastCommit : 0;
+        long limit = Math.max(entryFreeAt, Math.max(stationFreeAt, olderCommitted));
+        if (limit > dispatch) {
+            long stall = limit - dispatch;
+            if (limit == olderCommitted) {
+                this.dispatchStallCycles[DispatchStallCause.SERIALIZED.ordinal()] += stall;
+            } else if (limit == entryFreeAt) {
+                this.dispatchStallCycles[DispatchStallCause.ROB_FULL.ordinal()] += stall;
+            } else {
+                this.dispatchStallCycles[DispatchStallCause.STATIONS_FULL.ordinal()] += stall;
+                this.unitStationStallCycles[unit.ordinal()] += stall;
+            }
+            dispatch = limit;
+        }
+        this.lastDispatch = dispatch;
+
+        // Execute once the renamed operands have been produced and the unit is free
+        int sources = instruction.getSourceRegisters() | instruction.getAddressRegisters();
+        long start = Math.max(dispatch + 1, Math.max(readyAt(sources, this.registerReadyAt), this.unitFreeAt[unit.ordinal()]));
+        long complete = start + Math.max(1, latency) + dataCycles;
+        // ALU and FPU are pipelined, the memory unit is busy until its accesses finish
+        this.unitFreeAt[unit.ordinal()] = unit == FunctionalUnit.MEMORY ? start + Math.max(1, dataCycles) : start + 1;
+        stations[station] = start;
+
+        int destinations = instruction.getDestinationRegisters();
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if ((destinations & (1 << i)) != 0) this.registerReadyAt[i] = complete;
+        }
+
+        // A wrong prediction found at decode redirects fetch then, otherwise fetch waits for the branch to execute
+        if (flushStep > 0) {
+            this.fetchResumesAt = flushStep <= 2 ? decoded : complete;
+            this.branchFlushes++;
+        }
+
+        // In order commit, one instruction per cycle
+        long commit = Math.max(complete, this.lastCommit) + 1;
+        this.commitAt[entry] = commit;
+        this.occupiedEntryCycles += commit - dispatch;
+        this.unitInstructions[unit.ordinal()]++;
+        this.lastCommit = commit;
+        this.cycles = commit;
+        this.instructions++;
+    }
+
+    // Faults are taken in order, once every older instruction has committed
+    public void fault(long cycles) {
+        this.faultResumesAt = Math.max(this.lastCommit, this.fetchResumesAt) + cycles;
+        this.fetchResumesAt = this.faultResumesAt;
+        this.faultFlushes++;
+    }
+
+    public int getReorderBufferSize() {
+        return this.reorderBufferSize;
+    }
+
+    public long getDispatchStallCycles(DispatchStallCause cause) {
+        return this.dispatchStallCycles[cause.ordinal()];
+    }
+
+    public long getUnitInstructions(FunctionalUnit unit) {
+        return this.unitInstructions[unit.ordinal()];
+    }
+
+    public long getBranchFlushes() {
+        return this.branchFlushes;
+    }
+
+    public long getFaultFlushes() {
+        return this.faultFlushes;
+    }
+
+    // The average number of reorder buffer entries in use
+    public double getAverageOccupancy() {
+        return this.cycles == 0 ? 0 : (double) this.occupiedEntryCycles / this.cycles;
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Out of Order Core (" + this.reorderBufferSize + " entry reorder buffer)");
+        this.context.io.engineerConsolePrintLn("    Cycles: " + this.cycles);
+        this.context.io.engineerConsolePrintLn("    Instructions: " + this.instructions);
+        this.context.io.engineerConsolePrintLn("    IPC: " + String.format("%.4f", this.getIPC()));
+        this.context.io.engineerConsolePrintLn("    Average Reorder Buffer Occupancy: " + String.format("%.2f", this.getAverageOccupancy()));
+        this.context.io.engineerConsolePrintLn("    Branch Flushes: " + this.branchFlushes + " (" + this.branchFlushCycles + " fetch cycles)");
+        this.context.io.engineerConsolePrintLn("    Fault Flushes: " + this.faultFlushes + " (" + this.faultFlushCycles + " fetch cycles)");
+        for (DispatchStallCause cause : DispatchStallCause.values()) {
+            this.context.io.engineerConsolePrintLn("    " + cause + " Dispatch Stall Cycles: " + this.dispatchStallCycles[cause.ordinal()]);
+        }
+        for (FunctionalUnit unit : FunctionalUnit.values()) {
+            this.context.io.engineerConsolePrintLn("    " + unit + ": " + this.unitInstructions[unit.ordinal()] + " instructions, " + this.stationCounts[unit.ordinal()] + " stations, " + this.unitStationStallCycles[unit.ordinal()] + " stall cycles");
+        }
+    }
+}
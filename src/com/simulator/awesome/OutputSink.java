@@ -0,0 +1,166 @@
+package com.simulator.awesome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Takes the words a program writes to an output device in place of the device's output buffer, so long runs do not
+ * grow the buffer. Words are treated as characters and encoded as UTF-8 into a fixed buffer. The buffer is flushed
+ * when it is full, on the first write after output.flushMillis have passed since the last flush, before the machine
+ * waits for input and on HLT. A sink is closed when the machine is reset, when another sink replaces it and when the
+ * simulator shuts down.
+ *
+ * Sinks are set per device in the machine profile, for example output.1=FILE:printer.txt or output.1=STDOUT.
+ * This base class discards what it flushes.
+ */
+public class OutputSink {
+    private final ByteBuffer buffer;
+    private final long flushMillis;
+    private long lastFlush;
+
+    // Statistics
+    private long words;
+    private long flushes;
+
+    OutputSink(int bufferSize, long flushMillis) {
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.flushMillis = flushMillis;
+        this.lastFlush = System.currentTimeMillis();
+    }
+
+    /**
+     * @param specification the type of sink, followed by :path for files
+     * @return the sink, or null for QUEUE
+     */
+    public static OutputSink create(String specification, int bufferSize, long flushMillis) throws IOException {
+        String[] parts = specification.split(":", 2);
+        switch (OutputSinkType.valueOf(parts[0].trim())) {
+            case DISCARD:
+                return new OutputSink(bufferSize, flushMillis);
+            case FILE:
+                if (parts.length < 2) throw new IOException("A FILE sink needs a path, such as FILE:printer.txt");
+                return new FileOutputSink(Paths.get(parts[1].trim()), bufferSize, flushMillis);
+            case STDOUT:
+                return new StandardOutputSink(bufferSize, flushMillis);
+            case CAPTURE:
+                return new CaptureOutputSink(bufferSize, flushMillis);
+            default:
+                return null;
+        }
+    }
+
+    public OutputSinkType getType() {
+        return OutputSinkType.DISCARD;
+    }
+
+    public void write(short word) {
+        char character = (char) word;
+        if (this.buffer.remaining() < 3) this.flush();
+        if (character < 0x80) {
+            this.buffer.put((byte) character);
+        } else {
+            this.buffer.put(String.valueOf(character).getBytes(StandardCharsets.UTF_8));
+        }
+        this.words++;
+        if (System.currentTimeMillis() - this.lastFlush >= this.flushMillis) this.flush();
+    }
+
+    public void flush() {
+        this.buffer.flip();
+        try {
+            if (this.buffer.hasRemaining()) this.writeOut(this.buffer);
+        } catch (IOException e) {
+            System.err.println("Flushing " + this.getType() + " output sink causes " + e);
+        }
+        this.buffer.clear();
+        this.lastFlush = System.currentTimeMillis();
+        this.flushes++;
+    }
+
+    // Flushes the sink, which takes no more words
+    public void close() {
+        this.flush();
+    }
+
+    // Writes out the buffered bytes
+    protected void writeOut(ByteBuffer bytes) throws IOException {
+        // NOOP
+    }
+
+    public long getWords() {
+        return this.words;
+    }
+
+    public long getFlushes() {
+        return this.flushes;
+    }
+}
+
+class FileOutputSink extends OutputSink {
+    private final FileChannel channel;
+
+    FileOutputSink(Path path, int bufferSize, long flushMillis) throws IOException {
+        super(bufferSize, flushMillis);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public OutputSinkType getType() {
+        return OutputSinkType.FILE;
+    }
+
+    protected void writeOut(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) this.channel.write(bytes);
+    }
+
+    public void close() {
+        if (!this.channel.isOpen()) return;
+        super.close();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            System.err.println("Closing " + this.getType() + " output sink causes " + e);
+        }
+    }
+}
+
+class StandardOutputSink extends OutputSink {
+    StandardOutputSink(int bufferSize, long flushMillis) {
+        super(bufferSize, flushMillis);
+    }
+
+    public OutputSinkType getType() {
+        return OutputSinkType.STDOUT;
+    }
+
+    protected void writeOut(ByteBuffer bytes) {
+        System.out.write(bytes.array(), bytes.position(), bytes.remaining());
+        System.out.flush();
+    }
+}
+
+class CaptureOutputSink extends OutputSink {
+    private final StringBuilder text = new StringBuilder();
+
+    CaptureOutputSink(int bufferSize, long flushMillis) {
+        super(bufferSize, flushMillis);
+    }
+
+    public OutputSinkType getType() {
+        return OutputSinkType.CAPTURE;
+    }
+
+    protected void writeOut(ByteBuffer bytes) {
+        this.text.append(new String(bytes.array(), bytes.position(), bytes.remaining(), StandardCharsets.UTF_8));
+    }
+
+    // Everything written so far, including what is still buffered
+    public String getText() {
+        this.flush();
+        return this.text.toString();
+    }
+}
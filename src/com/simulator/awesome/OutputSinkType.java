@@ -0,0 +1,10 @@
+package com.simulator.awesome;
+
+// Where the words a program writes to an output device go
+enum OutputSinkType {
+    QUEUE,   // The device's output buffer, drained by the console printer
+    DISCARD, // Nowhere, for runs that only need statistics
+    FILE,    // A file, written through a buffered channel
+    STDOUT,  // The host's standard output
+    CAPTURE  // Kept in memory, for tests
+}
@@ -0,0 +1,182 @@
+package com.simulator.awesome;
+
+// Why a pipelined instruction completed later than one cycle after the instruction ahead of it
+enum PipelineStallCause {
+    BRANCH_FLUSH,    // Instructions fetched after a mispredicted transfer of control were thrown away
+    FAULT_FLUSH,     // The pipeline drained before entering the fault handler
+    RAW_HAZARD,      // Waiting for a register written by an earlier instruction
+    MEMORY,          // Fetches, loads and stores that took longer than a cycle in the cache hierarchy
+    EXECUTE_LATENCY, // Instruction classes that take more than a cycle to execute
+    STRUCTURAL       // Waiting for the next stage to be freed by a slower instruction ahead
+}
+
+/**
+ * Timing model of a five stage in-order pipeline: Instruction Fetch, Instruction Decode, Operand Fetch, Execute and
+ * Result Store, the same steps the control unit runs one at a time.
+ *
+ * The control unit still executes every instruction sequentially, so architectural results do not change. As each
+ * instruction retires, it is issued to this model with the cycles each of its steps spent in the memory hierarchy,
+ * its execute latency and the step that found fetch had mispredicted the next PC, if any. The model works out when each stage would start
+ * if consecutive instructions overlapped, only one instruction can be in each stage at a time.
+ *
+ * Without forwarding, registers are read in Operand Fetch and a result can be read once its producer has finished
+ * Result Store. With forwarding, results can be read as soon as their producer has finished Execute, and only
+ * address registers are needed in Operand Fetch. Fetch predicts the next PC with the branch target buffer and
+ * predictor. When the prediction is wrong, the instructions fetched behind the branch are flushed until the step that
+ * resolved it has finished.
+ */
+public class Pipeline extends CoreModel {
+    static final int STAGES = 5;
+    static final int OPERAND_FETCH = 2;
+    static final int EXECUTE = 3;
+    static final int RESULT_STORE = 4;
+    static final int REGISTER_COUNT = 12;
+
+    private final boolean isForwarding;
+
+    // The cycle the most recent instruction left each stage
+    private final long[] stageFreeAt = new long[STAGES];
+    // The cycle each register can be read with and without forwarding
+    private final long[] forwardedAt = new long[REGISTER_COUNT];
+    private final long[] writtenAt = new long[REGISTER_COUNT];
+    // The earliest cycle the next fetch can start after a flush
+    private long fetchResumesAt;
+    private boolean isResumingFromFault;
+    // The cycle the most recent instruction finished Result Store. An empty pipeline takes STAGES - 1 cycles to fill.
+    private long lastCompletion = STAGES - 1;
+
+    // Statistics
+    private long branchFlushes;
+    private long faultFlushes;
+    private long rawHazards;
+    private final long[] stallCycles = new long[PipelineStallCause.values().length];
+
+    Pipeline(Simulator context, boolean isForwarding) {
+        super(context);
+        this.isForwarding = isForwarding;
+    }
+
+    private static long readyAt(int registers, long[] readyTimes) {
+        long ready = 0;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if ((registers & (1 << i)) != 0) ready = Math.max(ready, readyTimes[i]);
+        }
+        return ready;
+    }
+
+    public void issue(Instruction instruction, long[] memoryCycles, int latency, int flushStep) {
+        int sources = instruction.getSourceRegisters();
+        int addressSources = instruction.getAddressRegisters();
+        long flushStall = 0;
+        long rawStall = 0;
+        long memoryStall = 0;
+        long executeStall = 0;
+
+        long time = this.stageFreeAt[0];
+        if (this.fetchResumesAt > time) {
+            flushStall = this.fetchResumesAt - time;
+            time = this.fetchResumesAt;
+        }
+
+        long executeDone = 0;
+        for (int stage = 0; stage < STAGES; stage++) {
+            // Wait for the registers this stage reads
+            long ready = 0;
+            if (stage == OPERAND_FETCH) {
+                ready = this.isForwarding ? readyAt(addressSources, this.forwardedAt) : readyAt(sources | addressSources, this.writtenAt);
+            } else if (stage == EXECUTE && this.isForwarding) {
+                ready = readyAt(sources, this.forwardedAt);
+            }
+            if (ready > time) {
+                rawStall += ready - time;
+                time = ready;
+            }
+
+            long duration = Math.max(1, memoryCycles[stage]);
+            memoryStall += duration - 1;
+            if (stage == EXECUTE) {
+                duration += Math.max(0, latency - 1);
+                executeStall += Math.max(0, latency - 1);
+            }
+            long done = time + duration;
+            if (stage == EXECUTE) executeDone = done;
+
+            // An instruction can only move on once the instruction ahead of it has left the next stage
+            long leave = stage < RESULT_STORE ? Math.max(done, this.stageFreeAt[stage + 1]) : done;
+            this.stageFreeAt[stage] = leave;
+            if (stage + 1 == flushStep) this.fetchResumesAt = done;
+            time = leave;
+        }
+
+        int destinations = instruction.getDestinationRegisters();
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if ((destinations & (1 << i)) == 0) continue;
+            this.forwardedAt[i] = executeDone;
+            this.writtenAt[i] = time;
+        }
+
+        if (rawStall > 0) this.rawHazards++;
+        if (flushStep > 0) this.branchFlushes++;
+
+        // Charge the cycles this instruction added beyond one to its causes in order
+        long extra = time - this.lastCompletion - 1;
+        extra -= this.chargeStall(this.isResumingFromFault ? PipelineStallCause.FAULT_FLUSH : PipelineStallCause.BRANCH_FLUSH, flushStall, extra);
+        extra -= this.chargeStall(PipelineStallCause.RAW_HAZARD, rawStall, extra);
+        extra -= this.chargeStall(PipelineStallCause.MEMORY, memoryStall, extra);
+        extra -= this.chargeStall(PipelineStallCause.EXECUTE_LATENCY, executeStall, extra);
+        this.chargeStall(PipelineStallCause.STRUCTURAL, extra, extra);
+
+        this.isResumingFromFault = false;
+        this.lastCompletion = time;
+        this.cycles = time;
+        this.instructions++;
+    }
+
+    // Charges up to the remaining extra cycles to a cause and returns how many were charged
+    private long chargeStall(PipelineStallCause cause, long stall, long remaining) {
+        long charged = Math.max(0, Math.min(stall, remaining));
+        this.stallCycles[cause.ordinal()] += charged;
+        return charged;
+    }
+
+    // Drains the pipeline before the fault handler is fetched
+    public void fault(long cycles) {
+        long drained = Math.max(this.stageFreeAt[RESULT_STORE], this.fetchResumesAt);
+        this.fetchResumesAt = drained + cycles;
+        this.isResumingFromFault = true;
+        this.faultFlushes++;
+    }
+
+    public boolean isForwarding() {
+        return this.isForwarding;
+    }
+
+    public long getStallCycles(PipelineStallCause cause) {
+        return this.stallCycles[cause.ordinal()];
+    }
+
+    public long getBranchFlushes() {
+        return this.branchFlushes;
+    }
+
+    public long getFaultFlushes() {
+        return this.faultFlushes;
+    }
+
+    public long getRawHazards() {
+        return this.rawHazards;
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Pipeline (" + (this.isForwarding ? "forwarding" : "no forwarding") + ")");
+        this.context.io.engineerConsolePrintLn("    Cycles: " + this.cycles);
+        this.context.io.engineerConsolePrintLn("    Instructions: " + this.instructions);
+        this.context.io.engineerConsolePrintLn("    CPI: " + String.format("%.4f", this.getCPI()));
+        this.context.io.engineerConsolePrintLn("    Branch Flushes: " + this.branchFlushes);
+        this.context.io.engineerConsolePrintLn("    Fault Flushes: " + this.faultFlushes);
+        this.context.io.engineerConsolePrintLn("    RAW Hazards: " + this.rawHazards);
+        for (PipelineStallCause cause : PipelineStallCause.values()) {
+            this.context.io.engineerConsolePrintLn("    " + cause + " Stall Cycles: " + this.stallCycles[cause.ordinal()]);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.simulator.awesome;
+
+/**
+ * A hardware prefetcher attached to an L1 cache. This base class never prefetches.
+ * Memory tells the prefetcher about every demand access to its cache, and the prefetcher asks Memory for blocks.
+ * A prefetch is useful if the block is used by a demand access before it is evicted, and useless otherwise.
+ */
+public class Prefetcher {
+    protected final Simulator context;
+    protected final Cache cache;
+    protected final int degree;
+
+    // Statistics
+    long issued;
+    long useful;
+    long useless;
+    long bufferHits;
+    long prefetchCycles;
+
+    Prefetcher(Simulator context, Cache cache, int degree) {
+        this.context = context;
+        this.cache = cache;
+        this.degree = degree;
+    }
+
+    public static Prefetcher create(Simulator context, Cache cache, CacheConfiguration configuration) {
+        switch (configuration.prefetcher) {
+            case NEXT_LINE:
+                return new NextLinePrefetcher(context, cache, configuration.prefetchDegree);
+            case STRIDE:
+                return new StridePrefetcher(context, cache, configuration.prefetchDegree, context.profile.prefetchTableSize);
+            case STREAM_BUFFER:
+                return new StreamBufferPrefetcher(context, cache, configuration.prefetchDegree, context.profile.prefetchTableSize);
+            default:
+                return new Prefetcher(context, cache, 0);
+        }
+    }
+
+    public PrefetcherType getType() {
+        return PrefetcherType.NONE;
+    }
+
+    /**
+     * Called after every demand access to the cache
+     * @param pc the address of the instruction making the access
+     * @param address the address that was accessed
+     * @param isHit true if the address was in the cache
+     * @param isFirstUseOfPrefetch true if this is the first demand access to a line that was prefetched
+     */
+    public void observe(short pc, short address, boolean isHit, boolean isFirstUseOfPrefetch) {
+        // NOOP
+    }
+
+    /**
+     * Called on a demand miss before going to the next level
+     * @return the block containing the address if the prefetcher is holding it outside of the cache, or null
+     */
+    public short[] take(short address) {
+        return null;
+    }
+
+    // Called on every store so the prefetcher can drop copies of blocks it holds outside of the cache
+    public void invalidate(short address) {
+        // NOOP
+    }
+
+    // Fraction of issued prefetches that were used
+    public double getAccuracy() {
+        return this.issued == 0 ? 0 : (double) this.useful / this.issued;
+    }
+
+    // Fraction of would-be demand misses that were removed by prefetching
+    public double getCoverage() {
+        long uncoveredMisses = this.cache.getReadMisses() + this.cache.getWriteMisses() - this.bufferHits;
+        return this.useful + uncoveredMisses == 0 ? 0 : (double) this.useful / (this.useful + uncoveredMisses);
+    }
+
+    // Cycles that demand accesses would have spent waiting for the blocks that were prefetched and used
+    public long getLatencyHidden() {
+        return this.issued == 0 ? 0 : this.useful * this.prefetchCycles / this.issued;
+    }
+
+    // Words moved into the cache by prefetches that were never used
+    public long getWordsWasted() {
+        return this.useless * 4;
+    }
+
+    public void dumpStatistics() {
+        if (this.getType() == PrefetcherType.NONE) return;
+        this.context.io.engineerConsolePrintLn("    Prefetcher: " + this.getType() + " (degree " + this.degree + ")");
+        this.context.io.engineerConsolePrintLn("        Issued: " + this.issued);
+        this.context.io.engineerConsolePrintLn("        Useful: " + this.useful);
+        this.context.io.engineerConsolePrintLn("        Useless: " + this.useless);
+        this.context.io.engineerConsolePrintLn("        Accuracy: " + String.format("%.4f", this.getAccuracy()));
+        this.context.io.engineerConsolePrintLn("        Coverage: " + String.format("%.4f", this.getCoverage()));
+        this.context.io.engineerConsolePrintLn("        Prefetch Cycles: " + this.prefetchCycles);
+        this.context.io.engineerConsolePrintLn("        Latency Hidden: " + this.getLatencyHidden());
+        this.context.io.engineerConsolePrintLn("        Words Wasted: " + this.getWordsWasted());
+    }
+}
+
+/**
+ * Tagged next-line prefetcher.
+ * A demand miss, or the first use of a prefetched line, prefetches the next degree blocks into the cache.
+ */
+class NextLinePrefetcher extends Prefetcher {
+    NextLinePrefetcher(Simulator context, Cache cache, int degree) {
+        super(context, cache, degree);
+    }
+
+    public PrefetcherType getType() {
+        return PrefetcherType.NEXT_LINE;
+    }
+
+    public void observe(short pc, short address, boolean isHit, boolean isFirstUseOfPrefetch) {
+        if (isHit && !isFirstUseOfPrefetch) return;
+        for (int i = 1; i <= this.degree; i++) {
+            this.context.memory.prefetchIntoCache(this, (short)(address + 4 * i));
+        }
+    }
+}
+
+/**
+ * Stride prefetcher with a reference prediction table indexed by the PC of the accessing instruction.
+ * Each entry remembers the last address and stride seen for that PC with a two bit confidence counter.
+ * Once the stride has repeated twice, the next degree strides are prefetched.
+ * Strides shorter than a block prefetch whole blocks in the direction of the stride instead.
+ * Instruction fetches never repeat a PC with a new address, so this is only useful on the L1 Data Cache.
+ */
+class StridePrefetcher extends Prefetcher {
+    private final short[] tags;
+    private final short[] lastAddresses;
+    private final int[] strides;
+    private final byte[] confidences;
+
+    StridePrefetcher(Simulator context, Cache cache, int degree, int tableSize) {
+        super(context, cache, degree);
+        this.tags = new short[tableSize];
+        this.lastAddresses = new short[tableSize];
+        this.strides = new int[tableSize];
+        this.confidences = new byte[tableSize];
+        // An entry with a tag of -1 is empty since -1 is never a valid PC
+        for (int i = 0; i < tableSize; i++) {
+            this.tags[i] = -1;
+        }
+    }
+
+    public PrefetcherType getType() {
+        return PrefetcherType.STRIDE;
+    }
+
+    public void observe(short pc, short address, boolean isHit, boolean isFirstUseOfPrefetch) {
+        int entry = Short.toUnsignedInt(pc) % this.tags.length;
+        if (this.tags[entry] != pc) {
+            this.tags[entry] = pc;
+            this.lastAddresses[entry] = address;
+            this.strides[entry] = 0;
+            this.confidences[entry] = 0;
+            return;
+        }
+
+        int stride = address - this.lastAddresses[entry];
+        this.lastAddresses[entry] = address;
+        if (stride != 0 && stride == this.strides[entry]) {
+            if (this.confidences[entry] < 3) this.confidences[entry]++;
+        } else if (this.confidences[entry] > 0) {
+            this.confidences[entry]--;
+        } else {
+            this.strides[entry] = stride;
+        }
+
+        if (this.confidences[entry] < 2) return;
+        int step = Math.abs(this.strides[entry]) < 4 ? Integer.signum(this.strides[entry]) * 4 : this.strides[entry];
+        for (int i = 1; i <= this.degree; i++) {
+            this.context.memory.prefetchIntoCache(this, (short)(address + step * i));
+        }
+    }
+}
+
+/**
+ * Stream buffers (Jouppi). Prefetched blocks are held in small FIFO buffers beside the cache instead of in the cache.
+ * A demand miss that hits a buffer moves the block into the cache and tops the buffer back up.
+ * A demand miss that hits no buffer restarts the least recently used buffer at the following blocks.
+ */
+class StreamBufferPrefetcher extends Prefetcher {
+    private final short[][] blockTags;
+    private final short[][][] blocks;
+    private final int[] counts;
+    private final long[] lastUsed;
+    private long useCounter;
+    private boolean servedLastMiss;
+
+    StreamBufferPrefetcher(Simulator context, Cache cache, int depth, int streams) {
+        super(context, cache, depth);
+        this.blockTags = new short[streams][depth];
+        this.blocks = new short[streams][depth][];
+        this.counts = new int[streams];
+        this.lastUsed = new long[streams];
+    }
+
+    public PrefetcherType getType() {
+        return PrefetcherType.STREAM_BUFFER;
+    }
+
+    public short[] take(short address) {
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+        for (int stream = 0; stream < this.blockTags.length; stream++) {
+            for (int i = 0; i < this.counts[stream]; i++) {
+                if (this.blockTags[stream][i] != tag) continue;
+                short[] block = this.blocks[stream][i];
+                // Blocks ahead of the one we hit were skipped by the stream and are dropped
+                this.useless += i;
+                this.shift(stream, i + 1);
+                this.useful++;
+                this.bufferHits++;
+                this.lastUsed[stream] = ++this.useCounter;
+                this.servedLastMiss = true;
+                this.fill(stream, (short)(tag + 1 + this.counts[stream]));
+                return block;
+            }
+        }
+        return null;
+    }
+
+    public void observe(short pc, short address, boolean isHit, boolean isFirstUseOfPrefetch) {
+        // A miss served by a buffer was already handled by take
+        if (isHit || this.servedLastMiss) {
+            this.servedLastMiss = false;
+            return;
+        }
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+
+        // Restart the least recently used stream after the missing block
+        int victim = 0;
+        for (int stream = 1; stream < this.blockTags.length; stream++) {
+            if (this.lastUsed[stream] < this.lastUsed[victim]) victim = stream;
+        }
+        this.useless += this.counts[victim];
+        this.counts[victim] = 0;
+        this.lastUsed[victim] = ++this.useCounter;
+        this.fill(victim, (short)(tag + 1));
+    }
+
+    public void invalidate(short address) {
+        short tag = Utils.short_unsigned_right_shift(address, 2);
+        for (int stream = 0; stream < this.blockTags.length; stream++) {
+            for (int i = 0; i < this.counts[stream]; i++) {
+                if (this.blockTags[stream][i] == tag) {
+                    // Everything from the stale block onwards is refetched later
+                    this.useless += this.counts[stream] - i;
+                    this.counts[stream] = i;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Drops the first n blocks of a stream
+    private void shift(int stream, int n) {
+        int remaining = this.counts[stream] - n;
+        System.arraycopy(this.blockTags[stream], n, this.blockTags[stream], 0, remaining);
+        System.arraycopy(this.blocks[stream], n, this.blocks[stream], 0, remaining);
+        this.counts[stream] = remaining;
+    }
+
+    // Prefetches blocks starting at a tag until the stream is full
+    private void fill(int stream, short nextTag) {
+        while (this.counts[stream] < this.degree) {
+            short[] block = this.context.memory.prefetchBlock(this, (short)(nextTag << 2));
+            if (block == null) return;
+            this.blockTags[stream][this.counts[stream]] = nextTag;
+            this.blocks[stream][this.counts[stream]] = block;
+            this.counts[stream]++;
+            nextTag++;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package com.simulator.awesome;
+
+enum PrefetcherType {
+    NONE, NEXT_LINE, STRIDE, STREAM_BUFFER
+}
@@ -0,0 +1,209 @@
+package com.simulator.awesome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the instructions retired at each address and with each opcode, and the cycles they took on the timing model,
+ * so the hot spots of a program can be found without the engineer console. Taken backward jumps mark the heads of
+ * loops. Each instruction is also attributed to the program, the trap whose handler it ran in, the fault handler or an
+ * interrupt handler. The trap of a call stack frame is recorded when TRAP jumps through the trap table.
+ *
+ * The profiler is turned on by profiler.enabled in the machine profile, or with setEnabled while the machine runs,
+ * and prints its report on HLT. The counters are arrays indexed by address and opcode, so recording an instruction
+ * only adds to a few of them.
+ */
+public class Profiler {
+    private static final int OPCODE_COUNT = 64;
+    private static final int TRAP_CODE_COUNT = 16;
+
+    private final Simulator context;
+    private final Assembler assembler = new Assembler();
+    private boolean isEnabled;
+
+    // Indexed by address: instructions retired, their cycles and the word last executed there
+    private final long[] addressInstructions;
+    private final long[] addressCycles;
+    private final short[] addressWords;
+
+    // Indexed by the target of taken backward jumps, with the address of the last jump back to it
+    private final long[] loopBranches;
+    private final short[] loopEnds;
+
+    private final long[] opcodeInstructions = new long[OPCODE_COUNT];
+    private final long[] opcodeCycles = new long[OPCODE_COUNT];
+
+    // The trap code each call stack frame was entered by, or -1 for JSR
+    private final int[] frameTraps = new int[4];
+    private final short[] trapHandlers = new short[TRAP_CODE_COUNT];
+
+    // Attribution
+    private final long[] trapInstructions = new long[TRAP_CODE_COUNT];
+    private final long[] trapCycles = new long[TRAP_CODE_COUNT];
+    private long programInstructions;
+    private long programCycles;
+    private long faultHandlerInstructions;
+    private long faultHandlerCycles;
+    private long interruptHandlerInstructions;
+    private long interruptHandlerCycles;
+
+    private long instructions;
+    private long cycles;
+    // The timing model's cycles when the last instruction retired
+    private long lastCycles;
+
+    Profiler(Simulator context) {
+        this.context = context;
+        int wordCount = context.memory.getWordCount();
+        this.addressInstructions = new long[wordCount];
+        this.addressCycles = new long[wordCount];
+        this.addressWords = new short[wordCount];
+        this.loopBranches = new long[wordCount];
+        this.loopEnds = new short[wordCount];
+        Arrays.fill(this.frameTraps, -1);
+        this.isEnabled = context.profile.isProfiling;
+    }
+
+    public boolean isEnabled() {
+        return this.isEnabled;
+    }
+
+    // Instructions retired while the profiler is off are not counted, and neither are their cycles
+    public void setEnabled(boolean isEnabled) {
+        if (isEnabled && !this.isEnabled) this.lastCycles = this.context.timing.getCycles();
+        this.isEnabled = isEnabled;
+    }
+
+    /**
+     * Call after the timing model has retired the instruction
+     * @param instruction the instruction retired
+     * @param address the address it was fetched from
+     */
+    public void recordRetired(Instruction instruction, short address) {
+        long now = this.context.timing.getCycles();
+        long cycles = now - this.lastCycles;
+        this.lastCycles = now;
+        this.instructions++;
+        this.cycles += cycles;
+
+        if (address >= 0 && address < this.addressInstructions.length) {
+            this.addressInstructions[address]++;
+            this.addressCycles[address] += cycles;
+            this.addressWords[address] = instruction.word;
+        }
+        this.opcodeInstructions[instruction.opCode]++;
+        this.opcodeCycles[instruction.opCode] += cycles;
+
+        short depth = this.context.msr.getCallStackDepth();
+        short pc = this.context.pc.get();
+        switch (instruction.opCode) {
+            // JZ, JNE, JCC, JMA, SOB and JGE
+            case 10:
+            case 11:
+            case 12:
+            case 13:
+            case 16:
+            case 17:
+                if (pc <= address && pc >= 0 && pc < this.loopBranches.length) {
+                    this.loopBranches[pc]++;
+                    this.loopEnds[pc] = address;
+                }
+                break;
+            // JSR
+            case 14:
+                this.frameTraps[depth] = -1;
+                break;
+            // TRAP has already jumped to its handler
+            case 30:
+                // The trap code is the low four bits of the word
+                int trapCode = instruction.word & 0b1111;
+                this.frameTraps[depth] = trapCode;
+                this.trapHandlers[trapCode] = pc;
+                break;
+        }
+
+        if (this.context.msr.isExecutingInterruptHandler()) {
+            this.interruptHandlerInstructions++;
+            this.interruptHandlerCycles += cycles;
+        } else if (this.context.msr.isExecutingFaultHandler()) {
+            this.faultHandlerInstructions++;
+            this.faultHandlerCycles += cycles;
+        } else {
+            int trapCode = -1;
+            for (int frame = depth; frame > 0 && trapCode < 0; frame--) trapCode = this.frameTraps[frame];
+            if (trapCode < 0) {
+                this.programInstructions++;
+                this.programCycles += cycles;
+            } else {
+                this.trapInstructions[trapCode]++;
+                this.trapCycles[trapCode] += cycles;
+            }
+        }
+    }
+
+    public long getInstructions(short address) {
+        return this.addressInstructions[address];
+    }
+
+    public long getCycles(short address) {
+        return this.addressCycles[address];
+    }
+
+    public long getOpcodeInstructions(int opcode) {
+        return this.opcodeInstructions[opcode];
+    }
+
+    // The addresses that retired the most instructions, most first
+    public List<Integer> getHottestAddresses(int count) {
+        List<Integer> addresses = new ArrayList<>();
+        for (int address = 0; address < this.addressInstructions.length; address++) {
+            if (this.addressInstructions[address] > 0) addresses.add(address);
+        }
+        addresses.sort((a, b) -> Long.compare(this.addressInstructions[b], this.addressInstructions[a]));
+        return addresses.subList(0, Math.min(count, addresses.size()));
+    }
+
+    private String describe(long instructions, long cycles) {
+        return instructions + " instructions, " + cycles + " cycles (" + String.format("%.1f", this.cycles == 0 ? 0 : 100.0 * cycles / this.cycles) + "%)";
+    }
+
+    public void dumpStatistics() {
+        if (this.instructions == 0) return;
+        InputOutput io = this.context.io;
+        io.engineerConsolePrintLn("Profile (" + this.instructions + " instructions, " + this.cycles + " cycles)");
+
+        io.engineerConsolePrintLn("    Hottest Addresses:");
+        for (int address : this.getHottestAddresses(this.context.profile.profilerHotAddresses)) {
+            io.engineerConsolePrintLn("        " + address + ": " + this.describe(this.addressInstructions[address], this.addressCycles[address]) + "  " + this.assembler.disassemble(this.addressWords[address]));
+        }
+
+        io.engineerConsolePrintLn("    Loops:");
+        for (int head = 0; head < this.loopBranches.length; head++) {
+            if (this.loopBranches[head] == 0) continue;
+            long instructions = 0;
+            long cycles = 0;
+            for (int address = head; address <= this.loopEnds[head]; address++) {
+                instructions += this.addressInstructions[address];
+                cycles += this.addressCycles[address];
+            }
+            io.engineerConsolePrintLn("        " + head + "-" + this.loopEnds[head] + ": " + this.loopBranches[head] + " jumps back, " + this.describe(instructions, cycles));
+        }
+
+        io.engineerConsolePrintLn("    Opcodes:");
+        for (int opcode = 0; opcode < OPCODE_COUNT; opcode++) {
+            if (this.opcodeInstructions[opcode] == 0) continue;
+            String mnemonic = this.assembler.disassemble((short) (opcode << 10)).split(" ")[0];
+            io.engineerConsolePrintLn("        " + mnemonic + ": " + this.describe(this.opcodeInstructions[opcode], this.opcodeCycles[opcode]));
+        }
+
+        io.engineerConsolePrintLn("    Time:");
+        io.engineerConsolePrintLn("        Program: " + this.describe(this.programInstructions, this.programCycles));
+        for (int trapCode = 0; trapCode < TRAP_CODE_COUNT; trapCode++) {
+            if (this.trapInstructions[trapCode] == 0) continue;
+            io.engineerConsolePrintLn("        Trap " + trapCode + " (handler at " + this.trapHandlers[trapCode] + "): " + this.describe(this.trapInstructions[trapCode], this.trapCycles[trapCode]));
+        }
+        if (this.faultHandlerInstructions > 0) io.engineerConsolePrintLn("        Fault Handler: " + this.describe(this.faultHandlerInstructions, this.faultHandlerCycles));
+        if (this.interruptHandlerInstructions > 0) io.engineerConsolePrintLn("        Interrupt Handlers: " + this.describe(this.interruptHandlerInstructions, this.interruptHandlerCycles));
+    }
+}
@@ -13,7 +13,7 @@ public class ReadOnlyMemory {
         try {
             String basePath = new File("").getAbsolutePath(); //get current base directory
             // Our logic to load programs right to left assumes the memoryPosition is exclusive (the start address of the subsequent program), so add one to wordcount to use last word
-            short earliestTopAddressUsed = Config.WORD_COUNT;
+            short earliestTopAddressUsed = this.context.memory.getWordCount();
 
             // Set privileged
             this.context.msr.setSupervisorMode(true);
@@ -93,14 +93,14 @@ public class ReadOnlyMemory {
             // Address  6: Indirect to Bootloader
             this.context.memory.store((short) 6, bootloaderLocation);
             // Address  7: Indirect to User Program
-            // Address  8: Reserved for Supervisor
-            // Address  9: Reserved for Supervisor
-            // Address 10: Reserved for Supervisor
-            // Address 11: Reserved for Supervisor
-            // Address 12: Reserved for Supervisor
-            // Address 13: Reserved for Supervisor
-            // Address 14: Reserved for Supervisor
-            // Address 15: Reserved for Supervisor
+            // Address  8: Indirect to Interrupt Handler for line 0 (Interval Timer), 0 if none
+            // Address  9: Indirect to Interrupt Handler for line 1 (Console Keyboard)
+            // Address 10: Indirect to Interrupt Handler for line 2 (Card Reader)
+            // Address 11: Indirect to Interrupt Handler for line 3
+            // Address 12: Indirect to Interrupt Handler for line 4
+            // Address 13: Indirect to Interrupt Handler for line 5
+            // Address 14: Indirect to Interrupt Handler for line 6
+            // Address 15: Indirect to Interrupt Handler for line 7
             // Address 16: Current Stack Frame Indirect
             // Address 17: Register-to-Register Buffer (for copying index registers to general registers and visa-versa)
             // Address 18: Heap Dataset Indirect
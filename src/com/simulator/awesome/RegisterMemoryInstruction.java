@@ -26,6 +26,18 @@ public class RegisterMemoryInstruction extends Instruction {
         this.validateIndexRegisterIndex(this.indexRegisterId);
     }
 
+    public int getAddressRegisters() {
+        return indexRegisterBit(this.indexRegisterId);
+    }
+
+    public short getDecodedTarget() {
+        return (short) (this.context.getIndexRegister(this.indexRegisterId) + this.address);
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.REGISTER_MEMORY;
+    }
+
     public void computeEffectiveAddress() {
         // IAR <- EA
         this.context.setInternalAddressRegister((short) (this.context.getIndexRegister(this.indexRegisterId) + this.address));
@@ -74,6 +86,10 @@ class LoadRegisterFromMemory extends RegisterMemoryInstruction {
         this.validateIndexRegisterIndex(this.indexRegisterId);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -101,6 +117,10 @@ class StoreRegisterToMemory extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -129,6 +149,10 @@ class LoadRegisterWithAddress extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -159,6 +183,10 @@ class LoadIndexRegisterFromMemory extends RegisterMemoryInstruction {
         this.destinationIndexRegisterId = this.registerId;
     }
 
+    public int getDestinationRegisters() {
+        return indexRegisterBit(this.destinationIndexRegisterId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -190,6 +218,10 @@ class StoreIndexRegisterToMemory extends RegisterMemoryInstruction {
         this.sourceIndexRegisterId = this.registerId;
     }
 
+    public int getSourceRegisters() {
+        return indexRegisterBit(this.sourceIndexRegisterId);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -219,6 +251,18 @@ class JumpIfZero extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return CONDITION_CODE_BIT;
+    }
+
+    public int getBranchResolutionStep() {
+        return 5;
+    }
+
     // Sets the IAR with the address we conditionally might want to set the PC to
     public void fetchOperand(){
         // Fault Handling and Validation
@@ -263,6 +307,18 @@ class JumpIfNotEqual extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return CONDITION_CODE_BIT;
+    }
+
+    public int getBranchResolutionStep() {
+        return 5;
+    }
+
     // Sets the IAR with the address we conditionally might want to set the PC to
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
@@ -317,6 +373,14 @@ class JumpIfConditionCode extends RegisterMemoryInstruction {
         this.conditionCode = this.registerId;
     }
 
+    public int getSourceRegisters() {
+        return CONDITION_CODE_BIT;
+    }
+
+    public int getBranchResolutionStep() {
+        return 3;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -373,6 +437,10 @@ class JumpAndSaveReturnAddress extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(3) | indexRegisterBit(3);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -409,6 +477,18 @@ class ReturnFromSubroutine extends RegisterMemoryInstruction {
         this.immediateValue = this.address;
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(3);
+    }
+
+    public int getAddressRegisters() {
+        return 0;
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(0);
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -420,6 +500,11 @@ class ReturnFromSubroutine extends RegisterMemoryInstruction {
         if (this.context.msr.isExecutingFaultHandler()) {
             // "Fault Handler" Exit
             this.context.pc.set(this.context.memory.fetch((short)4));
+            // The interrupted program did not expect R0 to change
+            if (this.context.msr.isExecutingInterruptHandler()) {
+                this.context.setGeneralRegister((short) 0, this.context.memory.fetch((short)5));
+                this.context.msr.setIsExecutingInterruptHandler(false);
+            }
             if (this.context.msr.isSupervisorFault()){
                 this.context.msr.setIsSupervisorFault(false);
             } else {
@@ -464,6 +549,18 @@ class SubtractOneAndBranch extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
+    public int getBranchResolutionStep() {
+        return 5;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -508,6 +605,18 @@ class JumpGreaterThanOrEqualTo extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return CONDITION_CODE_BIT;
+    }
+
+    public int getBranchResolutionStep() {
+        return 5;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -550,6 +659,14 @@ class AddMemoryToRegister extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -597,6 +714,14 @@ class SubtractMemoryFromRegister extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -650,6 +775,18 @@ class AddImmediateToRegister extends RegisterMemoryInstruction {
         this.immediate = this.address;
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getAddressRegisters() {
+        return 0;
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -701,6 +838,18 @@ class SubtractImmediateFromRegister extends RegisterMemoryInstruction {
         this.immediate = this.address;
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getAddressRegisters() {
+        return 0;
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -753,6 +902,15 @@ class VectorAdd extends RegisterMemoryInstruction {
         super(word, context);
 
     }
+
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.VECTOR;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -821,6 +979,14 @@ class VectorSubtract extends RegisterMemoryInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.VECTOR;
+    }
+
     public void fetchOperand() throws IllegalMemoryAccessToReservedLocationsException, IllegalMemoryAddressBeyondLimitException {
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -23,6 +23,14 @@ public class RegisterRegisterInstruction extends Instruction {
         this.validateGeneralRegisterIndex(this.secondRegisterId);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | generalRegisterBit(this.secondRegisterId);
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.REGISTER_REGISTER;
+    }
+
     public void print(){
         System.out.println("OpCode: " + this.opCode);
         System.out.println("First Register ID: " + this.firstRegisterId);
@@ -46,6 +54,10 @@ class MultiplyRegisterByRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | generalRegisterBit(this.firstRegisterId + 1) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.firstRegisterId != 0 && this.firstRegisterId != 2)  this.didFault = true;
@@ -93,6 +105,10 @@ class DivideRegisterByRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | generalRegisterBit(this.firstRegisterId + 1) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.firstRegisterId != 0 && this.firstRegisterId != 2) this.didFault = true;
@@ -135,6 +151,10 @@ class TestTheEqualityOfRegisterAndRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -166,6 +186,10 @@ class LogicalAndOfRegisterAndRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -201,6 +225,10 @@ class LogicalOrOfRegisterAndRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -235,6 +263,14 @@ class LogicalNotOfRegisterAndRegister extends RegisterRegisterInstruction {
         super(word, context);
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.firstRegisterId);
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.firstRegisterId) | CONDITION_CODE_BIT;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
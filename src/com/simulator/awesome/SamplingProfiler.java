@@ -0,0 +1,118 @@
+package com.simulator.awesome;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Takes a sample of the simulated call chain every sampler.interval retired instructions and counts how often each
+ * chain was seen, so the subroutines and traps a program spends its time in can be drawn as a flame graph. Nothing is
+ * recorded between samples.
+ *
+ * A chain is read from the machine's own state: the callee address that JSR and TRAP write to the first word of each
+ * call stack frame, the fault or interrupt handler flags of the MSR and the address of the instruction that just
+ * retired. Frames entered through the trap table are named by their trap code. A sample looks like
+ *   program;JSR 200;TRAP 0;@1815
+ *
+ * On HLT the chains are written in the collapsed stack format, one chain and its count per line, to the file set by
+ * sampler.output.
+ */
+public class SamplingProfiler {
+    private static final int TRAP_CODE_COUNT = 16;
+
+    private final Simulator context;
+    private final int interval;
+
+    // Retired instructions left until the next sample
+    private int countdown;
+
+    // The number of samples of each chain, sorted so the output is the same every run
+    private final Map<String, Long> stacks = new TreeMap<>();
+    private long samples;
+
+    SamplingProfiler(Simulator context) {
+        this.context = context;
+        this.interval = context.profile.sampleInterval;
+        this.countdown = this.interval;
+    }
+
+    public boolean isEnabled() {
+        return this.interval > 0;
+    }
+
+    public void instructionRetired() {
+        if (this.interval == 0 || --this.countdown > 0) return;
+        this.countdown = this.interval;
+        this.sample();
+    }
+
+    // Records the current call chain
+    public void sample() {
+        StringBuilder stack = new StringBuilder("program");
+        Memory memory = this.context.memory;
+        short trapTable = memory.peek((short) 0);
+        for (short depth = 1; depth <= this.context.msr.getCallStackDepth(); depth++) {
+            short callee = memory.peek(this.context.getCallStackFrameBase(depth));
+            stack.append(';').append(this.describeCall(trapTable, callee));
+        }
+        if (this.context.msr.isExecutingInterruptHandler()) {
+            stack.append(";interrupt handler");
+        } else if (this.context.msr.isExecutingFaultHandler()) {
+            stack.append(";fault handler (").append(this.describeFault()).append(')');
+        }
+        stack.append(";@").append(this.context.cu.getInstructionAddress());
+        this.stacks.merge(stack.toString(), 1L, Long::sum);
+        this.samples++;
+    }
+
+    private String describeCall(short trapTable, short callee) {
+        for (int trapCode = 0; trapCode < TRAP_CODE_COUNT; trapCode++) {
+            int entry = trapTable + trapCode;
+            if (trapTable != 0 && entry < this.context.memory.getWordCount() && this.context.memory.peek((short) entry) == callee) return "TRAP " + trapCode;
+        }
+        return "JSR " + callee;
+    }
+
+    private String describeFault() {
+        MachineFaultRegister mfr = this.context.mfr;
+        if (mfr.isIllegalMemoryAccessToReservedLocations()) return "reserved location";
+        if (mfr.isIllegalTrapCode()) return "illegal trap code";
+        if (mfr.isIllegalOpcode()) return "illegal opcode";
+        if (mfr.isIllegalMemoryAddressBeyondLimit()) return "beyond memory";
+        return "unknown";
+    }
+
+    public Map<String, Long> getStacks() {
+        return this.stacks;
+    }
+
+    public long getSamples() {
+        return this.samples;
+    }
+
+    // Writes each chain and its number of samples, separated by a space
+    public void write(Writer writer) {
+        PrintWriter output = new PrintWriter(writer);
+        for (Map.Entry<String, Long> stack : this.stacks.entrySet()) {
+            output.println(stack.getKey() + " " + stack.getValue());
+        }
+        output.flush();
+    }
+
+    // Writes the samples to sampler.output, with the run's name and the core's number added when there are several
+    public void dumpStatistics() {
+        if (this.samples == 0) return;
+        String path = this.context.getOwnPath(this.context.profile.sampleOutput);
+        try (Writer writer = Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8)) {
+            this.write(writer);
+            this.context.io.engineerConsolePrintLn("Wrote " + this.samples + " samples of " + this.stacks.size() + " call chains to " + path);
+        } catch (IOException e) {
+            System.err.println("Cannot write samples to " + path + ": " + e.getMessage());
+        }
+    }
+}
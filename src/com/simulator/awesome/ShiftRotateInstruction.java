@@ -35,6 +35,18 @@ public class ShiftRotateInstruction extends Instruction{
         this.registerId = Utils.short_unsigned_right_shift((short)(word & registerMask), registerOffset );
     }
 
+    public int getSourceRegisters() {
+        return generalRegisterBit(this.registerId);
+    }
+
+    public int getDestinationRegisters() {
+        return generalRegisterBit(this.registerId) | CONDITION_CODE_BIT;
+    }
+
+    public InstructionClass getInstructionClass() {
+        return InstructionClass.SHIFT_ROTATE;
+    }
+
     public void fetchOperand(){
         // Fault Handling and Validation
         if (this.didFault) return;
@@ -4,6 +4,9 @@ import static com.simulator.awesome.Utils.*;
 
 public class Simulator {
 
+    // The configurable parts of the machine, such as the cache hierarchy
+    public final MachineProfile profile;
+
     // Control Unit, including the IR
     public ControlUnit cu;
 
@@ -44,9 +47,66 @@ public class Simulator {
 
     public final ReadOnlyMemory rom;
 
+    // Cycle accounting for the program being run
+    public TimingModel timing;
+
+    // Interrupt lines and the interval timer
+    public InterruptController interrupts;
+
+    public DmaController dma;
+
+    // Counts instructions and cycles by address and opcode
+    public Profiler profiler;
+
+    // Samples the simulated call chain
+    public SamplingProfiler sampler;
+
+    // Writes a binary trace of the instructions run
+    public TraceRecorder tracer;
+
+    // Breakpoints and watchpoints, which are kept when the machine is reset
+    public Breakpoints breakpoints;
+
+    // Remembers what each instruction changed, so the machine can step back
+    public UndoJournal journal;
+
+    // Records the machine's input, or feeds it input recorded before
+    public InputRecorder inputRecorder;
+    public InputReplayer inputReplayer;
+
+    // Gives Java Flight Recorder events for what the machine does
+    public FlightRecorderEvents flightRecorder;
+
+    // This core's number and how many cores share its memory, read with IN and CHK from the core ID device
+    public short coreId;
+    public short coreCount;
+
+    // This machine's number and how many machines are linked with it, when it is a node of a Cluster
+    public short nodeId;
+    public short nodeCount;
+
+    // Names this run when several machines run at once, such as in a sweep, or null
+    public String runName;
+
     Simulator(int wordCount) {
+        this(wordCount, new MachineProfile());
+    }
+
+    Simulator(int wordCount, MachineProfile profile) {
+        this.profile = profile;
         this.cu = new ControlUnit(this);
+        this.timing = new TimingModel(this);
+        this.interrupts = new InterruptController(this);
+        this.dma = new DmaController(this);
         this.memory = new Memory(this, wordCount);
+        this.profiler = new Profiler(this);
+        this.sampler = new SamplingProfiler(this);
+        this.tracer = new TraceRecorder(this);
+        this.breakpoints = new Breakpoints(this);
+        this.journal = new UndoJournal(this);
+        this.inputRecorder = new InputRecorder(this);
+        this.inputReplayer = new InputReplayer(this);
+        this.flightRecorder = new FlightRecorderEvents(this);
         this.alu = new ArithmeticLogicUnit(this);
         this.fpu = new FloatingPointUnit(this);
         this.io = new InputOutput(this);
@@ -55,6 +115,10 @@ public class Simulator {
         this.msr = new MachineStatusRegister();
         this.mfr = new MachineFaultRegister();
         this.rom = new ReadOnlyMemory(this);
+        this.coreId = 0;
+        this.coreCount = 1;
+        this.nodeId = 0;
+        this.nodeCount = 1;
         this.iar = 0;
         this.r0 = 0;
         this.r1 = 0;
@@ -73,9 +137,46 @@ public class Simulator {
         this.msr.setIsInteractive(false);
     }
 
+    // The file this machine writes for a path in its profile, path.run.core, so machines running at once do not share one
+    public String getOwnPath(String path){
+        if (this.runName != null) path += "." + this.runName;
+        if (this.nodeCount > 1) path += ".node" + this.nodeId;
+        if (this.coreCount > 1) path += "." + this.coreId;
+        return path;
+    }
+
+    // Writes out what the trace and the input recording hold, so their files are complete while the machine is paused
+    public void flushRecordings(){
+        this.tracer.flush();
+        this.inputRecorder.flush();
+    }
+
+    // Closes the files the machine writes to and reads from. Call when the host exits, such as from a shutdown hook.
+    public void shutdown(){
+        this.io.closeOutputSinks();
+        this.tracer.close();
+        this.inputRecorder.close();
+        this.inputReplayer.close();
+    }
+
     public void reset(){
         this.cu = new ControlUnit(this);
+        this.timing = new TimingModel(this);
+        this.interrupts = new InterruptController(this);
+        this.dma = new DmaController(this);
         this.memory.reset();
+        this.profiler = new Profiler(this);
+        this.sampler = new SamplingProfiler(this);
+        // Each run starts a new trace
+        this.tracer.close();
+        this.tracer = new TraceRecorder(this);
+        this.journal = new UndoJournal(this);
+        // Input is recorded and replayed from the start of each run
+        this.inputRecorder.close();
+        this.inputRecorder = new InputRecorder(this);
+        this.inputReplayer.close();
+        this.inputReplayer = new InputReplayer(this);
+        this.flightRecorder = new FlightRecorderEvents(this);
         this.alu = new ArithmeticLogicUnit(this);
         this.pc = new ProgramCounter();
         this.cc.reset();
@@ -216,25 +317,54 @@ public class Simulator {
         }
     }
 
+    // The registers dumped to the engineer console and how many of their low bits are shown
+    private static final String[] DUMPED_REGISTERS = {"Program Counter", "Condition Code", "Instruction Register", "Internal Address Register", "Memory Address Register", "Memory Buffer Register", "Memory Fault Register", "General Register 0", "General Register 1", "General Register 2", "General Register 3", "Index Register 1", "Index Register 2", "Index Register 3"};
+    private static final int[] DUMPED_REGISTER_BITS = {12, 4, 16, 16, 12, 16, 4, 16, 16, 16, 16, 16, 16, 16};
+
+    // The values of the registers at the last dump
+    private final short[] dumpedRegisters = new short[DUMPED_REGISTERS.length];
+
+    private void readDumpedRegisters(short[] values){
+        values[0] = this.pc.get();
+        values[1] = this.cc.get();
+        values[2] = this.cu.getInstructionRegister();
+        values[3] = this.iar;
+        values[4] = this.memory.mar.get();
+        values[5] = this.memory.getMemoryBufferRegister();
+        values[6] = this.mfr.get();
+        values[7] = this.r0;
+        values[8] = this.r1;
+        values[9] = this.r2;
+        values[10] = this.r3;
+        values[11] = this.x1;
+        values[12] = this.x2;
+        values[13] = this.x3;
+    }
+
+    private void dumpRegister(int register, short value){
+        this.io.engineerConsolePrintLn(DUMPED_REGISTERS[register] + ": " + wordToString(value).substring(16 - DUMPED_REGISTER_BITS[register]));
+    }
+
     public void dumpRegistersToJavaConsole(){
         this.io.engineerConsolePrintLn("===============================");
         this.io.engineerConsolePrintLn("Registers");
         this.io.engineerConsolePrintLn("===============================");
-        this.io.engineerConsolePrintLn("Program Counter: " + this.pc.toString());
-        this.io.engineerConsolePrintLn("Condition Code: " + this.cc.toString());
-        this.io.engineerConsolePrintLn("Instruction Register: " + wordToString(this.cu.getInstructionRegister()));
-        this.io.engineerConsolePrintLn("Internal Address Register: " + wordToString(this.iar));
-        this.io.engineerConsolePrintLn("Memory Address Register: " + this.memory.mar.toString());
-        this.io.engineerConsolePrintLn("Memory Buffer Register: " + wordToString(this.memory.getMemoryBufferRegister()));
-        this.io.engineerConsolePrintLn("Memory Fault Register: " + this.mfr.toString());
-        this.io.engineerConsolePrintLn("General Register 0: " + wordToString(this.r0));
-        this.io.engineerConsolePrintLn("General Register 1: " + wordToString(this.r1));
-        this.io.engineerConsolePrintLn("General Register 2: " + wordToString(this.r2));
-        this.io.engineerConsolePrintLn("General Register 3: " + wordToString(this.r3));
-        this.io.engineerConsolePrintLn("Index Register 1: " + wordToString(this.x1));
-        this.io.engineerConsolePrintLn("Index Register 2: " + wordToString(this.x2));
-        this.io.engineerConsolePrintLn("Index Register 3: " + wordToString(this.x3));
+        this.readDumpedRegisters(this.dumpedRegisters);
+        for (int i = 0; i < DUMPED_REGISTERS.length; i++) this.dumpRegister(i, this.dumpedRegisters[i]);
+        this.io.engineerConsolePrintLn("===============================");
+    }
+
+    // Like dumpRegistersToJavaConsole, but only prints the registers that changed since the last dump
+    public void dumpChangedRegistersToJavaConsole(){
+        short[] values = new short[DUMPED_REGISTERS.length];
+        this.readDumpedRegisters(values);
+        this.io.engineerConsolePrintLn("===============================");
+        this.io.engineerConsolePrintLn("Changed Registers");
         this.io.engineerConsolePrintLn("===============================");
+        for (int i = 0; i < DUMPED_REGISTERS.length; i++) {
+            if (values[i] != this.dumpedRegisters[i]) this.dumpRegister(i, values[i]);
+        }
+        System.arraycopy(values, 0, this.dumpedRegisters, 0, values.length);
     }
 
     // Writes the program address as an indirect at address 7
@@ -250,6 +380,18 @@ public class Simulator {
         this.msr.setSupervisorMode(isSupervisor);
     }
 
+    // Writes the address of the handler for an interrupt line to its vector
+    public void setInterruptHandler(int line, short handlerAddress){
+        boolean isSupervisor = this.msr.isSupervisorMode();
+        this.msr.setSupervisorMode(true);
+        try {
+            this.memory.store((short)(Config.INTERRUPT_VECTOR_BASE + line), handlerAddress);
+        } catch (IllegalMemoryAccessToReservedLocationsException | IllegalMemoryAddressBeyondLimitException e) {
+            e.printStackTrace();
+        }
+        this.msr.setSupervisorMode(isSupervisor);
+    }
+
     public void loadUserProgram(String[] assembledMachineCode, short programAddress){
         this.loadProgram(assembledMachineCode, programAddress, true, false);
         // The Heap Space starts one word after the user program. However, if the user loads multiple programs,
@@ -330,6 +472,7 @@ public class Simulator {
         } catch (IllegalMemoryAccessToReservedLocationsException | IllegalMemoryAddressBeyondLimitException e) {
             e.printStackTrace();
         }
+        if (this.flightRecorder.isEnabled(FlightRecorderEventType.CALL)) this.flightRecorder.call(baseAddressOfCallee, currentCallStackDepth);
     }
 
     public void decrementCallStack(){
@@ -363,6 +506,7 @@ public class Simulator {
         if (!callerIsInSupervisor) this.msr.setSupervisorMode(false);
 
         this.msr.setCallStackDepth(newCallStackDepth);
+        if (this.flightRecorder.isEnabled(FlightRecorderEventType.RETURN)) this.flightRecorder.callReturned(newCallStackDepth);
     }
 
 }
\ No newline at end of file
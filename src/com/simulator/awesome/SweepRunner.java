@@ -0,0 +1,338 @@
+package com.simulator.awesome;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// How a run of a sweep ended
+enum SweepRunStatus {
+    HALTED,            // The program ran HLT
+    WAITING_FOR_INPUT, // The program ran out of input
+    LIMIT              // The program reached the instruction limit
+}
+
+/**
+ * Runs every program of a corpus on every combination of a grid of machine settings, in parallel, and prints a table of
+ * cycles, instructions, cache misses and faults, so machine designs can be compared without editing Config. They are
+ * counted from when the program has been loaded, so booting from ROM and storing the program are left out, and the
+ * instruction limit counts the program's instructions only.
+ *
+ * Settings come from a properties file, such as static/sweep.properties, and key=value arguments after it:
+ *   programs=program-one.txt,test-vector.txt  programs in static/
+ *   keyboard.program-one.txt=1\n2\n          keyboard input for a program
+ *   deck.program-two.txt=deck-0.txt          card deck in static/ for a program
+ *   replay.program-one.txt=input.log         input recorded with input.record, used instead of keyboard and deck
+ *   profile=static/machine-profile.properties the machine profile the grid starts from
+ *   grid.l1d.lines=8,16,32                   each grid.key is a machine profile setting and the values to try
+ *   grid.words=2048,4096                     grid.words sets the words of memory, as grid.memory.words does
+ *   grid.cores.count=1,2,4                   more than one core runs the program on a Multiprocessor
+ *   grid.cluster.nodes=1,2,4                 more than one node runs the program on every node of a Cluster
+ *   limit=10000000  threads=4  format=CSV|JSON  output=sweep-results.csv
+ * Each run is a new Simulator with the engineer console off, attached to a console so HLT does not exit. The cores of a
+ * Multiprocessor or nodes of a Cluster take turns one step at a time whatever cores.threaded or cluster.lockstep say, so
+ * the limit holds, and the results add up the machines, except for cycles, which are the slowest machine's. Keyboard
+ * input and decks go to the first machine. Files a run
+ * writes, such as a FILE output sink or trace.file, have the run's number added, path.run3 for the fourth run.
+ */
+public class SweepRunner {
+    private static final String WORDS = "words";
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Properties settings = new Properties();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length == 2) {
+                settings.setProperty(pair[0].trim(), pair[1].trim());
+            } else {
+                try (InputStream input = new FileInputStream(arg)) {
+                    settings.load(input);
+                }
+            }
+        }
+        List<SweepRun> runs = createRuns(settings);
+        int threads = MachineProfile.getInt(settings, "threads", Runtime.getRuntime().availableProcessors());
+        System.err.println("Running " + runs.size() + " runs on " + threads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (SweepRun run : runs) futures.add(executor.submit(run::run));
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        // Programs print to standard output as they run, so the table goes to a file
+        boolean isJson = settings.getProperty("format", "CSV").equalsIgnoreCase("JSON");
+        String output = settings.getProperty("output", isJson ? "sweep-results.json" : "sweep-results.csv");
+        try (PrintStream stream = new PrintStream(output, "UTF-8")) {
+            if (isJson) {
+                printJson(runs, stream);
+            } else {
+                printCsv(runs, stream);
+            }
+        }
+        System.err.println("Wrote " + runs.size() + " runs to " + output);
+    }
+
+    // One run for each program and each combination of grid values, with the grid keys in sorted order
+    static List<SweepRun> createRuns(Properties settings) throws IOException {
+        String profilePath = settings.getProperty("profile", "");
+        MachineProfile base = profilePath.isEmpty() ? new MachineProfile() : MachineProfile.load(profilePath);
+        base.isEngineerConsole = false;
+        long limit = Long.parseLong(settings.getProperty("limit", "10000000"));
+
+        Map<String, String[]> grid = new LinkedHashMap<>();
+        for (String key : new TreeSet<>(settings.stringPropertyNames())) {
+            if (key.startsWith("grid.")) grid.put(key.substring(5), settings.getProperty(key).split(","));
+        }
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<>());
+        for (Map.Entry<String, String[]> dimension : grid.entrySet()) {
+            List<Map<String, String>> expanded = new ArrayList<>();
+            for (Map<String, String> point : points) {
+                for (String value : dimension.getValue()) {
+                    Map<String, String> next = new LinkedHashMap<>(point);
+                    next.put(dimension.getKey(), value.trim());
+                    expanded.add(next);
+                }
+            }
+            points = expanded;
+        }
+
+        List<SweepRun> runs = new ArrayList<>();
+        for (String program : settings.getProperty("programs", "program-one.txt").split(",")) {
+            program = program.trim();
+            for (Map<String, String> point : points) {
+                Properties overrides = new Properties();
+                overrides.putAll(point);
+                if (point.containsKey(WORDS)) overrides.setProperty("memory.words", point.get(WORDS));
+                MachineProfile profile = base.copy();
+                profile.apply(overrides);
+                profile.isEngineerConsole = false;
+                String replay = settings.getProperty("replay." + program);
+                if (replay != null) {
+                    profile.inputRecordFile = null;
+                    profile.inputReplayFile = replay;
+                    runs.add(new SweepRun(runs.size(), program, point, profile, "", null, limit));
+                } else {
+                    runs.add(new SweepRun(runs.size(), program, point, profile, settings.getProperty("keyboard." + program, ""), settings.getProperty("deck." + program), limit));
+                }
+            }
+        }
+        return runs;
+    }
+
+    private static final String[] COLUMNS = {"status", "instructions", "cycles", "cpi", "l1iMisses", "l1dMisses", "l2Misses", "faults", "outputWords", "hostMillis"};
+
+    static void printCsv(List<SweepRun> runs, PrintStream output) {
+        if (runs.isEmpty()) return;
+        StringBuilder header = new StringBuilder("program");
+        for (String key : runs.get(0).point.keySet()) header.append(',').append(key);
+        for (String column : COLUMNS) header.append(',').append(column);
+        output.println(header);
+        for (SweepRun run : runs) {
+            StringBuilder line = new StringBuilder(run.program);
+            for (String value : run.point.values()) line.append(',').append(value);
+            for (Object value : run.getResults()) line.append(',').append(value);
+            output.println(line);
+        }
+    }
+
+    static void printJson(List<SweepRun> runs, PrintStream output) {
+        output.println("[");
+        for (int i = 0; i < runs.size(); i++) {
+            SweepRun run = runs.get(i);
+            StringBuilder line = new StringBuilder("  {\"program\": \"").append(run.program).append('"');
+            for (Map.Entry<String, String> setting : run.point.entrySet()) {
+                line.append(", \"").append(setting.getKey()).append("\": \"").append(setting.getValue()).append('"');
+            }
+            Object[] results = run.getResults();
+            for (int j = 0; j < COLUMNS.length; j++) {
+                line.append(", \"").append(COLUMNS[j]).append("\": ");
+                line.append(results[j] instanceof Number ? results[j] : "\"" + results[j] + "\"");
+            }
+            output.println(line.append(i < runs.size() - 1 ? "}," : "}"));
+        }
+        output.println("]");
+    }
+}
+
+// One program on one machine
+class SweepRun {
+    final int number;
+    final String program;
+    final Map<String, String> point;
+    private final MachineProfile profile;
+    private final String keyboard;
+    private final String deck;
+    private final long limit;
+
+    private SweepRunStatus status;
+    // The counters the results report for each machine once the program was loaded and once it stopped, or null if
+    // the run failed
+    private Simulator[] machines;
+    private long[][] loaded;
+    private long[][] finished;
+    private long outputWords;
+    private long hostMillis;
+
+    SweepRun(int number, String program, Map<String, String> point, MachineProfile profile, String keyboard, String deck, long limit) {
+        this.number = number;
+        this.program = program;
+        this.point = point;
+        this.profile = profile;
+        this.keyboard = keyboard;
+        this.deck = deck;
+        this.limit = limit;
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        try {
+            String runName = "run" + this.number;
+            Cluster cluster = this.profile.nodeCount > 1 ? new Cluster(this.profile, runName) : null;
+            Multiprocessor multiprocessor = this.profile.coreCount > 1 ? new Multiprocessor(this.profile, runName) : null;
+            Simulator[] machines;
+            if (cluster != null) {
+                machines = cluster.nodes;
+            } else if (multiprocessor != null) {
+                machines = multiprocessor.cores;
+            } else {
+                machines = new Simulator[]{new Simulator(this.profile.wordCount, this.profile)};
+                machines[0].runName = runName;
+            }
+            Simulator s = machines[0];
+            if (cluster != null) {
+                cluster.reset();
+            } else if (multiprocessor != null) {
+                multiprocessor.reset();
+            } else {
+                s.attachConsole();
+                s.io.initializeIOBuffers();
+                s.reset();
+            }
+            Assembler assembler = new Assembler();
+            assembler.loadFile(new File("static", this.program).getAbsolutePath());
+            String[] machineCode = assembler.convertToMachineCode();
+            if (cluster != null) {
+                cluster.load(machineCode, (short) 160);
+            } else {
+                s.rom.load();
+                s.loadUserProgram(machineCode, (short) 160);
+            }
+            if (!this.keyboard.isEmpty()) s.io.addTextToInputBuffer((short) 0, this.keyboard);
+            if (this.deck != null) s.io.loadDeck(new File("static", this.deck));
+            // Booting from ROM and storing the program go through the caches too, so they are left out of the results
+            long[][] loaded = getCounters(machines);
+            long instructions = 0;
+
+            if (cluster != null) {
+                cluster.start();
+            } else if (multiprocessor != null) {
+                multiprocessor.start();
+            } else {
+                s.msr.setIsRunning(true);
+            }
+            boolean isAnyRunning = true;
+            while (isAnyRunning && instructions < this.limit) {
+                isAnyRunning = false;
+                for (Simulator machine : machines) {
+                    if (!machine.msr.isRunning()) continue;
+                    long retired = machine.timing.getRetiredInstructions();
+                    machine.cu.singleStep();
+                    instructions += machine.timing.getRetiredInstructions() - retired;
+                    isAnyRunning = true;
+                }
+            }
+            this.status = SweepRunStatus.HALTED;
+            for (Simulator machine : machines) {
+                if (machine.msr.isRunning()) {
+                    this.status = SweepRunStatus.LIMIT;
+                } else if (machine.msr.isReadyForInput() && this.status == SweepRunStatus.HALTED) {
+                    this.status = SweepRunStatus.WAITING_FOR_INPUT;
+                }
+            }
+            for (Simulator machine : machines) {
+                // Words sent to a sink never reach the printer's output buffer, so they are counted where they went
+                OutputSink sink = machine.io.getOutputSink((short) 1);
+                if (sink != null) this.outputWords += sink.getWords();
+                while (!machine.io.isOutputBufferNull((short) 1)) {
+                    machine.io.getFirstWordFromOutputBuffer((short) 1);
+                    this.outputWords++;
+                }
+                // The run is over, so its sinks, trace and recording are finished
+                machine.shutdown();
+            }
+            this.machines = machines;
+            this.loaded = loaded;
+            this.finished = getCounters(machines);
+        } catch (IOException | RuntimeException | Error e) {
+            // Settings the machine rejects, such as a cache geometry, fail this run only
+            System.err.println("Cannot run " + this.program + " with " + this.point + ": " + e.getMessage());
+        }
+        this.hostMillis = (System.nanoTime() - start) / 1000000;
+    }
+
+    // Instructions, cycles, L1-I misses, L1-D misses, L2 misses and faults so far, for each machine
+    private static long[][] getCounters(Simulator[] machines) {
+        long[][] counters = new long[machines.length][];
+        for (int i = 0; i < machines.length; i++) {
+            Simulator s = machines[i];
+            Memory memory = s.memory;
+            long l2Misses = memory.l2Cache == null ? 0 : memory.l2Cache.getReadMisses() + memory.l2Cache.getWriteMisses();
+            counters[i] = new long[]{
+                    s.timing.getRetiredInstructions(),
+                    s.timing.getCycles(),
+                    memory.instructionCache.getReadMisses(),
+                    memory.dataCache.getReadMisses() + memory.dataCache.getWriteMisses(),
+                    l2Misses,
+                    s.timing.getFaults()
+            };
+        }
+        return counters;
+    }
+
+    // The values of the columns of SweepRunner, in order, counted from when the program was loaded
+    Object[] getResults() {
+        if (this.finished == null) return new Object[]{"FAILED", 0, 0, 0.0, 0, 0, 0, 0, 0, this.hostMillis};
+        long[] counts = new long[this.finished[0].length];
+        for (int machine = 0; machine < this.finished.length; machine++) {
+            for (int i = 0; i < counts.length; i++) {
+                long count = this.finished[machine][i] - this.loaded[machine][i];
+                if (i == 1) {
+                    // The machines run side by side, so the run takes as long as the slowest
+                    counts[i] = Math.max(counts[i], count);
+                } else if (i != 4 || machine == 0 || this.machines[machine].memory.l2Cache != this.machines[0].memory.l2Cache) {
+                    // An L2 cache the cores share is counted once
+                    counts[i] += count;
+                }
+            }
+        }
+        double cpi = counts[0] == 0 ? 0 : (double) counts[1] / counts[0];
+        return new Object[]{
+                this.status,
+                counts[0],
+                counts[1],
+                Math.round(cpi * 10000) / 10000.0,
+                counts[2],
+                counts[3],
+                counts[4],
+                counts[5],
+                this.outputWords,
+                this.hostMillis
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package com.simulator.awesome;
+
+// What the interval timer counts down
+enum TimerMode {
+    INSTRUCTIONS, // Retired instructions
+    CYCLES        // Cycles from the timing model
+}
@@ -0,0 +1,243 @@
+package com.simulator.awesome;
+
+import java.util.Arrays;
+
+/**
+ * Counts the cycles taken by the program being run.
+ * Every instruction costs the latency of its class from the machine profile, plus the cycles its fetches, loads and
+ * stores spend in the memory hierarchy. Prefetches are not charged. Each fault and interrupt costs an extra penalty.
+ * Cycles are broken down by execution step and by instruction class.
+ * In pipelined and out of order modes, retired instructions are also issued to a CoreModel, whose cycle count is
+ * reported instead.
+ */
+public class TimingModel {
+    private final Simulator context;
+
+    // Null when the machine profile selects sequential execution
+    private final CoreModel core;
+
+    // Predict the next PC at fetch
+    private final BranchPredictor branchPredictor;
+    private final BranchTargetBuffer branchTargetBuffer;
+
+    // The current instruction's demand memory cycles in each step, and the step that set the PC, if any
+    private final long[] instructionMemoryCycles = new long[5];
+    private int redirectStep;
+    private short pcAfterLastStep;
+
+    private static final String[] PHASE_NAMES = {"Instruction Fetch", "Instruction Decode", "Operand Fetch", "Execute", "Result Store"};
+
+    // Statistics
+    private long cycles;
+    private long retiredInstructions;
+    private long faults;
+    private long faultCycles;
+    private long interrupts;
+    private final long[] phaseCycles = new long[5];
+    private final long[] phaseMemoryCycles = new long[5];
+    private final long[] classInstructions = new long[InstructionClass.values().length];
+    private final long[] classCycles = new long[InstructionClass.values().length];
+
+    TimingModel(Simulator context) {
+        this.context = context;
+        this.core = CoreModel.create(context);
+        this.branchPredictor = BranchPredictor.create(context);
+        this.branchTargetBuffer = new BranchTargetBuffer(context, context.profile.branchTargetBufferEntries);
+    }
+
+    /**
+     * Charges the time one execution step of the current instruction spent in the memory hierarchy
+     * @param step the execution step, 1-5
+     * @param instruction the instruction being executed, or null if it has not been decoded yet
+     * @param memoryCycles the demand cycles the step spent in the memory hierarchy
+     */
+    public void recordStep(int step, Instruction instruction, long memoryCycles) {
+        // Fetch always increments the PC, any later change is a transfer of control
+        short pc = this.context.pc.get();
+        if (step == 1) {
+            Arrays.fill(this.instructionMemoryCycles, 0);
+            this.redirectStep = 0;
+        } else if (pc != this.pcAfterLastStep) {
+            this.redirectStep = step;
+        }
+        this.pcAfterLastStep = pc;
+        this.instructionMemoryCycles[step - 1] += memoryCycles;
+
+        this.cycles += memoryCycles;
+        this.phaseCycles[step - 1] += memoryCycles;
+        this.phaseMemoryCycles[step - 1] += memoryCycles;
+        // Fetch and decode happen before the class is known, so they are only counted by phase
+        if (step > 2) this.classCycles[instruction.getInstructionClass().ordinal()] += memoryCycles;
+    }
+
+    // Called once an instruction has completed all of its steps. Charges the latency of its class to the Execute step.
+    public void recordRetired(Instruction instruction) {
+        int classIndex = instruction.getInstructionClass().ordinal();
+        int latency = this.context.profile.instructionLatencies[classIndex];
+        this.cycles += latency;
+        this.phaseCycles[3] += latency;
+        this.classCycles[classIndex] += latency;
+        this.retiredInstructions++;
+        this.classInstructions[classIndex]++;
+        int flushStep = this.resolveFetch(instruction);
+        if (this.core != null) this.core.issue(instruction, this.instructionMemoryCycles, latency, flushStep);
+    }
+
+    /**
+     * Compares the next PC fetch would have predicted with the actual next PC, then trains the predictors
+     * @return the step that found the prediction was wrong, or 0 if it was right
+     */
+    private int resolveFetch(Instruction instruction) {
+        short pc = this.context.cu.getInstructionAddress();
+        short nextPc = this.context.pc.get();
+        short fallThrough = (short)(pc + 1);
+        boolean isConditional = instruction.getBranchResolutionStep() > 0;
+        boolean isTaken = nextPc != fallThrough;
+
+        // Fetch has not decoded the instruction yet, so it relies on what the branch target buffer remembers
+        short predictedPc = fallThrough;
+        boolean isBufferHit = this.branchTargetBuffer.lookup(pc);
+        short bufferTarget = isBufferHit ? this.branchTargetBuffer.getTarget(pc) : fallThrough;
+        if (isBufferHit && (!this.branchTargetBuffer.isConditional(pc) || this.branchPredictor.predict(pc, bufferTarget))) {
+            predictedPc = bufferTarget;
+        }
+
+        if (isConditional) {
+            // The direction is scored on its own, whether or not the buffer knew the target. The predictor sees the
+            // target decode finds, never the next PC, which already tells whether the branch was taken.
+            boolean isPredictedTaken = this.branchPredictor.predict(pc, instruction.getDecodedTarget());
+            this.branchPredictor.recordOutcome(pc, isPredictedTaken == isTaken);
+            this.branchPredictor.update(pc, isTaken);
+        }
+        if (isTaken) this.branchTargetBuffer.insert(pc, nextPc, isConditional);
+
+        if (predictedPc == nextPc) return 0;
+        if (this.redirectStep > 0) return this.redirectStep;
+        // A branch predicted taken that fell through, or a stale buffer entry for an instruction that is not a branch
+        return isConditional ? instruction.getBranchResolutionStep() : 2;
+    }
+
+    /**
+     * Charges a fault, which abandons the current instruction
+     * @param step the execution step that faulted
+     * @param memoryCycles the demand cycles spent by the faulting step and entering the fault handler
+     */
+    public void recordFault(int step, long memoryCycles) {
+        this.faults++;
+        this.faultCycles += this.context.profile.faultPenalty;
+        this.cycles += memoryCycles + this.context.profile.faultPenalty;
+        this.phaseCycles[step - 1] += memoryCycles;
+        this.phaseMemoryCycles[step - 1] += memoryCycles;
+        if (this.core != null) {
+            long abandonedCycles = 0;
+            for (long cycles : this.instructionMemoryCycles) abandonedCycles += cycles;
+            this.core.fault(abandonedCycles + memoryCycles + this.context.profile.faultPenalty);
+        }
+        Arrays.fill(this.instructionMemoryCycles, 0);
+    }
+
+    /**
+     * Charges an interrupt, which is taken between instructions and costs the same penalty as a fault
+     * @param memoryCycles the demand cycles spent reading the interrupt vector and entering the handler
+     */
+    public void recordInterrupt(long memoryCycles) {
+        this.interrupts++;
+        this.faultCycles += this.context.profile.faultPenalty;
+        this.cycles += memoryCycles + this.context.profile.faultPenalty;
+        this.phaseCycles[0] += memoryCycles;
+        this.phaseMemoryCycles[0] += memoryCycles;
+        if (this.core != null) this.core.fault(memoryCycles + this.context.profile.faultPenalty);
+    }
+
+    public int getLatency(InstructionClass instructionClass) {
+        return this.context.profile.instructionLatencies[instructionClass.ordinal()];
+    }
+
+    // Cycles taken in the profile's execution mode
+    public long getCycles() {
+        return this.core != null ? this.core.getCycles() : this.cycles;
+    }
+
+    // Cycles taken if every instruction ran all five steps before the next started
+    public long getSequentialCycles() {
+        return this.cycles;
+    }
+
+    public CoreModel getCore() {
+        return this.core;
+    }
+
+    public BranchPredictor getBranchPredictor() {
+        return this.branchPredictor;
+    }
+
+    public BranchTargetBuffer getBranchTargetBuffer() {
+        return this.branchTargetBuffer;
+    }
+
+    public long getRetiredInstructions() {
+        return this.retiredInstructions;
+    }
+
+    public long getFaults() {
+        return this.faults;
+    }
+
+    public long getInterrupts() {
+        return this.interrupts;
+    }
+
+    public long getPhaseCycles(int step) {
+        return this.phaseCycles[step - 1];
+    }
+
+    public long getClassInstructions(InstructionClass instructionClass) {
+        return this.classInstructions[instructionClass.ordinal()];
+    }
+
+    public long getClassCycles(InstructionClass instructionClass) {
+        return this.classCycles[instructionClass.ordinal()];
+    }
+
+    // Cycles per instruction
+    public double getCPI() {
+        return this.retiredInstructions == 0 ? 0 : (double) this.getCycles() / this.retiredInstructions;
+    }
+
+    // Millions of instructions per second at the clock speed in the machine profile
+    public double getMIPS() {
+        return this.getCycles() == 0 ? 0 : this.context.profile.clockMegahertz * this.retiredInstructions / (double) this.getCycles();
+    }
+
+    // Wall time the program would take at the clock speed in the machine profile
+    public double getSeconds() {
+        return this.getCycles() / (this.context.profile.clockMegahertz * 1000000.0);
+    }
+
+    public void dumpStatistics() {
+        this.context.io.engineerConsolePrintLn("Timing (" + this.context.profile.executionMode + ", " + this.context.profile.clockMegahertz + " MHz)");
+        this.context.io.engineerConsolePrintLn("    Cycles: " + this.getCycles());
+        if (this.core != null) {
+            this.context.io.engineerConsolePrintLn("    Sequential Cycles: " + this.cycles);
+            this.context.io.engineerConsolePrintLn("    Speedup: " + String.format("%.4f", this.getCycles() == 0 ? 0 : (double) this.cycles / this.getCycles()));
+        }
+        this.context.io.engineerConsolePrintLn("    Retired Instructions: " + this.retiredInstructions);
+        this.context.io.engineerConsolePrintLn("    CPI: " + String.format("%.4f", this.getCPI()));
+        this.context.io.engineerConsolePrintLn("    MIPS: " + String.format("%.4f", this.getMIPS()));
+        this.context.io.engineerConsolePrintLn("    Seconds: " + String.format("%.6f", this.getSeconds()));
+        this.context.io.engineerConsolePrintLn("    Faults: " + this.faults + ", Interrupts: " + this.interrupts + " (" + this.faultCycles + " cycles)");
+        for (int step = 1; step <= 5; step++) {
+            this.context.io.engineerConsolePrintLn("    " + PHASE_NAMES[step - 1] + ": " + this.phaseCycles[step - 1] + " cycles (" + this.phaseMemoryCycles[step - 1] + " in memory)");
+        }
+        for (InstructionClass instructionClass : InstructionClass.values()) {
+            long instructions = this.classInstructions[instructionClass.ordinal()];
+            if (instructions == 0) continue;
+            this.context.io.engineerConsolePrintLn("    " + instructionClass + ": " + instructions + " instructions, " + this.classCycles[instructionClass.ordinal()] + " cycles after fetch");
+        }
+        if (this.core != null) this.core.dumpStatistics();
+        if (this.core != null || this.branchPredictor.getType() != BranchPredictorType.NONE) {
+            this.branchPredictor.dumpStatistics();
+            this.branchTargetBuffer.dumpStatistics();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.simulator.awesome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a trace written by the TraceRecorder. Iterating over the reader hands out the same TraceRecord for every
+ * record, pointed at the next one, so reading allocates nothing per record. Copy what is needed before moving on.
+ *
+ * As a program, prints the records of a trace:
+ *   TraceReader trace [first] [count]
+ */
+public class TraceReader implements Iterable<TraceRecord>, Closeable {
+    private final FileChannel channel;
+    private final long records;
+
+    // Records are read through a window of the file, like they are written
+    private MappedByteBuffer window;
+    private long windowStart = -1;
+
+    public TraceReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceRecorder.HEADER_BYTES);
+        if (header.getInt(0) != TraceRecorder.MAGIC || header.getInt(4) != TraceRecorder.RECORD_BYTES) throw new IOException(path + " is not a trace!");
+        this.records = header.getLong(8);
+    }
+
+    public long getRecords() {
+        return this.records;
+    }
+
+    // Points the record at the nth record of the trace
+    public void read(long n, TraceRecord record) throws IOException {
+        if (n < 0 || n >= this.records) throw new NoSuchElementException("The trace has no record " + n);
+        long windowStart = n - n % Config.TRACE_WINDOW_RECORDS;
+        if (windowStart != this.windowStart) {
+            long length = Math.min(Config.TRACE_WINDOW_RECORDS, this.records - windowStart) * TraceRecorder.RECORD_BYTES;
+            this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, TraceRecorder.HEADER_BYTES + windowStart * TraceRecorder.RECORD_BYTES, length);
+            this.windowStart = windowStart;
+        }
+        record.buffer = this.window;
+        record.base = (int) (n - windowStart) * TraceRecorder.RECORD_BYTES;
+    }
+
+    // Iterates from the nth record
+    public Iterator<TraceRecord> iterator(long first) {
+        TraceRecord record = new TraceRecord();
+        return new Iterator<TraceRecord>() {
+            private long next = first;
+
+            public boolean hasNext() {
+                return this.next < TraceReader.this.records;
+            }
+
+            public TraceRecord next() {
+                try {
+                    TraceReader.this.read(this.next++, record);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return record;
+            }
+        };
+    }
+
+    public Iterator<TraceRecord> iterator() {
+        return this.iterator(0);
+    }
+
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: TraceReader trace [first] [count]");
+            return;
+        }
+        Assembler assembler = new Assembler();
+        try (TraceReader reader = new TraceReader(Paths.get(args[0]))) {
+            long first = args.length > 1 ? Long.parseLong(args[1]) : 0;
+            long count = args.length > 2 ? Long.parseLong(args[2]) : reader.getRecords();
+            System.out.println(reader.getRecords() + " records");
+            Iterator<TraceRecord> records = reader.iterator(first);
+            for (long i = 0; i < count && records.hasNext(); i++) {
+                System.out.println(records.next().toString(assembler));
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.simulator.awesome;
+
+import java.nio.MappedByteBuffer;
+
+// One record of a trace, read in place from the reader's window
+class TraceRecord {
+    MappedByteBuffer buffer;
+    int base;
+
+    public long getNumber() {
+        return this.buffer.getLong(this.base + TraceRecorder.NUMBER);
+    }
+
+    public long getCycle() {
+        return this.buffer.getLong(this.base + TraceRecorder.CYCLE);
+    }
+
+    public short getAddress() {
+        return this.buffer.getShort(this.base + TraceRecorder.ADDRESS);
+    }
+
+    public short getWord() {
+        return this.buffer.getShort(this.base + TraceRecorder.WORD);
+    }
+
+    public short getEffectiveAddress() {
+        return this.buffer.getShort(this.base + TraceRecorder.EFFECTIVE_ADDRESS);
+    }
+
+    // Register bits as in Instruction
+    public int getChangedRegisters() {
+        return Short.toUnsignedInt(this.buffer.getShort(this.base + TraceRecorder.CHANGED_REGISTERS));
+    }
+
+    public int getReads() {
+        return Byte.toUnsignedInt(this.buffer.get(this.base + TraceRecorder.READS));
+    }
+
+    public short getReadAddress() {
+        return this.buffer.getShort(this.base + TraceRecorder.READ_ADDRESS);
+    }
+
+    public short getReadValue() {
+        return this.buffer.getShort(this.base + TraceRecorder.READ_VALUE);
+    }
+
+    public int getWrites() {
+        return Byte.toUnsignedInt(this.buffer.get(this.base + TraceRecorder.WRITES));
+    }
+
+    public short getWriteAddress() {
+        return this.buffer.getShort(this.base + TraceRecorder.WRITE_ADDRESS);
+    }
+
+    public short getWriteValue() {
+        return this.buffer.getShort(this.base + TraceRecorder.WRITE_VALUE);
+    }
+
+    public byte getConditionCode() {
+        return this.buffer.get(this.base + TraceRecorder.CONDITION_CODE);
+    }
+
+    // The MFR, which is 0 unless the instruction faulted
+    public byte getFault() {
+        return this.buffer.get(this.base + TraceRecorder.FAULT);
+    }
+
+    // R0-R3 are 0-3, X1-X3 are 4-6 and FR0-FR1 are 7-8
+    public short getRegister(int register) {
+        return this.buffer.getShort(this.base + TraceRecorder.REGISTERS + 2 * register);
+    }
+
+    public String toString(Assembler assembler) {
+        StringBuilder line = new StringBuilder();
+        line.append(this.getNumber()).append(" @").append(this.getCycle()).append(' ').append(this.getAddress()).append(": ").append(assembler.disassemble(this.getWord()));
+        if (this.getFault() != 0) line.append(" FAULT ").append(this.getFault());
+        line.append(" EA ").append(this.getEffectiveAddress());
+        if (this.getReads() > 0) line.append(" read ").append(this.getReadAddress()).append('=').append(this.getReadValue()).append(" (").append(this.getReads()).append(')');
+        if (this.getWrites() > 0) line.append(" wrote ").append(this.getWriteAddress()).append('=').append(this.getWriteValue()).append(" (").append(this.getWrites()).append(')');
+        String[] names = {"R0", "R1", "R2", "R3", "X1", "X2", "X3", "FR0", "FR1"};
+        for (int i = 0; i < names.length; i++) {
+            if ((this.getChangedRegisters() & (1 << i)) != 0) line.append(' ').append(names[i]).append('=').append(this.getRegister(i));
+        }
+        if ((this.getChangedRegisters() & Instruction.CONDITION_CODE_BIT) != 0) line.append(" CC=").append(this.getConditionCode());
+        return line.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package com.simulator.awesome;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every retired instruction, and every instruction that faulted, as a fixed-width record in a binary trace
+ * file for offline analysis. Records are written straight into a memory-mapped window of the file, which moves on
+ * once it is full, so recording allocates nothing per instruction. TraceReader reads the file back.
+ *
+ * The file starts with a header of HEADER_BYTES: a magic number, the size of a record and the number of records.
+ * The record count is updated each time the window moves, whenever the machine pauses or halts, when recording is
+ * paused and when the recorder is closed. Each record of RECORD_BYTES holds, at the offsets
+ * below, the instruction's number and the cycle it retired on the timing model, its address, its word, the effective
+ * address left in the IAR, the last word read and written through Memory.fetch and Memory.store along with the number
+ * of reads and writes, the registers that changed and the value of every register afterwards, the condition code and
+ * the MFR, which is not 0 for an instruction that faulted.
+ *
+ * The trace is written to trace.file in the machine profile, from the first instruction, for instructions whose
+ * address is between trace.from and trace.to. setRecording pauses and resumes recording while the machine runs.
+ */
+public class TraceRecorder {
+    static final int MAGIC = 0x54524331; // TRC1
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 64;
+
+    // Offsets within a record
+    static final int NUMBER = 0;
+    static final int CYCLE = 8;
+    static final int ADDRESS = 16;
+    static final int WORD = 18;
+    static final int EFFECTIVE_ADDRESS = 20;
+    static final int CHANGED_REGISTERS = 22;
+    static final int READ_ADDRESS = 24;
+    static final int READ_VALUE = 26;
+    static final int WRITE_ADDRESS = 28;
+    static final int WRITE_VALUE = 30;
+    static final int READS = 32;
+    static final int WRITES = 33;
+    static final int CONDITION_CODE = 34;
+    static final int FAULT = 35;
+    static final int REGISTERS = 36;
+
+    // R0-R3, X1-X3 and FR0-FR1, in the order of the register bits in Instruction
+    static final int REGISTER_COUNT = 9;
+
+    private final Simulator context;
+    private boolean isRecording;
+    private final short from;
+    private final short to;
+
+    // Null until the first record
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer window;
+    // The record the window starts at, and records written
+    private long windowStart;
+    private long records;
+
+    // The registers when the current instruction started, and its memory accesses
+    private final short[] registers = new short[REGISTER_COUNT];
+    private short conditionCode;
+    private int reads;
+    private int writes;
+    private short readAddress;
+    private short readValue;
+    private short writeAddress;
+    private short writeValue;
+
+    TraceRecorder(Simulator context) {
+        this.context = context;
+        this.isRecording = context.profile.traceFile != null;
+        this.from = (short) context.profile.traceFrom;
+        this.to = (short) context.profile.traceTo;
+    }
+
+    public boolean isRecording() {
+        return this.isRecording;
+    }
+
+    // Pauses or resumes recording. The file is opened from trace.file on the first record.
+    public void setRecording(boolean isRecording) {
+        this.isRecording = isRecording && this.context.profile.traceFile != null;
+        if (!this.isRecording) this.flush();
+    }
+
+    private void open() throws IOException {
+        String path = this.context.getOwnPath(this.context.profile.traceFile);
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        this.header.putInt(0, MAGIC);
+        this.header.putInt(4, RECORD_BYTES);
+        this.mapWindow(0);
+        this.context.io.engineerConsolePrintLn("Tracing to " + path);
+    }
+
+    private void mapWindow(long firstRecord) throws IOException {
+        this.windowStart = firstRecord;
+        this.window = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + firstRecord * RECORD_BYTES, (long) Config.TRACE_WINDOW_RECORDS * RECORD_BYTES);
+    }
+
+    // Call before the instruction is fetched
+    public void instructionStarted() {
+        for (short i = 0; i < 4; i++) this.registers[i] = this.context.getGeneralRegister(i);
+        for (short i = 1; i < 4; i++) this.registers[3 + i] = this.context.getIndexRegister(i);
+        for (short i = 0; i < 2; i++) this.registers[7 + i] = this.context.getFloatingRegister(i);
+        this.conditionCode = this.context.cc.get();
+        this.reads = 0;
+        this.writes = 0;
+        this.readAddress = this.readValue = this.writeAddress = this.writeValue = 0;
+    }
+
+    public void recordRead(short address, short value) {
+        this.reads++;
+        this.readAddress = address;
+        this.readValue = value;
+    }
+
+    public void recordWrite(short address, short value) {
+        this.writes++;
+        this.writeAddress = address;
+        this.writeValue = value;
+    }
+
+    /**
+     * Call once the instruction has retired or faulted, before a fault handler is entered
+     * @param address the address the instruction was fetched from
+     * @param word the instruction
+     */
+    public void record(short address, short word) {
+        if (Short.toUnsignedInt(address) < Short.toUnsignedInt(this.from) || Short.toUnsignedInt(address) > Short.toUnsignedInt(this.to)) return;
+        try {
+            if (this.channel == null) this.open();
+            if (this.records - this.windowStart == Config.TRACE_WINDOW_RECORDS) {
+                this.mapWindow(this.records);
+                this.header.putLong(8, this.records);
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write trace: " + e.getMessage());
+            this.isRecording = false;
+            return;
+        }
+
+        ByteBuffer record = this.window;
+        int base = (int) (this.records - this.windowStart) * RECORD_BYTES;
+        record.putLong(base + NUMBER, this.context.timing.getRetiredInstructions());
+        record.putLong(base + CYCLE, this.context.timing.getCycles());
+        record.putShort(base + ADDRESS, address);
+        record.putShort(base + WORD, word);
+        record.putShort(base + EFFECTIVE_ADDRESS, this.context.getInternalAddressRegister());
+        record.putShort(base + READ_ADDRESS, this.readAddress);
+        record.putShort(base + READ_VALUE, this.readValue);
+        record.putShort(base + WRITE_ADDRESS, this.writeAddress);
+        record.putShort(base + WRITE_VALUE, this.writeValue);
+        record.put(base + READS, (byte) Math.min(this.reads, 255));
+        record.put(base + WRITES, (byte) Math.min(this.writes, 255));
+        short conditionCode = this.context.cc.get();
+        record.put(base + CONDITION_CODE, (byte) conditionCode);
+        record.put(base + FAULT, this.context.mfr.get());
+
+        int changed = conditionCode != this.conditionCode ? Instruction.CONDITION_CODE_BIT : 0;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            short value = this.getRegister(i);
+            if (value != this.registers[i]) changed |= 1 << i;
+            record.putShort(base + REGISTERS + 2 * i, value);
+        }
+        record.putShort(base + CHANGED_REGISTERS, (short) changed);
+        this.records++;
+    }
+
+    private short getRegister(int i) {
+        if (i < 4) return this.context.getGeneralRegister((short) i);
+        if (i < 7) return this.context.getIndexRegister((short) (i - 3));
+        return this.context.getFloatingRegister((short) (i - 7));
+    }
+
+    public long getRecords() {
+        return this.records;
+    }
+
+    // Publishes the record count and writes the mapped pages out to the file
+    public void flush() {
+        if (this.channel == null) return;
+        this.header.putLong(8, this.records);
+        this.header.force();
+        this.window.force();
+    }
+
+    public void close() {
+        if (this.channel == null) return;
+        this.flush();
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            System.err.println("Cannot close trace: " + e.getMessage());
+        }
+        this.channel = null;
+        this.isRecording = false;
+    }
+
+    public void dumpStatistics() {
+        if (this.channel == null) return;
+        this.flush();
+        this.context.io.engineerConsolePrintLn("Trace: " + this.records + " records of " + RECORD_BYTES + " bytes");
+    }
+}
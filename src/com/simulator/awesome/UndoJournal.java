@@ -0,0 +1,371 @@
+package com.simulator.awesome;
+
+import java.util.Arrays;
+
+/**
+ * Keeps a bounded journal of what each instruction changed, so the machine can step back one instruction at a time
+ * or run back to a breakpoint. Before a word is stored, its old value is added to the journal. When the instruction
+ * retires or faults, the old value of every register it changed is added as well: R0-R3, X1-X3, FR0-FR1, the PC, CC,
+ * MFR, the IAR and the MSR flags that belong to the program. Deltas live in ring buffers of primitives, so journaling
+ * allocates nothing per instruction. Once journal.instructions instructions or four times as many deltas are held,
+ * the oldest instructions are forgotten.
+ *
+ * Every journal.checkpointInterval instructions the registers and all of memory are copied to one of
+ * journal.checkpoints checkpoints. rewindTo goes back further than the journal reaches by restoring the checkpoint
+ * before the target and running forward from it.
+ *
+ * Only this core and its DMA transfers are journaled. Input already read by IN is not given back, timing statistics
+ * are not rewound and caches keep the lines they hold, with their words restored.
+ */
+public class UndoJournal {
+    // R0-R3, X1-X3 and FR0-FR1 in the order of the register bits in Instruction, then the PC, CC, MFR, IAR and MSR
+    static final int REGISTER_COUNT = 14;
+    private static final int PC = 9;
+    private static final int CC = 10;
+    private static final int MFR = 11;
+    private static final int IAR = 12;
+    private static final int MSR = 13;
+
+    // The MSR flags that are restored: supervisor, fault handler, supervisor fault, call stack depth and interrupt handler.
+    // Running, interactive, debugging and waiting for input stay as they are.
+    private static final short MSR_RESTORED_BITS = 0b0000010111100001;
+
+    // Deltas to registers are stored with this added to the register number, deltas to memory by address
+    private static final int REGISTER_TARGET = 0x10000;
+
+    private final Simulator context;
+
+    // The delta each instruction starts at, by instruction number
+    private final long[] entryStarts;
+    private final int entryMask;
+    private long firstEntry;
+    private long nextEntry;
+
+    // What each delta restores and the value it restores, by delta number
+    private final int[] deltaTargets;
+    private final short[] deltaValues;
+    private final int deltaMask;
+    private long nextDelta;
+
+    // The registers when the open instruction started, and its first delta
+    private final short[] registers = new short[REGISTER_COUNT];
+    private boolean isOpen;
+    private long openStart;
+    // Set when the open instruction cannot be undone, because it changed more words than the journal holds
+    private boolean isOverflowed;
+
+    // Instructions retired since reset, less those stepped back over
+    private long position;
+
+    // Full copies of the machine, in a ring
+    private final int checkpointInterval;
+    private final long[] checkpointPositions;
+    private final short[][] checkpointRegisters;
+    private final short[][] checkpointMemory;
+    private int nextCheckpoint;
+    // Set when the next instruction must start with a checkpoint, because the journal was forgotten
+    private boolean isCheckpointDue = true;
+
+    // Statistics
+    private long steppedBack;
+    private long forgotten;
+
+    UndoJournal(Simulator context) {
+        this.context = context;
+        MachineProfile profile = context.profile;
+        // Ring buffers are a power of two long, so positions wrap with a mask
+        int entries = profile.journalInstructions == 0 ? 0 : Integer.highestOneBit(Math.max(profile.journalInstructions - 1, 1)) << 1;
+        this.entryStarts = new long[entries];
+        this.entryMask = this.entryStarts.length - 1;
+        this.deltaTargets = new int[this.entryStarts.length * 4];
+        this.deltaValues = new short[this.entryStarts.length * 4];
+        this.deltaMask = this.deltaValues.length - 1;
+
+        this.checkpointInterval = profile.journalCheckpointInterval;
+        int checkpoints = this.isEnabled() ? profile.journalCheckpoints : 0;
+        this.checkpointPositions = new long[checkpoints];
+        Arrays.fill(this.checkpointPositions, -1);
+        this.checkpointRegisters = new short[checkpoints][REGISTER_COUNT];
+        this.checkpointMemory = new short[checkpoints][];
+    }
+
+    public boolean isEnabled() {
+        return this.entryStarts.length > 0;
+    }
+
+    public long getPosition() {
+        return this.position;
+    }
+
+    // Instructions that can be stepped back over without a checkpoint
+    public long getInstructions() {
+        return this.nextEntry - this.firstEntry;
+    }
+
+    private short getRegister(int register) {
+        switch (register) {
+            case PC: return this.context.pc.get();
+            case CC: return this.context.cc.get();
+            case MFR: return this.context.mfr.get();
+            case IAR: return this.context.getInternalAddressRegister();
+            case MSR: return this.context.msr.get();
+            default:
+                if (register < 4) return this.context.getGeneralRegister((short) register);
+                if (register < 7) return this.context.getIndexRegister((short) (register - 3));
+                return this.context.getFloatingRegister((short) (register - 7));
+        }
+    }
+
+    private void setRegister(int register, short value) {
+        switch (register) {
+            case PC: this.context.pc.set(value); break;
+            case CC: this.context.cc.set(value); break;
+            case MFR: this.context.mfr.set((byte) value); break;
+            case IAR: this.context.setInternalAddressRegister(value); break;
+            case MSR: this.context.msr.set((short) ((this.context.msr.get() & ~MSR_RESTORED_BITS) | (value & MSR_RESTORED_BITS))); break;
+            default:
+                if (register < 4) {
+                    this.context.setGeneralRegister((short) register, value);
+                } else if (register < 7) {
+                    this.context.setIndexRegister((short) (register - 3), value);
+                } else {
+                    this.context.setFloatingRegister((short) (register - 7), value);
+                }
+        }
+    }
+
+    // Call before an instruction, and any interrupt taken before it, starts. An instruction paused by a breakpoint stays open.
+    public void instructionStarted() {
+        if (this.isOpen) return;
+        if (this.checkpointPositions.length > 0 && (this.isCheckpointDue || this.position % this.checkpointInterval == 0 && !this.hasCheckpoint(this.position))) this.checkpoint();
+        for (int i = 0; i < REGISTER_COUNT; i++) this.registers[i] = this.getRegister(i);
+        this.isOpen = true;
+        this.openStart = this.nextDelta;
+    }
+
+    /**
+     * Call before a word of memory is overwritten, by a store or by DMA. Words stored between steps, such as by loading
+     * a program, cannot be stepped back over, so the journal and checkpoints before them are forgotten.
+     */
+    public void recordStore(short address, short oldValue) {
+        if (this.context.cu.isStepping()) {
+            if (this.isOpen) this.append(Short.toUnsignedInt(address), oldValue);
+        } else if (this.firstEntry < this.nextEntry || this.isOpen || !this.isCheckpointDue) {
+            this.forgotten += this.nextEntry - this.firstEntry;
+            this.firstEntry = this.nextEntry;
+            Arrays.fill(this.checkpointPositions, -1);
+            this.isCheckpointDue = true;
+            // An instruction paused between its steps cannot be undone either
+            if (this.isOpen) this.isOverflowed = true;
+        }
+    }
+
+    private void append(int target, short value) {
+        if (this.isOverflowed) return;
+        // Forget the oldest instructions until the delta fits
+        while (this.nextDelta - this.getOldestDelta() >= this.deltaValues.length) {
+            if (this.firstEntry == this.nextEntry) {
+                this.isOverflowed = true;
+                return;
+            }
+            this.firstEntry++;
+            this.forgotten++;
+        }
+        int i = (int) this.nextDelta & this.deltaMask;
+        this.deltaTargets[i] = target;
+        this.deltaValues[i] = value;
+        this.nextDelta++;
+    }
+
+    private long getOldestDelta() {
+        if (this.firstEntry < this.nextEntry) return this.entryStarts[(int) this.firstEntry & this.entryMask];
+        return this.isOpen ? this.openStart : this.nextDelta;
+    }
+
+    // Call once the instruction has retired, or once a fault handler has been entered
+    public void instructionRetired() {
+        if (!this.isOpen) return;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (this.getRegister(i) != this.registers[i]) this.append(REGISTER_TARGET + i, this.registers[i]);
+        }
+        this.isOpen = false;
+        this.position++;
+        if (this.isOverflowed) {
+            // The instruction cannot be undone, so neither can the ones before it
+            this.forgotten += this.nextEntry - this.firstEntry;
+            this.firstEntry = this.nextEntry;
+            this.isOverflowed = false;
+            return;
+        }
+        if (this.nextEntry - this.firstEntry == this.entryStarts.length) {
+            this.firstEntry++;
+            this.forgotten++;
+        }
+        this.entryStarts[(int) this.nextEntry & this.entryMask] = this.openStart;
+        this.nextEntry++;
+    }
+
+    // Applies deltas from the newest back to the first, then drops them
+    private void undo(long firstDelta) {
+        for (long delta = this.nextDelta - 1; delta >= firstDelta; delta--) {
+            int i = (int) delta & this.deltaMask;
+            int target = this.deltaTargets[i];
+            if (target >= REGISTER_TARGET) {
+                this.setRegister(target - REGISTER_TARGET, this.deltaValues[i]);
+            } else {
+                this.context.memory.poke((short) target, this.deltaValues[i]);
+            }
+        }
+        this.nextDelta = firstDelta;
+    }
+
+    // Undoes the part of an instruction that ran before the machine was paused, so it starts again from its first step
+    private void undoOpenInstruction() {
+        this.undo(this.openStart);
+        for (int i = 0; i < REGISTER_COUNT; i++) this.setRegister(i, this.registers[i]);
+        this.isOpen = false;
+        this.isOverflowed = false;
+        this.context.cu.restartInstruction();
+    }
+
+    /**
+     * Puts the machine back to how it was before the last instruction
+     * @return false if the journal holds no instruction to step back over
+     */
+    public boolean stepBack() {
+        if (this.isOpen) {
+            // An instruction that changed something is only undone as far as its start
+            boolean isChanged = this.nextDelta > this.openStart;
+            for (int i = 0; i < REGISTER_COUNT; i++) isChanged |= this.getRegister(i) != this.registers[i];
+            this.undoOpenInstruction();
+            if (isChanged) return true;
+        }
+        if (this.firstEntry == this.nextEntry) return false;
+        this.nextEntry--;
+        this.undo(this.entryStarts[(int) this.nextEntry & this.entryMask]);
+        this.position--;
+        this.steppedBack++;
+        // Checkpoints ahead of the machine may not match where it goes next
+        for (int slot = 0; slot < this.checkpointPositions.length; slot++) {
+            if (this.checkpointPositions[slot] > this.position) this.checkpointPositions[slot] = -1;
+        }
+        return true;
+    }
+
+    /**
+     * Steps back until the instruction at the PC has an execution breakpoint, a word with a write watchpoint is restored
+     * or the journal runs out
+     * @return the number of instructions stepped back over
+     */
+    public long runBack() {
+        if (this.isOpen) this.undoOpenInstruction();
+        long start = this.position;
+        Breakpoints breakpoints = this.context.breakpoints;
+        while (this.firstEntry < this.nextEntry) {
+            long firstDelta = this.entryStarts[(int) (this.nextEntry - 1) & this.entryMask];
+            boolean isWatched = false;
+            for (long delta = firstDelta; delta < this.nextDelta; delta++) {
+                int target = this.deltaTargets[(int) delta & this.deltaMask];
+                if (target < REGISTER_TARGET && breakpoints.isSet(BreakpointKind.WRITE, (short) target)) isWatched = true;
+            }
+            this.stepBack();
+            if (isWatched || breakpoints.isSet(BreakpointKind.EXECUTE, this.context.pc.get())) {
+                // Running forward again starts with the instruction at the PC
+                breakpoints.resumeAt(this.context.pc.get());
+                break;
+            }
+        }
+        this.context.io.engineerConsolePrintLn("Ran back " + (start - this.position) + " instructions to " + this.context.pc.get());
+        return start - this.position;
+    }
+
+    private boolean hasCheckpoint(long position) {
+        for (long checkpointPosition : this.checkpointPositions) {
+            if (checkpointPosition == position) return true;
+        }
+        return false;
+    }
+
+    private void checkpoint() {
+        int slot = this.nextCheckpoint;
+        this.nextCheckpoint = (this.nextCheckpoint + 1) % this.checkpointPositions.length;
+        if (this.checkpointMemory[slot] == null) this.checkpointMemory[slot] = new short[this.context.memory.getWordCount()];
+        this.context.memory.snapshot((short) 0, this.checkpointMemory[slot]);
+        for (int i = 0; i < REGISTER_COUNT; i++) this.checkpointRegisters[slot][i] = this.getRegister(i);
+        this.checkpointPositions[slot] = this.position;
+        this.isCheckpointDue = false;
+    }
+
+    /**
+     * Puts the machine back to how it was after a number of instructions had retired. Targets the journal does not
+     * reach are rewound by restoring the latest checkpoint before them and running forward.
+     * @param target the position to go back to
+     * @return false if no checkpoint is old enough or running forward stops before the target, leaving the machine
+     * where it was
+     */
+    public boolean rewindTo(long target) {
+        if (target < 0 || target > this.position) throw new IllegalArgumentException("Cannot rewind to " + target + " from " + this.position + "!");
+        if (this.position - target <= this.nextEntry - this.firstEntry && !this.isOverflowed) {
+            if (this.isOpen) this.undoOpenInstruction();
+            while (this.position > target) this.stepBack();
+            return true;
+        }
+
+        int latest = -1;
+        for (int slot = 0; slot < this.checkpointPositions.length; slot++) {
+            long checkpointPosition = this.checkpointPositions[slot];
+            if (checkpointPosition >= 0 && checkpointPosition <= target && (latest < 0 || checkpointPosition > this.checkpointPositions[latest])) latest = slot;
+        }
+        if (latest < 0) return false;
+
+        // Running forward may not reach the target, so keep the machine as it is to go back to
+        if (this.isOpen && !this.isOverflowed) this.undoOpenInstruction();
+        short[] originalMemory = this.context.memory.snapshot();
+        short[] originalRegisters = new short[REGISTER_COUNT];
+        for (int i = 0; i < REGISTER_COUNT; i++) originalRegisters[i] = this.getRegister(i);
+        long originalPosition = this.position;
+
+        this.isOpen = false;
+        this.isOverflowed = false;
+        short[] words = this.checkpointMemory[latest];
+        for (int address = 0; address < words.length; address++) this.context.memory.poke((short) address, words[address]);
+        for (int i = 0; i < REGISTER_COUNT; i++) this.setRegister(i, this.checkpointRegisters[latest][i]);
+        this.context.cu.restartInstruction();
+        // The journal after the checkpoint no longer matches the machine
+        this.forgotten += this.nextEntry - this.firstEntry;
+        this.firstEntry = this.nextEntry;
+        this.position = this.checkpointPositions[latest];
+        this.nextCheckpoint = (latest + 1) % this.checkpointPositions.length;
+
+        // Run forward, stopping early at a breakpoint, at HLT or when IN runs out of input
+        MachineStatusRegister msr = this.context.msr;
+        boolean isRunning = msr.isRunning();
+        msr.setIsRunning(true);
+        while (this.position < target && msr.isRunning()) {
+            this.context.cu.singleStep();
+        }
+        msr.setIsRunning(isRunning);
+        if (this.position == target) {
+            this.context.io.engineerConsolePrintLn("Rewound to " + this.position + " from the checkpoint at " + this.checkpointPositions[latest]);
+            return true;
+        }
+
+        // The journal written while running forward ends short of where the machine was, so it is forgotten as well
+        this.context.io.engineerConsolePrintLn("Cannot rewind to " + target + ": running forward from the checkpoint stopped at " + this.position + ", staying at " + originalPosition);
+        for (int address = 0; address < originalMemory.length; address++) this.context.memory.poke((short) address, originalMemory[address]);
+        for (int i = 0; i < REGISTER_COUNT; i++) this.setRegister(i, originalRegisters[i]);
+        this.context.cu.restartInstruction();
+        this.forgotten += this.nextEntry - this.firstEntry;
+        this.firstEntry = this.nextEntry;
+        this.position = originalPosition;
+        this.isCheckpointDue = true;
+        return false;
+    }
+
+    public void dumpStatistics() {
+        if (!this.isEnabled()) return;
+        this.context.io.engineerConsolePrintLn("Undo Journal: " + (this.nextEntry - this.firstEntry) + " instructions, " + (this.nextDelta - this.getOldestDelta()) + " deltas");
+        this.context.io.engineerConsolePrintLn("    Stepped Back: " + this.steppedBack);
+        this.context.io.engineerConsolePrintLn("    Forgotten: " + this.forgotten);
+    }
+}